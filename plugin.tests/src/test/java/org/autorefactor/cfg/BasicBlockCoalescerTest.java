@@ -0,0 +1,129 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import org.junit.Test;
+
+import static org.autorefactor.cfg.CFGEdgeBuilder.*;
+import static org.junit.Assert.*;
+
+public class BasicBlockCoalescerTest {
+    private static final String FILE_NAME = "Sample.java";
+
+    private CFGBasicBlock newBlock(int position) {
+        return new CFGBasicBlock(null, FILE_NAME, "block" + position, false, new LineAndColumn(position, position, 1));
+    }
+
+    private CFGBasicBlock newDecisionBlock(int position) {
+        return new CFGBasicBlock(null, FILE_NAME, "block" + position, true, new LineAndColumn(position, position, 1));
+    }
+
+    private CFGBasicBlock newExitBlock(int position) {
+        return CFGBasicBlock.buildExitBlock(null, FILE_NAME, "exit", new LineAndColumn(position, position, 1));
+    }
+
+    private CFGBasicBlock getSingleSuccessor(CFGBasicBlock block) {
+        CFGBasicBlock result = null;
+        for (Object edgeOrAccess : block.getOutgoingEdgesAndVariableAccesses()) {
+            if (edgeOrAccess instanceof CFGEdge) {
+                assertNull("expected a single successor", result);
+                result = ((CFGEdge) edgeOrAccess).getTargetBlock();
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testStraightLineCode() throws Exception {
+        final CFGBasicBlock entryBlock = CFGBasicBlock.buildEntryBlock(null, FILE_NAME, "entry");
+        final CFGBasicBlock first = newBlock(1);
+        final CFGBasicBlock second = newBlock(2);
+        final CFGBasicBlock third = newBlock(3);
+        final CFGBasicBlock condition = newDecisionBlock(4);
+        final CFGBasicBlock thenBlock = newBlock(5);
+        final CFGBasicBlock exitBlock = newExitBlock(6);
+        buildEdge(entryBlock, first);
+        buildEdge(first, second);
+        buildEdge(second, third);
+        buildEdge(third, condition);
+        buildEdge(null, true, condition, thenBlock);
+        buildEdge(null, false, condition, exitBlock);
+        buildEdge(thenBlock, exitBlock);
+
+        assertEquals(2, BasicBlockCoalescer.coalesce(entryBlock));
+        assertSame(first, getSingleSuccessor(entryBlock));
+        assertSame("the decision block is kept", condition, getSingleSuccessor(first));
+        assertEquals(1, condition.getIncomingEdges().size());
+        assertSame(first, condition.getIncomingEdges().iterator().next().getSourceBlock());
+        assertEquals(5, CompactCFG.of(entryBlock).getNbBlocks());
+    }
+
+    @Test
+    public void testLoopBody() throws Exception {
+        final CFGBasicBlock entryBlock = CFGBasicBlock.buildEntryBlock(null, FILE_NAME, "entry");
+        final CFGBasicBlock condition = newDecisionBlock(1);
+        final CFGBasicBlock body1 = newBlock(2);
+        final CFGBasicBlock body2 = newBlock(3);
+        final CFGBasicBlock afterLoop1 = newBlock(4);
+        final CFGBasicBlock afterLoop2 = newBlock(5);
+        final CFGBasicBlock exitBlock = newExitBlock(6);
+        buildEdge(entryBlock, condition);
+        buildEdge(null, true, condition, body1);
+        buildEdge(null, false, condition, afterLoop1);
+        buildEdge(body1, body2);
+        buildEdge(body2, condition);
+        buildEdge(afterLoop1, afterLoop2);
+        buildEdge(afterLoop2, exitBlock);
+
+        assertEquals(2, BasicBlockCoalescer.coalesce(entryBlock));
+        assertSame("the back edge now leaves the merged block", condition, getSingleSuccessor(body1));
+        assertSame("the exit block is kept", exitBlock, getSingleSuccessor(afterLoop1));
+        assertEquals(2, condition.getIncomingEdges().size());
+        assertEquals(1, exitBlock.getIncomingEdges().size());
+
+        final CompactCFG cfg = CompactCFG.of(entryBlock);
+        assertEquals(5, cfg.getNbBlocks());
+        assertTrue(cfg.isBackEdge(cfg.getFirstSuccessorEdge(cfg.indexOf(body1))));
+    }
+
+    @Test
+    public void testJoin() throws Exception {
+        final CFGBasicBlock entryBlock = CFGBasicBlock.buildEntryBlock(null, FILE_NAME, "entry");
+        final CFGBasicBlock condition = newDecisionBlock(1);
+        final CFGBasicBlock thenBlock = newBlock(2);
+        final CFGBasicBlock elseBlock = newBlock(3);
+        final CFGBasicBlock join = newBlock(4);
+        final CFGBasicBlock exitBlock = newExitBlock(5);
+        buildEdge(entryBlock, condition);
+        buildEdge(null, true, condition, thenBlock);
+        buildEdge(null, false, condition, elseBlock);
+        buildEdge(thenBlock, join);
+        buildEdge(elseBlock, join);
+        buildEdge(join, exitBlock);
+
+        assertEquals("a join point has several predecessors", 0, BasicBlockCoalescer.coalesce(entryBlock));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.List;
+
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.Release;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.Test;
+
+import static org.autorefactor.test.TestHelper.*;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that building the CFG of a large method stays fast,
+ * and that coalescing basic blocks shrinks the CFG of straight-line code and speeds up the data flow analyses.
+ * <p>
+ * This class is not part of the default test suite, because its time limits could fail the build on slow machines.
+ * Run it with the {@code benchmarks} maven profile.
+ */
+public class CFGBuilderBenchmark {
+    /** Generous upper bound on the time to build the CFG of the large method, only catching complexity blowups. */
+    private static final long MAX_MICROS_PER_BUILD = 100000;
+    private static final int NB_STATEMENT_GROUPS = 400;
+    private static final int NB_WARMUP_ITERATIONS = 20;
+    private static final int NB_ITERATIONS = 50;
+
+    @Test
+    public void benchmarkLargeMethod() throws Exception {
+        final String javaSource = newLargeMethodSource();
+        final JavaProjectOptions options = newJavaProjectOptions(Release.javaSE("1.7"), 4);
+        final CompilationUnit astRoot = parse(javaSource);
+
+        for (int i = 0; i < NB_WARMUP_ITERATIONS; i++) {
+            new CFGBuilder(javaSource, options).buildCFG(astRoot);
+        }
+        final long start = System.nanoTime();
+        List<CFGBasicBlock> blocks = null;
+        for (int i = 0; i < NB_ITERATIONS; i++) {
+            blocks = new CFGBuilder(javaSource, options).buildCFG(astRoot);
+        }
+        final long microsPerBuild = (System.nanoTime() - start) / 1000 / NB_ITERATIONS;
+
+        assertEquals(1, blocks.size());
+        assertTrue(blocks.get(0).isEntryBlock());
+        assertFalse(blocks.get(0).getOutgoingEdgesAndVariableAccesses().isEmpty());
+        assertTrue("Building the CFG of a method with " + (NB_STATEMENT_GROUPS * 5) + " statements took "
+                + microsPerBuild + " microseconds", microsPerBuild <= MAX_MICROS_PER_BUILD);
+    }
+
+    @Test
+    public void benchmarkStraightLineCode() throws Exception {
+        final String javaSource = newStraightLineMethodSource();
+        final JavaProjectOptions options = newJavaProjectOptions(Release.javaSE("1.7"), 4);
+        final CompilationUnit astRoot = parse(javaSource);
+
+        final CFGBasicBlock entryBlock = new CFGBuilder(javaSource, options).buildCFG(astRoot).get(0);
+        final int nbBlocks = CompactCFG.of(entryBlock).getNbBlocks();
+        final long livenessMicros = timeLiveness(entryBlock);
+
+        final CFGBasicBlock coalescedEntryBlock =
+                new CFGBuilder(javaSource, options, false).buildCFG(astRoot).get(0);
+        BasicBlockCoalescer.coalesce(coalescedEntryBlock);
+        final int nbCoalescedBlocks = CompactCFG.of(coalescedEntryBlock).getNbBlocks();
+        final long coalescedLivenessMicros = timeLiveness(coalescedEntryBlock);
+
+        assertTrue(nbCoalescedBlocks < nbBlocks);
+        assertTrue("The liveness analysis took " + coalescedLivenessMicros + " microseconds on "
+                + nbCoalescedBlocks + " coalesced blocks, but " + livenessMicros + " microseconds on "
+                + nbBlocks + " blocks", coalescedLivenessMicros <= livenessMicros);
+    }
+
+    private long timeLiveness(CFGBasicBlock entryBlock) {
+        for (int i = 0; i < NB_WARMUP_ITERATIONS; i++) {
+            new LivenessAnalysis(entryBlock);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < NB_ITERATIONS; i++) {
+            new LivenessAnalysis(entryBlock);
+        }
+        return (System.nanoTime() - start) / 1000 / NB_ITERATIONS;
+    }
+
+    /** Returns the source of a class with a single method only made of straight-line code. */
+    private String newStraightLineMethodSource() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package org.autorefactor.cfg;\n\n");
+        sb.append("public class StraightLineSample {\n");
+        sb.append("    public int straightLineMethod(int p, String s, int[] a) {\n");
+        for (int i = 0; i < NB_STATEMENT_GROUPS; i++) {
+            sb.append("        int v").append(i).append(" = p + s.length();\n");
+            sb.append("        a[").append(i).append("] = v").append(i).append(";\n");
+            sb.append("        p += a[").append(i).append("];\n");
+        }
+        sb.append("        return p;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /** Returns the source of a class with a single method, mixing all the statements having branches. */
+    private String newLargeMethodSource() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package org.autorefactor.cfg;\n\n");
+        sb.append("public class LargeMethodSample {\n");
+        sb.append("    public int largeMethod(int p, String s) {\n");
+        for (int i = 0; i < NB_STATEMENT_GROUPS; i++) {
+            sb.append("        int v").append(i).append(" = p + ").append(i).append(";\n");
+            sb.append("        if (v").append(i).append(" > ").append(i).append(") {\n");
+            sb.append("            p = v").append(i).append(";\n");
+            sb.append("        } else {\n");
+            sb.append("            p--;\n");
+            sb.append("        }\n");
+            sb.append("        while (p > ").append(i).append(") {\n");
+            sb.append("            p -= 2;\n");
+            sb.append("        }\n");
+            sb.append("        switch (p) {\n");
+            sb.append("        case 0:\n");
+            sb.append("            p++;\n");
+            sb.append("            break;\n");
+            sb.append("        default:\n");
+            sb.append("            p--;\n");
+            sb.append("        }\n");
+            sb.append("        try {\n");
+            sb.append("            p = Integer.parseInt(s);\n");
+            sb.append("        } catch (NumberFormatException e").append(i).append(") {\n");
+            sb.append("            p = 0;\n");
+            sb.append("        }\n");
+        }
+        sb.append("        return p;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
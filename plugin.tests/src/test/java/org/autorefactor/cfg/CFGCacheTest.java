@@ -0,0 +1,122 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.Release;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.junit.Test;
+
+import static org.autorefactor.test.TestHelper.*;
+import static org.junit.Assert.*;
+
+public class CFGCacheTest {
+    private static final String SAMPLE = "    public int sample(int p, boolean c) {\n"
+            + "        int a = p;\n"
+            + "        if (c) {\n"
+            + "            a++;\n"
+            + "        }\n"
+            + "        return a;\n"
+            + "    }\n";
+    private static final String SOURCE = "package org.autorefactor.cfg;\n"
+            + "\n"
+            + "public class CFGCacheSample {\n"
+            + SAMPLE
+            + "\n"
+            + "    public int other(int n) {\n"
+            + "        return n;\n"
+            + "    }\n"
+            + "}\n";
+    /** The source after a refactoring pass: the first method moved down and the second method changed. */
+    private static final String REFACTORED_SOURCE = "package org.autorefactor.cfg;\n"
+            + "\n"
+            + "public class CFGCacheSample {\n"
+            + "    private int field;\n"
+            + "\n"
+            + SAMPLE
+            + "\n"
+            + "    public int other(int n) {\n"
+            + "        return n + 1;\n"
+            + "    }\n"
+            + "}\n";
+
+    private final JavaProjectOptions options = newJavaProjectOptions(Release.javaSE("1.7"), 4);
+
+    private MethodDeclaration[] parseMethods(String source) throws Exception {
+        return ((TypeDeclaration) parse(source).types().get(0)).getMethods();
+    }
+
+    @Test
+    public void testSamePass() throws Exception {
+        final CFGCache cache = new CFGCache(options);
+        final MethodDeclaration[] methods = parseMethods(SOURCE);
+
+        final CFGBasicBlock entryBlock = cache.getCFG(methods[0], SOURCE);
+        assertSame(methods[0], entryBlock.getNode());
+        assertSame(entryBlock, cache.getCFG(methods[0], SOURCE));
+        assertSame(cache.getCompactCFG(methods[0], SOURCE), cache.getCompactCFG(methods[0], SOURCE));
+        assertNotNull(cache.getConstantPropagation(methods[0], SOURCE));
+        assertSame(cache.getConstantPropagation(methods[0], SOURCE), cache.getConstantPropagation(methods[0], SOURCE));
+        assertNotSame(entryBlock, cache.getCFG(methods[1], SOURCE));
+    }
+
+    @Test
+    public void testNextPass() throws Exception {
+        final CFGCache cache = new CFGCache(options);
+        final MethodDeclaration[] methods = parseMethods(SOURCE);
+        final CFGBasicBlock sampleEntryBlock = cache.getCFG(methods[0], SOURCE);
+        final CFGBasicBlock otherEntryBlock = cache.getCFG(methods[1], SOURCE);
+
+        final MethodDeclaration[] refactoredMethods = parseMethods(REFACTORED_SOURCE);
+        final CFGBasicBlock reboundEntryBlock = cache.getCFG(refactoredMethods[0], REFACTORED_SOURCE);
+        assertNotSame(sampleEntryBlock, reboundEntryBlock);
+        assertNotSame(otherEntryBlock, cache.getCFG(refactoredMethods[1], REFACTORED_SOURCE));
+
+        // the rebound CFG must be the same as a CFG built from scratch
+        final CompactCFG rebound = CompactCFG.of(reboundEntryBlock);
+        final CFGBasicBlock expectedEntryBlock =
+                new CFGBuilder(REFACTORED_SOURCE, options, false).buildCFG(refactoredMethods[0]);
+        BasicBlockCoalescer.coalesce(expectedEntryBlock);
+        final CompactCFG expected = CompactCFG.of(expectedEntryBlock);
+        assertEquals(expected.getNbBlocks(), rebound.getNbBlocks());
+        for (int b = 0; b < expected.getNbBlocks(); b++) {
+            final CFGBasicBlock expectedBlock = expected.getBlock(b);
+            final CFGBasicBlock actualBlock = rebound.getBlock(b);
+            assertEquals(expectedBlock.getNodes(), actualBlock.getNodes());
+            assertEquals(expectedBlock.getLineAndColumn(), actualBlock.getLineAndColumn());
+            assertEquals(expectedBlock.getCodeExcerpt(), actualBlock.getCodeExcerpt());
+            assertEquals(expected.getEndSuccessorEdge(b) - expected.getFirstSuccessorEdge(b),
+                    rebound.getEndSuccessorEdge(b) - rebound.getFirstSuccessorEdge(b));
+            assertEquals(expected.getEndAccess(b) - expected.getFirstAccess(b),
+                    rebound.getEndAccess(b) - rebound.getFirstAccess(b));
+            for (int i = expected.getFirstAccess(b); i < expected.getEndAccess(b); i++) {
+                assertSame(expected.getAccess(i).getAstNode(), rebound.getAccess(i).getAstNode());
+                assertEquals(expected.getAccess(i).getAccessType(), rebound.getAccess(i).getAccessType());
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.Release;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.junit.Test;
+
+import static org.autorefactor.test.TestHelper.*;
+import static org.junit.Assert.*;
+
+public class CFGExporterTest {
+    private static final String SOURCE = "package org.autorefactor.cfg;\n"
+            + "\n"
+            + "public class ExportSample {\n"
+            + "    public int sample(int p) {\n"
+            + "        if (p > 0) {\n"
+            + "            return p;\n"
+            + "        }\n"
+            + "        return -p;\n"
+            + "    }\n"
+            + "\n"
+            + "    public void other(String s) {\n"
+            + "        s.length();\n"
+            + "    }\n"
+            + "}\n";
+
+    private final JavaProjectOptions options = newJavaProjectOptions(Release.javaSE("1.7"), 4);
+
+    private MethodDeclaration[] parseMethods() throws Exception {
+        return ((TypeDeclaration) parse(SOURCE).types().get(0)).getMethods();
+    }
+
+    private byte[] export(CFGExporter.Format format) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CFGExporter exporter = new CFGExporter(format, out);
+        try {
+            for (MethodDeclaration method : parseMethods()) {
+                exporter.export("ExportSample.java", method, new CFGBuilder(SOURCE, options).buildCFG(method));
+            }
+        } finally {
+            exporter.close();
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        final String[] lines = new String(export(CFGExporter.Format.JSON_LINES), "UTF-8").split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"file\": \"ExportSample.java\""
+                + ", \"method\": \"org.autorefactor.cfg.ExportSample#sample(int)\", \"line\": 4"
+                + ", \"blocks\": [{\"kind\": \"entry\""));
+        assertTrue("the if condition has a true edge", lines[0].contains(", true]"));
+        assertTrue("the if condition has a false edge", lines[0].contains(", false]"));
+        assertTrue(lines[1], lines[1].contains("\"method\": \"org.autorefactor.cfg.ExportSample#other(String)\""));
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(export(CFGExporter.Format.BINARY)));
+        assertEquals(0x41434647, in.readInt());
+        assertEquals(1, in.readInt());
+        assertEquals("ExportSample.java", in.readUTF());
+        assertEquals("org.autorefactor.cfg.ExportSample#sample(int)", in.readUTF());
+        assertEquals(4, in.readInt());
+        final int nbBlocks = in.readInt();
+        assertTrue(nbBlocks > 2);
+        assertEquals("the entry block comes first", 1, in.readByte());
+    }
+
+    @Test
+    public void testDot() throws Exception {
+        final String dot = new String(export(CFGExporter.Format.DOT), "UTF-8");
+        assertEquals("one digraph per method", 3, dot.split("digraph ExportSample \\{").length);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.autorefactor.cfg.CFGEdgeBuilder.*;
+import static org.junit.Assert.*;
+
+public class CodePathAnalysisTest {
+    private static final String FILE_NAME = "Sample.java";
+
+    private int nbBlocks;
+
+    private CFGBasicBlock newBlock() {
+        nbBlocks++;
+        return new CFGBasicBlock(null, FILE_NAME, "block" + nbBlocks, false, new LineAndColumn(nbBlocks, nbBlocks, 1));
+    }
+
+    /** Builds the CFG of a method with the provided number of sequential if/else statements. */
+    private CFGBasicBlock newSequentialIfs(int nbIfs, List<CFGBasicBlock> blocksOnAllPaths,
+            CFGBasicBlock exitBlock) {
+        final CFGBasicBlock entryBlock = CFGBasicBlock.buildEntryBlock(null, FILE_NAME, "entry");
+        CFGBasicBlock previous = entryBlock;
+        for (int i = 0; i < nbIfs; i++) {
+            final CFGBasicBlock condition = newBlock();
+            blocksOnAllPaths.add(condition);
+            buildEdge(previous, condition);
+            final CFGBasicBlock thenBlock = newBlock();
+            final CFGBasicBlock elseBlock = newBlock();
+            buildEdge(null, true, condition, thenBlock);
+            buildEdge(null, false, condition, elseBlock);
+            final CFGBasicBlock join = newBlock();
+            buildEdge(thenBlock, join);
+            buildEdge(elseBlock, join);
+            blocksOnAllPaths.add(join);
+            previous = join;
+        }
+        buildEdge(previous, exitBlock);
+        return entryBlock;
+    }
+
+    private CFGBasicBlock newExitBlock() {
+        return CFGBasicBlock.buildExitBlock(null, FILE_NAME, "exit", new LineAndColumn(100000, 100000, 1));
+    }
+
+    @Test
+    public void testSequentialIfs() throws Exception {
+        final int nbIfs = 40;
+        final List<CFGBasicBlock> blocksOnAllPaths = new ArrayList<CFGBasicBlock>();
+        final CFGBasicBlock exitBlock = newExitBlock();
+        final CFGBasicBlock entryBlock = newSequentialIfs(nbIfs, blocksOnAllPaths, exitBlock);
+
+        final CodePathAnalysis analysis = new CodePathAnalysis(entryBlock);
+        assertEquals(1L << nbIfs, analysis.countPaths());
+
+        final List<CFGBasicBlock> expected = new ArrayList<CFGBasicBlock>();
+        expected.add(entryBlock);
+        expected.addAll(blocksOnAllPaths);
+        expected.add(exitBlock);
+        assertEquals(expected, analysis.getBlocksOnAllPaths());
+
+        final Set<List<CFGBasicBlock>> paths = new HashSet<List<CFGBasicBlock>>();
+        final Iterator<List<CFGBasicBlock>> it = analysis.pathIterator(10);
+        while (it.hasNext()) {
+            final List<CFGBasicBlock> path = it.next();
+            assertEquals(2 + 3 * nbIfs, path.size());
+            assertSame(entryBlock, path.get(0));
+            assertSame(exitBlock, path.get(path.size() - 1));
+            paths.add(path);
+        }
+        assertEquals(10, paths.size());
+    }
+
+    @Test
+    public void testSameNumberOfPathsAsCodePathCollector() throws Exception {
+        final CFGBasicBlock entryBlock = newSequentialIfs(6, new ArrayList<CFGBasicBlock>(), newExitBlock());
+
+        final CodePathAnalysis analysis = new CodePathAnalysis(entryBlock);
+        final int nbCollectedPaths = new CodePathCollector().getPaths(entryBlock).size();
+        assertEquals(nbCollectedPaths, analysis.countPaths());
+        int nbIteratedPaths = 0;
+        for (Iterator<List<CFGBasicBlock>> it = analysis.pathIterator(Integer.MAX_VALUE); it.hasNext(); it.next()) {
+            nbIteratedPaths++;
+        }
+        assertEquals(nbCollectedPaths, nbIteratedPaths);
+    }
+
+    @Test
+    public void testLoop() throws Exception {
+        final CFGBasicBlock entryBlock = CFGBasicBlock.buildEntryBlock(null, FILE_NAME, "entry");
+        final CFGBasicBlock condition = newBlock();
+        final CFGBasicBlock body = newBlock();
+        final CFGBasicBlock breakBlock = newBlock();
+        final CFGBasicBlock exitBlock = newExitBlock();
+        buildEdge(entryBlock, condition);
+        buildEdge(null, true, condition, body);
+        buildEdge(null, false, condition, exitBlock);
+        buildEdge(null, true, body, condition);
+        buildEdge(null, false, body, breakBlock);
+        buildEdge(breakBlock, exitBlock);
+
+        final CodePathAnalysis analysis = new CodePathAnalysis(entryBlock);
+        assertEquals(new CodePathCollector().getPaths(entryBlock).size(), analysis.countPaths());
+        assertEquals(2, analysis.countPaths());
+        assertEquals(Arrays.asList(entryBlock, condition, exitBlock), analysis.getBlocksOnAllPaths());
+
+        assertTrue(analysis.isReachableWithoutGoingThrough(exitBlock, body));
+        assertFalse(analysis.isReachableWithoutGoingThrough(breakBlock, body));
+        assertFalse(analysis.isReachableWithoutGoingThrough(body, condition));
+        assertFalse(analysis.isReachableWithoutGoingThrough(body, body));
+    }
+
+    @Test
+    public void testBoundedPathIterator() throws Exception {
+        final CFGBasicBlock entryBlock = newSequentialIfs(2, new ArrayList<CFGBasicBlock>(), newExitBlock());
+
+        final Iterator<List<CFGBasicBlock>> it = new CodePathAnalysis(entryBlock).pathIterator(3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(it.hasNext());
+            it.next();
+        }
+        assertFalse(it.hasNext());
+    }
+}
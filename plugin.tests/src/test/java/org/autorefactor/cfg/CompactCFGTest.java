@@ -0,0 +1,79 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import org.junit.Test;
+
+import static org.autorefactor.cfg.CFGEdgeBuilder.*;
+import static org.junit.Assert.*;
+
+public class CompactCFGTest {
+    private static final String FILE_NAME = "Sample.java";
+
+    private CFGBasicBlock newBlock(int position) {
+        return new CFGBasicBlock(null, FILE_NAME, "block" + position, false, new LineAndColumn(position, position, 1));
+    }
+
+    @Test
+    public void testLoop() throws Exception {
+        final CFGBasicBlock entryBlock = CFGBasicBlock.buildEntryBlock(null, FILE_NAME, "entry");
+        final CFGBasicBlock condition = newBlock(1);
+        final CFGBasicBlock body = newBlock(2);
+        final CFGBasicBlock exitBlock =
+                CFGBasicBlock.buildExitBlock(null, FILE_NAME, "exit", new LineAndColumn(3, 3, 1));
+        final CFGBasicBlock unreachable = newBlock(4);
+        buildEdge(entryBlock, condition);
+        buildEdge(null, true, condition, body);
+        buildEdge(null, false, condition, exitBlock);
+        buildEdge(body, condition);
+        buildEdge(unreachable, exitBlock);
+
+        final CompactCFG cfg = CompactCFG.of(entryBlock);
+        assertEquals(4, cfg.getNbBlocks());
+        assertEquals(0, cfg.indexOf(entryBlock));
+        assertEquals(-1, cfg.indexOf(unreachable));
+        final int conditionId = cfg.indexOf(condition);
+        final int bodyId = cfg.indexOf(body);
+        final int exitId = cfg.indexOf(exitBlock);
+        assertTrue(cfg.isExitBlock(exitId));
+        assertFalse(cfg.isExitBlock(conditionId));
+
+        assertEquals(2, cfg.getEndSuccessorEdge(conditionId) - cfg.getFirstSuccessorEdge(conditionId));
+        final int backEdge = cfg.getFirstSuccessorEdge(bodyId);
+        assertEquals(conditionId, cfg.getTargetBlock(backEdge));
+        assertTrue(cfg.isBackEdge(backEdge));
+        for (int edge = cfg.getFirstSuccessorEdge(conditionId); edge < cfg.getEndSuccessorEdge(conditionId); edge++) {
+            assertFalse(cfg.isBackEdge(edge));
+            assertTrue("forward edges go to higher ids", cfg.getTargetBlock(edge) > conditionId);
+        }
+
+        assertEquals(2, cfg.getEndPredecessor(conditionId) - cfg.getFirstPredecessor(conditionId));
+        assertEquals("the unreachable predecessor is ignored",
+                1, cfg.getEndPredecessor(exitId) - cfg.getFirstPredecessor(exitId));
+        assertEquals(conditionId, cfg.getPredecessor(cfg.getFirstPredecessor(exitId)));
+        assertEquals("block1", cfg.getCodeExcerpt(conditionId));
+    }
+}
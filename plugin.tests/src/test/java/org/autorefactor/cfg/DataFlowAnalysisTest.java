@@ -0,0 +1,141 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.List;
+
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.Release;
+import org.junit.Test;
+
+import static org.autorefactor.test.TestHelper.*;
+import static org.junit.Assert.*;
+
+public class DataFlowAnalysisTest {
+    private static final String SOURCE = "package org.autorefactor.cfg;\n"
+            + "\n"
+            + "public class DataFlowSample {\n"
+            + "    public int sample(int p, boolean c) {\n"
+            + "        int a = p;\n"
+            + "        int b = 1;\n"
+            + "        b = a + 1;\n"
+            + "        int d;\n"
+            + "        if (c) {\n"
+            + "            d = 1;\n"
+            + "        } else {\n"
+            + "            d = b;\n"
+            + "        }\n"
+            + "        return b + d;\n"
+            + "    }\n"
+            + "\n"
+            + "    public int loop(int n) {\n"
+            + "        int sum = 0;\n"
+            + "        for (int i = 0; i < n; i++) {\n"
+            + "            sum += i;\n"
+            + "        }\n"
+            + "        return sum;\n"
+            + "    }\n"
+            + "}\n";
+
+    private List<CFGBasicBlock> buildCFGs() throws Exception {
+        final JavaProjectOptions options = newJavaProjectOptions(Release.javaSE("1.7"), 4);
+        return new CFGBuilder(SOURCE, options).buildCFG(parse(SOURCE));
+    }
+
+    /** Finds the access to the variable which name is at the first position of the marker after the provided text. */
+    private VariableAccess find(DataFlowAnalysis analysis, String marker, String after) {
+        final int position = SOURCE.indexOf(marker, SOURCE.indexOf(after));
+        for (CFGBasicBlock block : analysis.getBlocks()) {
+            for (VariableAccess access : analysis.getVariables().getAccesses(block)) {
+                if (access.getName().getStartPosition() == position) {
+                    return access;
+                }
+            }
+        }
+        fail("No access found for " + marker);
+        return null;
+    }
+
+    private CFGBasicBlock getBlock(DataFlowAnalysis analysis, VariableAccess access) {
+        for (CFGBasicBlock block : analysis.getBlocks()) {
+            if (analysis.getVariables().getAccesses(block).contains(access)) {
+                return block;
+            }
+        }
+        fail("No block found for " + access);
+        return null;
+    }
+
+    private boolean isLiveAfter(LivenessAnalysis analysis, String marker) {
+        final VariableAccess access = find(analysis, marker, "");
+        return analysis.isLiveAfter(getBlock(analysis, access), access);
+    }
+
+    private List<VariableAccess> getReachingDefinitions(ReachingDefinitionsAnalysis analysis, String marker,
+            String after) {
+        final VariableAccess access = find(analysis, marker, after);
+        return analysis.getReachingDefinitions(getBlock(analysis, access), access);
+    }
+
+    private boolean isDefinitelyAssignedBefore(DefiniteAssignmentAnalysis analysis, String marker, String after) {
+        final VariableAccess access = find(analysis, marker, after);
+        return analysis.isDefinitelyAssignedBefore(getBlock(analysis, access), access);
+    }
+
+    @Test
+    public void testLiveness() throws Exception {
+        final LivenessAnalysis sample = new LivenessAnalysis(buildCFGs().get(0));
+        assertEquals(5, sample.getVariables().size());
+        assertTrue(isLiveAfter(sample, "a = p"));
+        assertFalse("the value written by this dead store is overwritten before being read",
+                isLiveAfter(sample, "b = 1"));
+        assertTrue(isLiveAfter(sample, "b = a + 1"));
+        assertTrue(isLiveAfter(sample, "d = 1"));
+        assertTrue(isLiveAfter(sample, "d = b"));
+
+        final LivenessAnalysis loop = new LivenessAnalysis(buildCFGs().get(1));
+        assertTrue("read by the compound assignment in the loop", isLiveAfter(loop, "sum = 0"));
+        assertTrue(isLiveAfter(loop, "i = 0"));
+        assertTrue(isLiveAfter(loop, "sum += i"));
+    }
+
+    @Test
+    public void testReachingDefinitions() throws Exception {
+        final ReachingDefinitionsAnalysis analysis = new ReachingDefinitionsAnalysis(buildCFGs().get(0));
+        assertEquals(2, getReachingDefinitions(analysis, "d;", "return").size());
+
+        final List<VariableAccess> definitions = getReachingDefinitions(analysis, "b;", "d = b");
+        assertEquals(1, definitions.size());
+        assertEquals(SOURCE.indexOf("b = a + 1"), definitions.get(0).getName().getStartPosition());
+    }
+
+    @Test
+    public void testDefiniteAssignment() throws Exception {
+        final DefiniteAssignmentAnalysis analysis = new DefiniteAssignmentAnalysis(buildCFGs().get(0));
+        assertTrue(isDefinitelyAssignedBefore(analysis, "d;", "return"));
+        assertFalse(isDefinitelyAssignedBefore(analysis, "d = 1", ""));
+    }
+}
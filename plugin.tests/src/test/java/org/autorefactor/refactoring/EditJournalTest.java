@@ -0,0 +1,133 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MoveSourceEdit;
+import org.eclipse.text.edits.MoveTargetEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.UndoEdit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EditJournalTest {
+    private static final String PATH = "/project/src/p/A.java";
+    private static final String CONFIGURATION = "SomeRule, javaSE=1.7";
+    private static final String SOURCE = "class A {\n    int i = 0;\n}\n";
+
+    @Test
+    public void testReplayAndRevert() throws Exception {
+        final EditJournal journal = recordRun();
+        final String refactored = "final class B {\n    int i;\n    // \\ done\n}\n";
+
+        assertTrue(journal.canReplay(PATH, CONFIGURATION, SOURCE));
+        assertFalse(journal.canReplay(PATH, "OtherRule, javaSE=1.7", SOURCE));
+        assertFalse(journal.canReplay(PATH, CONFIGURATION, SOURCE + " "));
+        assertEquals(refactored, journal.replay(PATH, SOURCE));
+        assertEquals(SOURCE, journal.revert(PATH, refactored));
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        final StringWriter writer = new StringWriter();
+        recordRun().write(writer);
+
+        final EditJournal journal = new EditJournal();
+        journal.read(new StringReader(writer.toString()));
+        assertEquals(Arrays.asList(PATH), journal.getPaths());
+        assertEquals(2, journal.getPasses(PATH).size());
+        assertEquals(Arrays.asList("RuleA", "RuleB"), journal.getPasses(PATH).get(0).getRules());
+        assertEquals(recordRun().replay(PATH, SOURCE), journal.replay(PATH, SOURCE));
+
+        final StringWriter writer2 = new StringWriter();
+        journal.write(writer2);
+        assertEquals(writer.toString(), writer2.toString());
+    }
+
+    @Test
+    public void testIncompleteRecordsAreNotReplayed() throws Exception {
+        final EditJournal journal = new EditJournal();
+        journal.startFile(PATH, CONFIGURATION, SOURCE);
+        assertFalse(journal.canReplay(PATH, CONFIGURATION, SOURCE));
+
+        final StringWriter writer = new StringWriter();
+        journal.write(writer);
+        final EditJournal readJournal = new EditJournal();
+        readJournal.read(new StringReader(writer.toString()));
+        assertTrue(readJournal.getPaths().isEmpty());
+    }
+
+    @Test
+    public void testMoveEdits() throws Exception {
+        final EditJournal journal = new EditJournal();
+        final IDocument document = new Document(SOURCE);
+        journal.startFile(PATH, CONFIGURATION, document.get());
+
+        final MultiTextEdit pass = new MultiTextEdit();
+        final MoveSourceEdit source = new MoveSourceEdit(SOURCE.indexOf("int"), "int i = 0;".length());
+        pass.addChild(source);
+        pass.addChild(new MoveTargetEdit(SOURCE.indexOf('{') + 1, source));
+        record(journal, document, pass, "RuleA");
+        journal.endFile(PATH, document.get());
+
+        assertEquals(document.get(), journal.replay(PATH, SOURCE));
+        assertEquals(SOURCE, journal.revert(PATH, document.get()));
+    }
+
+    private EditJournal recordRun() throws Exception {
+        final EditJournal journal = new EditJournal();
+        final IDocument document = new Document(SOURCE);
+        journal.startFile(PATH, CONFIGURATION, document.get());
+
+        final MultiTextEdit pass1 = new MultiTextEdit();
+        pass1.addChild(new InsertEdit(0, "final "));
+        pass1.addChild(new ReplaceEdit(6, 1, "B"));
+        pass1.addChild(new DeleteEdit(19, 4));
+        record(journal, document, pass1, "RuleA", "RuleB");
+
+        final MultiTextEdit pass2 = new MultiTextEdit();
+        pass2.addChild(new InsertEdit(document.get().lastIndexOf('}'), "    // \\ done\n"));
+        record(journal, document, pass2, "RuleC");
+
+        journal.endFile(PATH, document.get());
+        return journal;
+    }
+
+    private void record(EditJournal journal, IDocument document, MultiTextEdit edits, String... rules)
+            throws Exception {
+        final UndoEdit undo = edits.apply(document);
+        journal.recordPass(PATH, Arrays.asList(rules), undo, document.get());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LineRangesTest {
+
+    @Test
+    public void testAddMergesOverlappingAndAdjacentRanges() throws Exception {
+        final LineRanges ranges = new LineRanges();
+        assertTrue(ranges.isEmpty());
+        ranges.add(10, 12);
+        ranges.add(20, 20);
+        ranges.add(13, 15);
+        ranges.add(1, 3);
+        ranges.add(2, 5);
+        assertEquals("1-5,10-15,20-20", ranges.toString());
+        ranges.add(4, 21);
+        assertEquals("1-21", ranges.toString());
+    }
+
+    @Test
+    public void testIntersects() throws Exception {
+        final LineRanges ranges = new LineRanges();
+        ranges.add(10, 12);
+        ranges.add(20, 25);
+        assertFalse(ranges.intersects(1, 9));
+        assertTrue(ranges.intersects(1, 10));
+        assertTrue(ranges.intersects(11, 11));
+        assertFalse(ranges.intersects(13, 19));
+        assertTrue(ranges.intersects(13, 30));
+        assertTrue(ranges.contains(25));
+        assertFalse(ranges.contains(26));
+    }
+
+    @Test
+    public void testOfChangedLines() throws Exception {
+        assertEquals("", LineRanges.ofChangedLines("a\nb\nc", "a\nb\nc").toString());
+        assertEquals("2-2", LineRanges.ofChangedLines("a\nb\nc", "a\nB\nc").toString());
+        assertEquals("2-3", LineRanges.ofChangedLines("a\nb\nc", "a\nX\nY\nc").toString());
+        // deleted lines
+        assertEquals("2-2", LineRanges.ofChangedLines("a\nb\nc\nd", "a\nd").toString());
+        assertEquals("2-2", LineRanges.ofChangedLines("a\nb\nc", "a\nb").toString());
+        // line delimiters do not matter
+        assertEquals("3-3", LineRanges.ofChangedLines("a\r\nb\r\nc", "a\nb\nC").toString());
+    }
+
+    @Test
+    public void testPositionsFollowDocumentChanges() throws Exception {
+        final IDocument document = new Document("a\nb\nc\nd\ne\n");
+        final LineRanges ranges = new LineRanges();
+        ranges.add(2, 2);
+        ranges.add(4, 5);
+        final List<Position> positions = ranges.toPositions(document);
+        for (Position position : positions) {
+            document.addPosition(position);
+        }
+        assertEquals("2-2,4-5", LineRanges.fromPositions(document, positions).toString());
+
+        // insert two lines before the second range
+        document.replace(document.getLineOffset(2), 0, "x\ny\n");
+        assertEquals("2-2,6-7", LineRanges.fromPositions(document, positions).toString());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.List;
+
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.junit.Test;
+
+import static org.autorefactor.test.TestHelper.*;
+import static org.junit.Assert.*;
+
+public class RefactoringsTest {
+
+    private static final String SOURCE = "package org.autorefactor.refactoring;\n"
+            + "public class RefactoringsTestSample {\n"
+            + "    void m(int y) {\n"
+            + "        int x = 0;\n"
+            + "        x = 5;\n"
+            + "        System.out.println(x);\n"
+            + "        y = 1;\n"
+            + "        System.out.println(y);\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void testVisitPartlyOutsideLineRangesIsDiscarded() throws Exception {
+        final String output = applyTo(lines(4, 4));
+        assertEquals(SOURCE, output);
+    }
+
+    @Test
+    public void testVisitsAreKeptOrDiscardedIndependently() throws Exception {
+        final String output = applyTo(lines(8, 8));
+        assertTrue(output, output.contains("int x = 0;"));
+        assertTrue(output, output.contains("x = 5;"));
+        assertFalse(output, output.contains("println(y)"));
+    }
+
+    @Test
+    public void testVisitInsideLineRangesIsApplied() throws Exception {
+        final LineRanges lineRanges = lines(4, 5);
+        lineRanges.add(8, 8);
+        final String output = applyTo(lineRanges);
+        assertFalse(output, output.contains("int x = 0;"));
+        assertFalse(output, output.contains("x = 5;"));
+        assertFalse(output, output.contains("println(y)"));
+    }
+
+    private LineRanges lines(int startLine, int endLine) {
+        final LineRanges lineRanges = new LineRanges();
+        lineRanges.add(startLine, endLine);
+        return lineRanges;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String applyTo(LineRanges lineRanges) throws Exception {
+        final CompilationUnit astRoot = parse(SOURCE);
+        final TypeDeclaration type = (TypeDeclaration) astRoot.types().get(0);
+        final List<Statement> stmts = type.getMethods()[0].getBody().statements();
+
+        final Refactorings refactorings = new Refactorings(astRoot);
+        // one visit removing a variable and its assignment, like a dead store removal
+        refactorings.startVisit();
+        refactorings.remove(stmts.get(0));
+        refactorings.remove(stmts.get(1));
+        refactorings.startVisit();
+        refactorings.remove(stmts.get(4));
+
+        final IDocument document = new Document(SOURCE);
+        refactorings.applyTo(document, lineRanges);
+        return document.get();
+    }
+}
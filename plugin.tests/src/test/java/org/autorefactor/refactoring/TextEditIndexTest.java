@@ -0,0 +1,101 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextEditIndexTest {
+
+    @Test
+    public void testOverlapsWith() throws Exception {
+        final MultiTextEdit edits = new MultiTextEdit();
+        edits.addChild(new ReplaceEdit(10, 5, "a"));
+        edits.addChild(new DeleteEdit(30, 10));
+        final MultiTextEdit nested = new MultiTextEdit();
+        nested.addChild(new InsertEdit(50, "b"));
+        edits.addChild(nested);
+
+        final TextEditIndex index = new TextEditIndex(edits);
+        assertFalse(index.overlapsWith(new InsertEdit(0, "x")));
+        assertFalse(index.overlapsWith(new DeleteEdit(16, 13)));
+        assertFalse(index.overlapsWith(new InsertEdit(45, "x")));
+        assertFalse(index.overlapsWith(new InsertEdit(60, "x")));
+        // touching ranges are considered overlapping
+        assertTrue(index.overlapsWith(new DeleteEdit(5, 5)));
+        assertTrue(index.overlapsWith(new InsertEdit(15, "x")));
+        assertTrue(index.overlapsWith(new DeleteEdit(12, 1)));
+        assertTrue(index.overlapsWith(new DeleteEdit(20, 40)));
+        assertTrue(index.overlapsWith(new InsertEdit(50, "x")));
+    }
+
+    @Test
+    public void testOverlapsWithEmptyIndex() throws Exception {
+        final TextEditIndex index = new TextEditIndex(new MultiTextEdit());
+        assertFalse(index.overlapsWith(new DeleteEdit(0, 10)));
+    }
+
+    @Test
+    public void testSortAndMergeAdjacentEdits() throws Exception {
+        final List<TextEdit> edits = Arrays.<TextEdit> asList(
+                new DeleteEdit(6, 2),
+                new ReplaceEdit(2, 2, "CD"),
+                new InsertEdit(0, "_"),
+                new DeleteEdit(4, 2),
+                new InsertEdit(0, "-"));
+
+        final List<TextEdit> merged = TextEditIndex.sortAndMergeAdjacentEdits(edits);
+        assertEquals(2, merged.size());
+        assertEquals(0, merged.get(0).getOffset());
+        assertEquals(0, merged.get(0).getLength());
+        assertEquals(2, merged.get(1).getOffset());
+        assertEquals(6, merged.get(1).getLength());
+
+        assertEquals(apply("abcdefghij", edits), apply("abcdefghij", merged));
+        assertEquals("_-abCDij", apply("abcdefghij", merged));
+    }
+
+    private String apply(String source, List<TextEdit> edits) throws Exception {
+        final MultiTextEdit root = new MultiTextEdit();
+        for (TextEdit edit : edits) {
+            root.addChild(edit.copy());
+        }
+        final IDocument document = new Document(source);
+        root.apply(document);
+        return document.get();
+    }
+}
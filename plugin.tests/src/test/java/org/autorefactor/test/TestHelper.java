@@ -29,19 +29,29 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.autorefactor.AutoRefactorPlugin;
 import org.autorefactor.refactoring.JavaProjectOptions;
 import org.autorefactor.refactoring.Release;
 import org.autorefactor.refactoring.rules.EndsWithFileFilter;
+import org.autorefactor.refactoring.rules.JavaCoreHelper;
+import org.autorefactor.ui.ApplyRefactoringsJob;
 import org.autorefactor.ui.JavaProjectOptionsImpl;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.formatter.CodeFormatter;
 import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
 import org.eclipse.jface.text.BadLocationException;
@@ -100,6 +110,28 @@ public final class TestHelper {
         return options;
     }
 
+    /**
+     * Parses the provided source with bindings, like the refactorings do.
+     * The source is first saved to the test project, in a compilation unit named after its first class.
+     */
+    public static CompilationUnit parse(String source) throws Exception {
+        final Matcher packageMatcher = Pattern.compile("package\\s+([\\w.]+)\\s*;").matcher(source);
+        final Matcher classMatcher = Pattern.compile("class\\s+(\\w+)").matcher(source);
+        if (!packageMatcher.find() || !classMatcher.find()) {
+            throw new IllegalArgumentException("Expected a package and a class in the source: " + source);
+        }
+        final IPackageFragment packageFragment = JavaCoreHelper.getPackageFragment(packageMatcher.group(1));
+        final ICompilationUnit cu = packageFragment.createCompilationUnit(
+                classMatcher.group(1) + ".java", source, true, null);
+
+        final ASTParser parser = ASTParser.newParser(AST.JLS4);
+        final Method m = ApplyRefactoringsJob.class.getDeclaredMethod(
+                "resetParser", ICompilationUnit.class, ASTParser.class, JavaProjectOptions.class);
+        m.setAccessible(true);
+        m.invoke(null, cu, parser, newJavaProjectOptions(Release.javaSE("1.7"), 4));
+        return (CompilationUnit) parser.createAST(null);
+    }
+
     public static String normalizeJavaSourceCode(String source) {
         final CodeFormatter codeFormatter = createCodeFormatter(getJava7Options());
 
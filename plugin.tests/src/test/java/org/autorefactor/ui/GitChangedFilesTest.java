@@ -0,0 +1,73 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.autorefactor.refactoring.LineRanges;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GitChangedFilesTest {
+
+    @Test
+    public void testParseUnifiedDiff() throws Exception {
+        final String diff = ""
+            + "diff --git a/src/A.java b/src/A.java\n"
+            + "index 9405325..e6ac6c6 100644\n"
+            + "--- a/src/A.java\n"
+            + "+++ b/src/A.java\n"
+            + "@@ -2 +2 @@ a\n"
+            + "-b\n"
+            + "+B\n"
+            + "@@ -4 +3,0 @@ c\n"
+            + "-d\n"
+            + "@@ -5,0 +5,2 @@ e\n"
+            + "+f\n"
+            + "+g\n"
+            + "diff --git a/src/B.java b/src/B.java\n"
+            + "deleted file mode 100644\n"
+            + "index 587be6b..0000000\n"
+            + "--- a/src/B.java\n"
+            + "+++ /dev/null\n"
+            + "@@ -1 +0,0 @@\n"
+            + "-x\n"
+            + "diff --git a/src/C.java b/src/C.java\n"
+            + "new file mode 100644\n"
+            + "--- /dev/null\n"
+            + "+++ b/src/C.java\n"
+            + "@@ -0,0 +1,3 @@\n"
+            + "+n\n";
+        final Map<String, LineRanges> results =
+                GitChangedFiles.parseUnifiedDiff(new BufferedReader(new StringReader(diff)));
+        assertEquals(2, results.size());
+        assertEquals("2-3,5-6", results.get("src/A.java").toString());
+        assertEquals("1-3", results.get("src/C.java").toString());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Merges the maximal runs of straight-line basic blocks of a CFG into single basic blocks.
+ * <p>
+ * {@link CFGBuilder} starts a new basic block after each statement which might throw,
+ * so straight-line code ends up with nearly one basic block per statement.
+ * Here, a block is merged with its successor when it is the only way to reach it,
+ * and the successor is its only way out: the merged block then represents all their statements in order.
+ * Entry, exit and decision blocks are never merged, so the shape of the conditional code is preserved.
+ */
+public final class BasicBlockCoalescer {
+    private BasicBlockCoalescer() {
+        // hide utility class ctor
+    }
+
+    /**
+     * Coalesces the basic blocks of the CFG starting at the provided entry block.
+     * The CFG is modified in place.
+     *
+     * @param entryBlock the entry block of the CFG to coalesce
+     * @return the number of basic blocks removed from the CFG
+     */
+    public static int coalesce(CFGBasicBlock entryBlock) {
+        int nbRemovedBlocks = 0;
+        final Set<CFGBasicBlock> seen =
+                Collections.newSetFromMap(new IdentityHashMap<CFGBasicBlock, Boolean>());
+        final LinkedList<CFGBasicBlock> toVisit = new LinkedList<CFGBasicBlock>();
+        seen.add(entryBlock);
+        toVisit.add(entryBlock);
+        while (!toVisit.isEmpty()) {
+            final CFGBasicBlock block = toVisit.removeFirst();
+            CFGEdge edge;
+            while ((edge = getMergeableEdge(block)) != null) {
+                block.absorb(edge);
+                nbRemovedBlocks++;
+            }
+            for (Object edgeOrAccess : block.getOutgoingEdgesAndVariableAccesses()) {
+                if (edgeOrAccess instanceof CFGEdge) {
+                    final CFGBasicBlock target = ((CFGEdge) edgeOrAccess).getTargetBlock();
+                    if (seen.add(target)) {
+                        toVisit.add(target);
+                    }
+                }
+            }
+        }
+        return nbRemovedBlocks;
+    }
+
+    /**
+     * Returns the outgoing edge to the block which can be merged into the provided block,
+     * or null if there is none.
+     */
+    private static CFGEdge getMergeableEdge(CFGBasicBlock block) {
+        if (!canBeMerged(block)) {
+            return null;
+        }
+        CFGEdge result = null;
+        for (Object edgeOrAccess : block.getOutgoingEdgesAndVariableAccesses()) {
+            if (edgeOrAccess instanceof CFGEdge) {
+                if (result != null) {
+                    return null;
+                }
+                result = (CFGEdge) edgeOrAccess;
+            }
+        }
+        if (result == null || result.getCondition() != null) {
+            return null;
+        }
+        final CFGBasicBlock successor = result.getTargetBlock();
+        if (successor == block
+                || !canBeMerged(successor)
+                || successor.getIncomingEdges().size() != 1) {
+            return null;
+        }
+        return result;
+    }
+
+    private static boolean canBeMerged(CFGBasicBlock block) {
+        return !block.isEntryBlock() && !block.isExitBlock() && !block.isDecision();
+    }
+}
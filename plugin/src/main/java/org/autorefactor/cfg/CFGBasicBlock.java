@@ -25,8 +25,11 @@
  */
 package org.autorefactor.cfg;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 
 import org.autorefactor.util.IllegalArgumentException;
 import org.eclipse.jdt.core.dom.ASTNode;
@@ -48,8 +51,11 @@ import static org.autorefactor.util.Utils.*;
 public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
 
     private final ASTNode node;
+    /** The nodes of this block in execution order, starting with {@link #node}. */
+    private final List<ASTNode> nodes = new ArrayList<ASTNode>(1);
     private final String fileName;
-    private final String codeExcerpt;
+    /** Lazily computed from the node when not provided, since most code excerpts are never displayed. */
+    private String codeExcerpt;
     private final boolean isDecision;
     /** true means entry block, false means exit block, null means neither entry nor exit block. */
     private final Boolean isEntryBlock;
@@ -60,6 +66,9 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
     private CFGBasicBlock(ASTNode node, String fileName, String codeExcerpt, boolean isDecision, Boolean isEntryBlock,
             LineAndColumn lineAndColumn) {
         this.node = node;
+        if (node != null) {
+            this.nodes.add(node);
+        }
         this.fileName = fileName;
         this.codeExcerpt = codeExcerpt;
         this.isDecision = isDecision;
@@ -72,7 +81,7 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
      *
      * @param node the AST node that led to the creation of this block
      * @param fileName the file name where this block is coming from
-     * @param codeExcerpt a code excerpt to display for this block
+     * @param codeExcerpt a code excerpt to display for this block, or null to compute it from the node when needed
      * @param isDecision whether this block is a decision block
      * @param lineAndColumn the line and column information for this block
      */
@@ -86,7 +95,7 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
      *
      * @param node the AST node that led to the creation of this entry block
      * @param fileName the file name where this entry block is coming from
-     * @param codeExcerpt a code excerpt to display for this block
+     * @param codeExcerpt a code excerpt to display for this block, or null to compute it from the node when needed
      * @return a new entry block
      */
     public static CFGBasicBlock buildEntryBlock(ASTNode node, String fileName, String codeExcerpt) {
@@ -98,7 +107,7 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
      *
      * @param node the AST node that led to the creation of this exit block
      * @param fileName the file name where this exit block is coming from
-     * @param codeExcerpt a code excerpt to display for this block
+     * @param codeExcerpt a code excerpt to display for this block, or null to compute it from the node when needed
      * @param lineAndColumn the line and column information for this exit block
      * @return a new exit block
      */
@@ -107,6 +116,22 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
         return new CFGBasicBlock(node, fileName, codeExcerpt, false, false, lineAndColumn);
     }
 
+    /**
+     * Returns a copy of this block, without any edges nor variable accesses, for the provided nodes.
+     *
+     * @param nodes the AST nodes represented by the copy
+     * @param lineAndColumn the line and column information of the copy
+     * @return a copy of this block
+     */
+    CFGBasicBlock copy(List<ASTNode> nodes, LineAndColumn lineAndColumn) {
+        final CFGBasicBlock result = new CFGBasicBlock(
+                nodes.isEmpty() ? null : nodes.get(0), fileName, codeExcerpt, isDecision, isEntryBlock, lineAndColumn);
+        for (int i = 1; i < nodes.size(); i++) {
+            result.addNode(nodes.get(i));
+        }
+        return result;
+    }
+
     /**
      * Returns the line and column information of this block.
      *
@@ -125,6 +150,73 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
         return node;
     }
 
+    /**
+     * Returns the AST nodes represented by this basic block, in execution order.
+     * The first node is the one returned by {@link #getNode()}.
+     *
+     * @return the AST nodes represented by this basic block
+     */
+    public List<ASTNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Adds a node executed after the nodes already represented by this basic block.
+     *
+     * @param node the node to add to this basic block
+     */
+    void addNode(ASTNode node) {
+        if (nodes.isEmpty() || nodes.get(nodes.size() - 1) != node) {
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Merges the target block of the provided outgoing edge into this basic block.
+     * <p>
+     * The nodes, variable accesses and outgoing edges of the target block are appended to this block,
+     * replacing the provided edge. The target block must not be reachable otherwise,
+     * and it must not be used anymore after this call.
+     *
+     * @param edge the outgoing edge from this basic block to the block to merge into this basic block
+     */
+    void absorb(CFGEdge edge) {
+        final CFGBasicBlock successor = edge.getTargetBlock();
+        if (edge.getSourceBlock() != this || successor.incomingEdges.size() != 1) {
+            throw new IllegalArgumentException(null,
+                    "Error: only a block reachable only from the current block can be merged into it: " + edge);
+        }
+        removeSame(outgoingEdgesAndVariableAccesses, edge);
+        for (ASTNode successorNode : successor.nodes) {
+            addNode(successorNode);
+        }
+        for (Object edgeOrAccess : successor.outgoingEdgesAndVariableAccesses) {
+            if (edgeOrAccess instanceof CFGEdge) {
+                final CFGEdge successorEdge = (CFGEdge) edgeOrAccess;
+                final CFGBasicBlock target = successorEdge.getTargetBlock();
+                removeSame(target.incomingEdges, successorEdge);
+                final CFGEdge newEdge = new CFGEdge(successorEdge.getCondition(),
+                        successorEdge.getEvaluationResult(), this, target);
+                outgoingEdgesAndVariableAccesses.add(newEdge);
+                target.incomingEdges.add(newEdge);
+            } else {
+                outgoingEdgesAndVariableAccesses.add(edgeOrAccess);
+            }
+        }
+        successor.incomingEdges.clear();
+        successor.outgoingEdgesAndVariableAccesses.clear();
+    }
+
+    /** Removes the provided object, compared by identity, since {@link CFGEdge#equals(Object)} is structural. */
+    private static void removeSame(Collection<?> col, Object toRemove) {
+        for (Iterator<?> iter = col.iterator(); iter.hasNext();) {
+            if (iter.next() == toRemove) {
+                iter.remove();
+                return;
+            }
+        }
+    }
+
     /**
      * Returns whether this block is a decision block.
      *
@@ -161,6 +253,15 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
         return outgoingEdgesAndVariableAccesses;
     }
 
+    /**
+     * Returns the incoming edges of this basic block.
+     *
+     * @return the incoming edges of this basic block
+     */
+    Collection<CFGEdge> getIncomingEdges() {
+        return incomingEdges;
+    }
+
     /**
      * Adds an incoming edge to this basic block.
      *
@@ -249,6 +350,9 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
      * @return a code excerpt for this basic block
      */
     public String getCodeExcerpt() {
+        if (codeExcerpt == null && node != null) {
+            codeExcerpt = ASTPrintHelper.codeExcerpt(node);
+        }
         return codeExcerpt;
     }
 
@@ -288,7 +392,7 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
      * @return the provided string builder
      */
     StringBuilder appendDotNodeLabel(StringBuilder sb) {
-        sb.append(this.codeExcerpt).append("\\n(");
+        sb.append(getCodeExcerpt()).append("\\n(");
         LineAndColumn lal = this.lineAndColumn;
         sb.append(lal.getLine()).append(",").append(lal.getColumn()).append(")");
         return sb;
@@ -302,7 +406,7 @@ public class CFGBasicBlock implements Comparable<CFGBasicBlock> {
     }
 
     private void toString(final StringBuilder sb) {
-        if (this.codeExcerpt == null) {
+        if (getCodeExcerpt() == null) {
             return;
         }
         appendDotNodeLabel(sb);
@@ -25,7 +25,6 @@
  */
 package org.autorefactor.cfg;
 
-import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -44,7 +43,6 @@ import org.autorefactor.refactoring.JavaProjectOptions;
 import org.autorefactor.refactoring.TypeNameDecider;
 import org.autorefactor.util.IllegalStateException;
 import org.autorefactor.util.NotImplementedException;
-import org.autorefactor.util.UnhandledException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
@@ -223,6 +221,11 @@ public class CFGBuilder {
 
     private final String source;
     private final int tabSize;
+    /**
+     * Whether runtime exceptions which are not declared, like {@link NullPointerException},
+     * end the current basic block.
+     */
+    private final boolean implicitExceptions;
     /**
      * Edges to be built after visiting the statement used as the key.
      * <p>
@@ -255,8 +258,26 @@ public class CFGBuilder {
      * @param options the Java project options used to compile the project
      */
     public CFGBuilder(String source, JavaProjectOptions options) {
+        this(source, options, true);
+    }
+
+    /**
+     * Builds an instance of this class.
+     * <p>
+     * Not modeling implicit exceptions only ends basic blocks after the exceptions declared by invoked methods.
+     * Straight-line code then produces far fewer blocks,
+     * and even fewer after {@link BasicBlockCoalescer#coalesce(CFGBasicBlock)}.
+     *
+     * @param source the java source code to work from
+     * @param options the Java project options used to compile the project
+     * @param implicitExceptions whether runtime exceptions which are not declared,
+     *        like {@link NullPointerException} or {@link ArrayIndexOutOfBoundsException},
+     *        end the current basic block
+     */
+    public CFGBuilder(String source, JavaProjectOptions options, boolean implicitExceptions) {
         this.source = source;
         this.tabSize = options.getTabSize();
+        this.implicitExceptions = implicitExceptions;
     }
 
     /**
@@ -271,10 +292,10 @@ public class CFGBuilder {
         switch (node.getNodeType()) {
         case ARRAY_ACCESS:
             ArrayAccess aa = (ArrayAccess) node;
-            addVariableAccess(basicBlock, aa.getArray(), flags, throwers);
-            addVariableAccess(basicBlock, aa.getIndex(), flags, throwers);
+            boolean aaMightThrow1 = addVariableAccess(basicBlock, aa.getArray(), flags, throwers);
+            boolean aaMightThrow2 = addVariableAccess(basicBlock, aa.getIndex(), flags, throwers);
             throwers.addThrow(aa, newException(node, "java.lang.ArrayIndexOutOfBoundsException"));
-            return true;
+            return aaMightThrow1 || aaMightThrow2 || implicitExceptions;
         case ARRAY_CREATION:
             ArrayCreation ac = (ArrayCreation) node;
             boolean acMightThrow1 = addVariableAccess(basicBlock, ac.getInitializer(), flags, throwers);
@@ -322,14 +343,15 @@ public class CFGBuilder {
             basicBlock.addVariableAccess(new VariableAccess(fa, flags));
             if (is(flags, READ)) {
                 throwers.addThrow(fa, newException(node, "java.lang.NullPointerException"));
-                mightThrow = true;
+                mightThrow |= implicitExceptions;
             }
             return mightThrow;
         case INFIX_EXPRESSION:
             InfixExpression ie = (InfixExpression) node;
             boolean ieMightThrow1 = addVariableAccess(basicBlock, ie.getLeftOperand(), flags, throwers);
             boolean ieMightThrow2 = addVariableAccess(basicBlock, ie.getRightOperand(), flags, throwers);
-            return ieMightThrow1 || ieMightThrow2;
+            boolean ieMightThrow3 = addVariableAccesses(basicBlock, extendedOperands(ie), flags, throwers);
+            return ieMightThrow1 || ieMightThrow2 || ieMightThrow3;
         case INSTANCEOF_EXPRESSION:
             InstanceofExpression ioe = (InstanceofExpression) node;
             return addVariableAccess(basicBlock, ioe.getLeftOperand(), flags, throwers);
@@ -349,14 +371,14 @@ public class CFGBuilder {
             basicBlock.addVariableAccess(new VariableAccess(sn, flags));
             if (is(flags, READ)) {
                 throwers.addThrow(sn, newException(node, "java.lang.NullPointerException"));
-                return true;
+                return implicitExceptions;
             }
             return false;
         case QUALIFIED_NAME:
             QualifiedName qn = (QualifiedName) node;
             basicBlock.addVariableAccess(new VariableAccess(qn, flags));
             throwers.addThrow(qn, newException(node, "java.lang.NullPointerException"));
-            return true;
+            return implicitExceptions;
         case PARENTHESIZED_EXPRESSION:
             ParenthesizedExpression pe = (ParenthesizedExpression) node;
             return addVariableAccess(basicBlock, pe.getExpression(), flags, throwers);
@@ -467,12 +489,49 @@ public class CFGBuilder {
         if (node == null) {
             return state.nextStmtWillCreateNewBlock();
         }
-        try {
-            final Method m = getClass().getMethod(
-                    "buildCFG", node.getClass(), LivenessState.class, ThrowerBlocks.class);
-            return (LivenessState) m.invoke(this, node, state, throwers);
-        } catch (Exception e) {
-            throw new UnhandledException(node, e);
+        switch (node.getNodeType()) {
+        case ASSERT_STATEMENT:
+            return buildCFG((AssertStatement) node, state, throwers);
+        case BLOCK:
+            return buildCFG((Block) node, state, throwers);
+        case BREAK_STATEMENT:
+            return buildCFG((BreakStatement) node, state, throwers);
+        case CONSTRUCTOR_INVOCATION:
+            return buildCFG((ConstructorInvocation) node, state, throwers);
+        case CONTINUE_STATEMENT:
+            return buildCFG((ContinueStatement) node, state, throwers);
+        case DO_STATEMENT:
+            return buildCFG((DoStatement) node, state, throwers);
+        case EMPTY_STATEMENT:
+            return buildCFG((EmptyStatement) node, state, throwers);
+        case ENHANCED_FOR_STATEMENT:
+            return buildCFG((EnhancedForStatement) node, state, throwers);
+        case EXPRESSION_STATEMENT:
+            return buildCFG((ExpressionStatement) node, state, throwers);
+        case FOR_STATEMENT:
+            return buildCFG((ForStatement) node, state, throwers);
+        case IF_STATEMENT:
+            return buildCFG((IfStatement) node, state, throwers);
+        case LABELED_STATEMENT:
+            return buildCFG((LabeledStatement) node, state, throwers);
+        case RETURN_STATEMENT:
+            return buildCFG((ReturnStatement) node, state, throwers);
+        case SUPER_CONSTRUCTOR_INVOCATION:
+            return buildCFG((SuperConstructorInvocation) node, state, throwers);
+        case SWITCH_STATEMENT:
+            return buildCFG((SwitchStatement) node, state, throwers);
+        case SYNCHRONIZED_STATEMENT:
+            return buildCFG((SynchronizedStatement) node, state, throwers);
+        case THROW_STATEMENT:
+            return buildCFG((ThrowStatement) node, state, throwers);
+        case TRY_STATEMENT:
+            return buildCFG((TryStatement) node, state, throwers);
+        case VARIABLE_DECLARATION_STATEMENT:
+            return buildCFG((VariableDeclarationStatement) node, state, throwers);
+        case WHILE_STATEMENT:
+            return buildCFG((WhileStatement) node, state, throwers);
+        default:
+            throw new NotImplementedException(node);
         }
     }
 
@@ -1192,76 +1251,12 @@ public class CFGBuilder {
     private LivenessState buildCFG(List<Statement> stmts, final LivenessState startState, ThrowerBlocks throwers) {
         LivenessState liveState = startState;
         for (Statement stmt : stmts) {
-            switch (stmt.getNodeType()) {
-            case ASSERT_STATEMENT:
-                liveState = buildCFG((AssertStatement) stmt, liveState, throwers);
-                break;
-            case BLOCK:
-                liveState = buildCFG((Block) stmt, liveState, throwers);
-                break;
-            case BREAK_STATEMENT:
-                liveState = buildCFG((BreakStatement) stmt, liveState, throwers);
-                break;
-            case CONSTRUCTOR_INVOCATION:
-                liveState = buildCFG(stmt, liveState, throwers);
-                break;
-            case CONTINUE_STATEMENT:
-                liveState = buildCFG((ContinueStatement) stmt, liveState, throwers);
-                break;
-            case DO_STATEMENT:
-                liveState = buildCFG((DoStatement) stmt, liveState, throwers);
-                break;
-            case EMPTY_STATEMENT:
-                liveState = buildCFG((EmptyStatement) stmt, liveState, throwers);
-                break;
-            case ENHANCED_FOR_STATEMENT:
-                liveState = buildCFG((EnhancedForStatement) stmt, liveState, throwers);
-                break;
-            case EXPRESSION_STATEMENT:
-                liveState = buildCFG((ExpressionStatement) stmt, liveState, throwers);
-                break;
-            case FOR_STATEMENT:
-                liveState = buildCFG((ForStatement) stmt, liveState, throwers);
-                break;
-            case IF_STATEMENT:
-                liveState = buildCFG((IfStatement) stmt, liveState, throwers);
-                break;
-            case LABELED_STATEMENT:
-                liveState = buildCFG((LabeledStatement) stmt, liveState, throwers);
-                break;
-            case RETURN_STATEMENT:
-                liveState = buildCFG((ReturnStatement) stmt, liveState, throwers);
-                break;
-            case SUPER_CONSTRUCTOR_INVOCATION:
-                liveState = buildCFG(stmt, liveState, throwers);
-                break;
-            case SWITCH_CASE:
+            if (stmt.getNodeType() == SWITCH_CASE) {
                 // Here, use startState.liveBasicBlock to build an edge
                 // from the switch condition to the case statement
                 liveState = buildCFG((SwitchCase) stmt, startState.liveBasicBlock, liveState, throwers);
-                break;
-            case SWITCH_STATEMENT:
-                liveState = buildCFG((SwitchStatement) stmt, liveState, throwers);
-                break;
-            case SYNCHRONIZED_STATEMENT:
-                liveState = buildCFG((SynchronizedStatement) stmt, liveState, throwers);
-                break;
-            case THROW_STATEMENT:
-                liveState = buildCFG((ThrowStatement) stmt, liveState, throwers);
-                break;
-            case TRY_STATEMENT:
-                liveState = buildCFG((TryStatement) stmt, liveState, throwers);
-                // break;case TYPE_DECLARATION_STATEMENT:
-                // buildCFG((TypeDeclarationStatement) stmt, liveState, throwers);
-                break;
-            case VARIABLE_DECLARATION_STATEMENT:
-                liveState = buildCFG((VariableDeclarationStatement) stmt, liveState, throwers);
-                break;
-            case WHILE_STATEMENT:
-                liveState = buildCFG((WhileStatement) stmt, liveState, throwers);
-                break;
-            default:
-                throw new NotImplementedException(stmt);
+            } else {
+                liveState = buildCFG(stmt, liveState, throwers);
             }
         }
         return liveState;
@@ -1552,6 +1547,8 @@ public class CFGBuilder {
         for (Expression expression : initializers(node)) {
             if (expression instanceof VariableDeclarationExpression) {
                 addDeclarations(initBlock, (VariableDeclarationExpression) expression, throwers);
+            } else {
+                addVariableAccess(initBlock, expression, WRITE, throwers);
             }
         }
         addVariableAccess(exprBlock, node.getExpression(), READ, throwers);
@@ -1628,14 +1625,13 @@ public class CFGBuilder {
         }
         if (!state.requireNewBlock()) {
             final CFGBasicBlock basicBlock = state.liveBasicBlock;
-            // TODO JNR add nodes to the basicBlock they belong to
-            // and adapt the CFGDotPrinter to display "..." after the first node
-            // basicBlock.addNode(node);
+            // TODO JNR adapt the CFGDotPrinter to display "..." after the first node
+            basicBlock.addNode(node);
             return basicBlock;
         }
         final LineAndColumn lineCol = getLineAndColumn(node);
         final CFGBasicBlock basicBlock = new CFGBasicBlock(node,
-                getFileName(node), codeExcerpt(node), isDecision, lineCol);
+                getFileName(node), null, isDecision, lineCol);
         buildEdges(state, basicBlock);
         return basicBlock;
     }
@@ -1646,6 +1642,9 @@ public class CFGBuilder {
             final LineAndColumn lineCol = getLineAndColumn(firstExpr.getStartPosition());
             final CFGBasicBlock basicBlock = new CFGBasicBlock(expressions.get(0),
                     getFileName(firstExpr), codeExcerpt(expressions), false, lineCol);
+            for (int i = 1; i < expressions.size(); i++) {
+                basicBlock.addNode(expressions.get(i));
+            }
             buildEdges(state, basicBlock);
             return basicBlock;
         }
@@ -1653,15 +1652,13 @@ public class CFGBuilder {
     }
 
     private CFGBasicBlock newEntryBlock(MethodDeclaration node) {
-        return CFGBasicBlock.buildEntryBlock(node, getFileName(node),
-                codeExcerpt(node));
+        return CFGBasicBlock.buildEntryBlock(node, getFileName(node), null);
     }
 
     private CFGBasicBlock newExitBlock(MethodDeclaration node) {
         final LineAndColumn lineCol = getLineAndColumn(node
                 .getStartPosition() + node.getLength());
-        return CFGBasicBlock.buildExitBlock(node, getFileName(node),
-                codeExcerpt(node), lineCol);
+        return CFGBasicBlock.buildExitBlock(node, getFileName(node), null, lineCol);
     }
 
     private LineAndColumn getLineAndColumn(ASTNode node) {
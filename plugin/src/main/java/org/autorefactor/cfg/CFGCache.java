@@ -0,0 +1,324 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.autorefactor.refactoring.FinderVisitor;
+import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.util.IllegalStateException;
+import org.autorefactor.util.NotImplementedException;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.Type;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.ASTNode.*;
+
+/**
+ * Caches the CFGs built for the method declarations of a compilation unit.
+ * <p>
+ * One instance is meant to be shared by all the refactoring rules of a pass,
+ * and across all the passes run on the same compilation unit:
+ * <ul>
+ * <li>within a pass, CFGs are looked up by method declaration identity,</li>
+ * <li>across passes, the AST is reparsed, so CFGs are looked up by the source of the method declaration.
+ * The CFG built during the previous pass for a method whose source did not change
+ * is copied and rebound to the nodes of the new AST rather than built again.</li>
+ * </ul>
+ * Only the CFGs of the current and previous passes are kept.
+ * The constant propagations computed on the CFGs are only kept for the current pass.
+ * <p>
+ * The cached CFGs do not model implicit exceptions and have their straight-line blocks coalesced,
+ * which keeps them small for the data flow analyses run by the refactoring rules.
+ * <p>
+ * Methods containing a try statement are always built again on a new pass,
+ * because the edges to their catch clauses depend on the exceptions declared by the invoked methods,
+ * which may have changed elsewhere in the compilation unit.
+ */
+public final class CFGCache {
+    /** A CFG built for a method declaration. */
+    private static final class CachedCFG {
+        private final MethodDeclaration method;
+        private final int startPosition;
+        private final int startLine;
+        private final CFGBasicBlock entryBlock;
+        private CompactCFG compactCFG;
+
+        private CachedCFG(MethodDeclaration method, int startPosition, CFGBasicBlock entryBlock) {
+            this.method = method;
+            this.startPosition = startPosition;
+            this.startLine = getLineNumber(method, startPosition);
+            this.entryBlock = entryBlock;
+        }
+    }
+
+    private final JavaProjectOptions options;
+    private final Map<MethodDeclaration, CachedCFG> cfgsByMethod = new IdentityHashMap<MethodDeclaration, CachedCFG>();
+    private Map<String, CachedCFG> cfgsBySource = new HashMap<String, CachedCFG>();
+    private Map<String, CachedCFG> previousCfgsBySource = new HashMap<String, CachedCFG>();
+    /** The constant propagation of each method declaration of the current pass, null when it cannot be computed. */
+    private final Map<MethodDeclaration, ConstantPropagation> constantPropagations =
+            new IdentityHashMap<MethodDeclaration, ConstantPropagation>();
+    private ASTNode currentRoot;
+    private CFGBuilder builder;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param options the Java project options used to compile the project
+     */
+    public CFGCache(JavaProjectOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Returns the entry block of the CFG of the provided method declaration, building it if needed.
+     *
+     * @param method the method declaration for which to return the CFG
+     * @param source the source of the compilation unit containing the method declaration
+     * @return the entry block of the CFG of the provided method declaration
+     */
+    public CFGBasicBlock getCFG(MethodDeclaration method, String source) {
+        return get(method, source).entryBlock;
+    }
+
+    /**
+     * Returns the compact CFG of the provided method declaration, building it if needed.
+     *
+     * @param method the method declaration for which to return the compact CFG
+     * @param source the source of the compilation unit containing the method declaration
+     * @return the compact CFG of the provided method declaration
+     */
+    public CompactCFG getCompactCFG(MethodDeclaration method, String source) {
+        final CachedCFG cached = get(method, source);
+        if (cached.compactCFG == null) {
+            cached.compactCFG = CompactCFG.of(cached.entryBlock, source);
+        }
+        return cached.compactCFG;
+    }
+
+    /**
+     * Returns the constant propagation of the provided method declaration, computing it if needed.
+     *
+     * @param method the method declaration for which to return the constant propagation
+     * @param source the source of the compilation unit containing the method declaration
+     * @return the constant propagation of the provided method declaration,
+     *         or null if it cannot be computed for this method declaration
+     */
+    public ConstantPropagation getConstantPropagation(MethodDeclaration method, String source) {
+        startPassIfNeeded(method.getRoot(), source);
+        if (constantPropagations.containsKey(method)) {
+            return constantPropagations.get(method);
+        }
+        ConstantPropagation result = null;
+        if (!new HasTryStatementVisitor().findOrDefault(method.getBody(), false)) {
+            // the CFG does not have edges from the try blocks to their catch clauses yet
+            try {
+                result = new ConstantPropagation(getCompactCFG(method, source));
+            } catch (NotImplementedException e) {
+                // the CFG builder does not support all the java constructs yet
+                result = null;
+            }
+        }
+        constantPropagations.put(method, result);
+        return result;
+    }
+
+    private CachedCFG get(MethodDeclaration method, String source) {
+        startPassIfNeeded(method.getRoot(), source);
+        CachedCFG cached = cfgsByMethod.get(method);
+        if (cached == null) {
+            // the key starts at the beginning of the line, so columns are the same when the sources are equal
+            final int startPosition = getStartOfLine(source, method.getStartPosition());
+            final String key = source.substring(startPosition, method.getStartPosition() + method.getLength());
+            final CachedCFG previous = previousCfgsBySource.get(key);
+            CFGBasicBlock entryBlock = null;
+            if (previous != null) {
+                entryBlock = rebind(previous, method, startPosition);
+            }
+            if (entryBlock == null) {
+                entryBlock = builder.buildCFG(method);
+                BasicBlockCoalescer.coalesce(entryBlock);
+            }
+            cached = new CachedCFG(method, startPosition, entryBlock);
+            cfgsByMethod.put(method, cached);
+            cfgsBySource.put(key, cached);
+        }
+        return cached;
+    }
+
+    private void startPassIfNeeded(ASTNode root, String source) {
+        if (root != currentRoot) {
+            currentRoot = root;
+            builder = new CFGBuilder(source, options, false);
+            previousCfgsBySource = cfgsBySource;
+            cfgsBySource = new HashMap<String, CachedCFG>();
+            cfgsByMethod.clear();
+            constantPropagations.clear();
+        }
+    }
+
+    private static int getStartOfLine(String source, int position) {
+        int i = position;
+        while (i > 0 && source.charAt(i - 1) != '\n' && source.charAt(i - 1) != '\r') {
+            i--;
+        }
+        return i;
+    }
+
+    private static int getLineNumber(MethodDeclaration method, int position) {
+        return ((CompilationUnit) method.getRoot()).getLineNumber(position);
+    }
+
+    /**
+     * Copies the CFG of a previous pass onto the provided method declaration, which has the same source.
+     *
+     * @return the entry block of the copied CFG,
+     *         or null if the CFG must be built again for the provided method declaration
+     */
+    private CFGBasicBlock rebind(CachedCFG previous, MethodDeclaration method, int startPosition) {
+        final Map<ASTNode, ASTNode> nodes = mapNodes(previous.method, method);
+        if (nodes == null) {
+            return null;
+        }
+        final int positionDelta = startPosition - previous.startPosition;
+        final int lineDelta = getLineNumber(method, startPosition) - previous.startLine;
+
+        final Map<CFGBasicBlock, CFGBasicBlock> blocks = new IdentityHashMap<CFGBasicBlock, CFGBasicBlock>();
+        final LinkedList<CFGBasicBlock> toCopy = new LinkedList<CFGBasicBlock>();
+        final CFGBasicBlock entryBlock = copy(previous.entryBlock, nodes, positionDelta, lineDelta, blocks, toCopy);
+        while (!toCopy.isEmpty()) {
+            final CFGBasicBlock block = toCopy.removeFirst();
+            final CFGBasicBlock blockCopy = blocks.get(block);
+            for (Object edgeOrAccess : block.getOutgoingEdgesAndVariableAccesses()) {
+                if (edgeOrAccess instanceof CFGEdge) {
+                    final CFGEdge edge = (CFGEdge) edgeOrAccess;
+                    final CFGBasicBlock targetCopy =
+                            copy(edge.getTargetBlock(), nodes, positionDelta, lineDelta, blocks, toCopy);
+                    CFGEdgeBuilder.buildEdge((Expression) map(nodes, edge.getCondition()),
+                            edge.getEvaluationResult(), blockCopy, targetCopy);
+                } else {
+                    final VariableAccess access = (VariableAccess) edgeOrAccess;
+                    blockCopy.addVariableAccess(new VariableAccess(map(nodes, access.getAstNode()),
+                            (Name) map(nodes, access.getName()), (Type) map(nodes, access.getType()),
+                            access.getAccessType()));
+                }
+            }
+            // also copy the unreachable blocks, which are only linked through their outgoing edges
+            for (CFGEdge edge : block.getIncomingEdges()) {
+                copy(edge.getSourceBlock(), nodes, positionDelta, lineDelta, blocks, toCopy);
+            }
+        }
+        return entryBlock;
+    }
+
+    private CFGBasicBlock copy(CFGBasicBlock block, Map<ASTNode, ASTNode> nodes, int positionDelta, int lineDelta,
+            Map<CFGBasicBlock, CFGBasicBlock> blocks, List<CFGBasicBlock> toCopy) {
+        CFGBasicBlock blockCopy = blocks.get(block);
+        if (blockCopy == null) {
+            LineAndColumn lineAndColumn = block.getLineAndColumn();
+            if (!block.isEntryBlock()) {
+                lineAndColumn = new LineAndColumn(lineAndColumn.getStartPosition() + positionDelta,
+                        lineAndColumn.getLine() + lineDelta, lineAndColumn.getColumn());
+            }
+            final List<ASTNode> blockNodes = new ArrayList<ASTNode>(block.getNodes().size());
+            for (ASTNode node : block.getNodes()) {
+                blockNodes.add(map(nodes, node));
+            }
+            blockCopy = block.copy(blockNodes, lineAndColumn);
+            blocks.put(block, blockCopy);
+            toCopy.add(block);
+        }
+        return blockCopy;
+    }
+
+    private ASTNode map(Map<ASTNode, ASTNode> nodes, ASTNode node) {
+        if (node == null) {
+            return null;
+        }
+        final ASTNode result = nodes.get(node);
+        if (result == null) {
+            throw new IllegalStateException(node, "Did not expect the CFG to reference a node outside its method");
+        }
+        return result;
+    }
+
+    /**
+     * Maps the nodes of the previous method declaration to the nodes at the same place in the new one.
+     *
+     * @return the nodes of the new method declaration, keyed by the nodes of the previous one,
+     *         or null if the CFG must be built again for the new method declaration
+     */
+    private Map<ASTNode, ASTNode> mapNodes(MethodDeclaration previousMethod, MethodDeclaration method) {
+        final List<ASTNode> previousNodes = collectNodes(previousMethod);
+        final List<ASTNode> newNodes = collectNodes(method);
+        if (previousNodes.size() != newNodes.size()) {
+            return null;
+        }
+        final Map<ASTNode, ASTNode> results = new IdentityHashMap<ASTNode, ASTNode>(previousNodes.size());
+        for (int i = 0; i < previousNodes.size(); i++) {
+            final ASTNode previousNode = previousNodes.get(i);
+            final ASTNode newNode = newNodes.get(i);
+            if (previousNode.getNodeType() != newNode.getNodeType()
+                    || newNode.getNodeType() == TRY_STATEMENT) {
+                return null;
+            }
+            results.put(previousNode, newNode);
+        }
+        return results;
+    }
+
+    private List<ASTNode> collectNodes(MethodDeclaration method) {
+        final List<ASTNode> results = new ArrayList<ASTNode>();
+        method.accept(new ASTVisitor(true) {
+            @Override
+            public boolean preVisit2(ASTNode node) {
+                results.add(node);
+                return true;
+            }
+        });
+        return results;
+    }
+
+    private static final class HasTryStatementVisitor extends FinderVisitor<Boolean> {
+        @Override
+        public boolean visit(TryStatement node) {
+            setResult(true);
+            return DO_NOT_VISIT_SUBTREE;
+        }
+    }
+}
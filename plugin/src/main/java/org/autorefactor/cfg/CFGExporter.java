@@ -0,0 +1,373 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+
+import static org.autorefactor.refactoring.ASTHelper.*;
+
+/**
+ * Streams the CFGs of methods to an output stream, one method at a time,
+ * so exporting the CFGs of a whole project never holds more than the CFG of one method in memory.
+ * <p>
+ * The supported formats are:
+ * <ul>
+ * <li>{@link Format#DOT}: one digraph per method, as printed by {@link CFGDotPrinter},</li>
+ * <li>{@link Format#JSON_LINES}: one JSON object per method and per line,</li>
+ * <li>{@link Format#BINARY}: a compact binary format written with {@link DataOutputStream},
+ * see {@link #exportBinary(String, String, int, CompactCFG)} for the layout.</li>
+ * </ul>
+ * In the JSON and binary formats, blocks are identified by their {@link CompactCFG} ids,
+ * so the entry block is always block 0. Unreachable blocks are not exported.
+ */
+public class CFGExporter implements Closeable {
+    /** The formats the CFGs can be exported to. */
+    public enum Format {
+        /** The dot format, see {@link CFGDotPrinter}. */
+        DOT("dot"),
+        /** One JSON object per method and per line. */
+        JSON_LINES("jsonl"),
+        /** A compact binary format. */
+        BINARY("cfg");
+
+        private final String fileExtension;
+
+        private Format(String fileExtension) {
+            this.fileExtension = fileExtension;
+        }
+
+        /**
+         * Returns the extension of the files in this format.
+         *
+         * @return the extension of the files in this format
+         */
+        public String getFileExtension() {
+            return fileExtension;
+        }
+
+        /**
+         * Returns the format with the provided file extension or name.
+         *
+         * @param s the file extension or the name of a format
+         * @return the format with the provided file extension or name, or null if there is none
+         */
+        public static Format fromString(String s) {
+            for (Format format : values()) {
+                if (format.fileExtension.equalsIgnoreCase(s) || format.name().equalsIgnoreCase(s)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Starts the binary output: "ACFG" in ASCII. */
+    private static final int BINARY_MAGIC = 0x41434647;
+    private static final int BINARY_VERSION = 1;
+    private static final int BINARY_BLOCK = 0;
+    private static final int BINARY_ENTRY_BLOCK = 1;
+    private static final int BINARY_EXIT_BLOCK = 2;
+    private static final int BINARY_DECISION_BLOCK = 3;
+    private static final int BINARY_UNCONDITIONAL_EDGE = 0;
+    private static final int BINARY_TRUE_EDGE = 1;
+    private static final int BINARY_FALSE_EDGE = 2;
+
+    private final Format format;
+    private final Writer writer;
+    private final DataOutputStream dataOutput;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param format the format of the output
+     * @param out where to write the CFGs, closed when this exporter is closed
+     * @throws IOException if the header of the binary format cannot be written
+     */
+    public CFGExporter(Format format, OutputStream out) throws IOException {
+        this.format = format;
+        final OutputStream bufferedOut = new BufferedOutputStream(out);
+        if (format == Format.BINARY) {
+            this.writer = null;
+            this.dataOutput = new DataOutputStream(bufferedOut);
+            dataOutput.writeInt(BINARY_MAGIC);
+            dataOutput.writeInt(BINARY_VERSION);
+        } else {
+            this.writer = new BufferedWriter(new OutputStreamWriter(bufferedOut, "UTF-8"));
+            this.dataOutput = null;
+        }
+    }
+
+    /**
+     * Writes the CFG of the provided method.
+     *
+     * @param fileName the name of the file declaring the method, as it must appear in the output
+     * @param method the method declaration
+     * @param entryBlock the entry block of the CFG of the method declaration
+     * @throws IOException if the CFG cannot be written
+     */
+    public void export(String fileName, MethodDeclaration method, CFGBasicBlock entryBlock) throws IOException {
+        final String methodName = getMethodName(method);
+        final int line = ((CompilationUnit) method.getRoot()).getLineNumber(method.getStartPosition());
+        switch (format) {
+        case DOT:
+            writer.write(new CFGDotPrinter().toDot(entryBlock));
+            writer.write("\n");
+            break;
+        case JSON_LINES:
+            exportJson(fileName, methodName, line, CompactCFG.of(entryBlock));
+            break;
+        default:
+            exportBinary(fileName, methodName, line, CompactCFG.of(entryBlock));
+            break;
+        }
+    }
+
+    /**
+     * Writes a line like:
+     * <pre>
+     * {"file": "A.java", "method": "A#m(int)", "line": 3,
+     *  "blocks": [{"kind": "entry", "line": 1, "column": 1, "code": "...", "accesses": [["i", 1]]}, ...],
+     *  "edges": [[0, 1], [1, 2, true], [1, 3, false], ...]}
+     * </pre>
+     * where accesses are the variable names with their {@link VariableAccess} flags.
+     */
+    private void exportJson(String fileName, String methodName, int line, CompactCFG cfg) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"file\": ").append(toJsonString(fileName))
+            .append(", \"method\": ").append(toJsonString(methodName))
+            .append(", \"line\": ").append(line)
+            .append(", \"blocks\": [");
+        for (int b = 0; b < cfg.getNbBlocks(); b++) {
+            final CFGBasicBlock block = cfg.getBlock(b);
+            if (b > 0) {
+                sb.append(", ");
+            }
+            sb.append("{\"kind\": \"").append(getKind(block)).append("\"")
+                .append(", \"line\": ").append(block.getLineAndColumn().getLine())
+                .append(", \"column\": ").append(block.getLineAndColumn().getColumn())
+                .append(", \"code\": ").append(toJsonString(String.valueOf(block.getCodeExcerpt())))
+                .append(", \"accesses\": [");
+            for (int i = cfg.getFirstAccess(b); i < cfg.getEndAccess(b); i++) {
+                final VariableAccess access = cfg.getAccess(i);
+                if (i > cfg.getFirstAccess(b)) {
+                    sb.append(", ");
+                }
+                sb.append("[").append(toJsonString(getVariableName(access)))
+                    .append(", ").append(access.getAccessType()).append("]");
+            }
+            sb.append("]}");
+        }
+        sb.append("], \"edges\": [");
+        boolean first = true;
+        for (CFGEdge edge : getEdges(cfg)) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append("[").append(cfg.indexOf(edge.getSourceBlock()))
+                .append(", ").append(cfg.indexOf(edge.getTargetBlock()));
+            if (edge.getCondition() != null) {
+                sb.append(", ").append(edge.getEvaluationResult());
+            }
+            sb.append("]");
+        }
+        sb.append("]}\n");
+        writer.write(sb.toString());
+    }
+
+    /**
+     * Writes the CFG of one method in the binary format.
+     * <p>
+     * The output starts with the int {@code 0x41434647} ("ACFG") and the int version of the format.
+     * Then each method is written as:
+     * <pre>
+     * UTF file name, UTF method name, int line, int number of blocks,
+     * for each block: byte kind (0 block, 1 entry, 2 exit, 3 decision), int line, int column,
+     *                 int number of accesses, for each access: UTF variable name, byte flags,
+     * int number of edges,
+     * for each edge: int source block, int target block, byte condition (0 none, 1 true, 2 false)
+     * </pre>
+     */
+    private void exportBinary(String fileName, String methodName, int line, CompactCFG cfg) throws IOException {
+        dataOutput.writeUTF(fileName);
+        dataOutput.writeUTF(methodName);
+        dataOutput.writeInt(line);
+        dataOutput.writeInt(cfg.getNbBlocks());
+        for (int b = 0; b < cfg.getNbBlocks(); b++) {
+            final CFGBasicBlock block = cfg.getBlock(b);
+            dataOutput.writeByte(getBinaryKind(block));
+            dataOutput.writeInt(block.getLineAndColumn().getLine());
+            dataOutput.writeInt(block.getLineAndColumn().getColumn());
+            dataOutput.writeInt(cfg.getEndAccess(b) - cfg.getFirstAccess(b));
+            for (int i = cfg.getFirstAccess(b); i < cfg.getEndAccess(b); i++) {
+                final VariableAccess access = cfg.getAccess(i);
+                dataOutput.writeUTF(getVariableName(access));
+                dataOutput.writeByte(access.getAccessType());
+            }
+        }
+        final List<CFGEdge> edges = getEdges(cfg);
+        dataOutput.writeInt(edges.size());
+        for (CFGEdge edge : edges) {
+            dataOutput.writeInt(cfg.indexOf(edge.getSourceBlock()));
+            dataOutput.writeInt(cfg.indexOf(edge.getTargetBlock()));
+            if (edge.getCondition() == null) {
+                dataOutput.writeByte(BINARY_UNCONDITIONAL_EDGE);
+            } else {
+                dataOutput.writeByte(edge.getEvaluationResult() ? BINARY_TRUE_EDGE : BINARY_FALSE_EDGE);
+            }
+        }
+    }
+
+    /** Returns the edges of the CFG, ordered by source block id. */
+    private List<CFGEdge> getEdges(CompactCFG cfg) {
+        final List<CFGEdge> results = new ArrayList<CFGEdge>();
+        for (int b = 0; b < cfg.getNbBlocks(); b++) {
+            for (Object edgeOrAccess : cfg.getBlock(b).getOutgoingEdgesAndVariableAccesses()) {
+                if (edgeOrAccess instanceof CFGEdge) {
+                    results.add((CFGEdge) edgeOrAccess);
+                }
+            }
+        }
+        return results;
+    }
+
+    private String getKind(CFGBasicBlock block) {
+        if (block.isEntryBlock()) {
+            return "entry";
+        } else if (block.isExitBlock()) {
+            return "exit";
+        } else if (block.isDecision()) {
+            return "decision";
+        }
+        return "block";
+    }
+
+    private int getBinaryKind(CFGBasicBlock block) {
+        if (block.isEntryBlock()) {
+            return BINARY_ENTRY_BLOCK;
+        } else if (block.isExitBlock()) {
+            return BINARY_EXIT_BLOCK;
+        } else if (block.isDecision()) {
+            return BINARY_DECISION_BLOCK;
+        }
+        return BINARY_BLOCK;
+    }
+
+    private String getVariableName(VariableAccess access) {
+        return access.getName() != null
+                ? access.getName().getFullyQualifiedName()
+                : String.valueOf(access.getAstNode());
+    }
+
+    /** Returns a name like "pkg.Outer.Inner#method(int,String)", which does not need bindings. */
+    private String getMethodName(MethodDeclaration method) {
+        final StringBuilder sb = new StringBuilder();
+        final AbstractTypeDeclaration type = getAncestorOrNull(method, AbstractTypeDeclaration.class);
+        if (type != null) {
+            appendTypeName(type, sb);
+            sb.append("#");
+        }
+        sb.append(method.getName().getIdentifier()).append("(");
+        boolean first = true;
+        for (SingleVariableDeclaration param : parameters(method)) {
+            if (!first) {
+                sb.append(",");
+            }
+            first = false;
+            sb.append(param.getType());
+            if (param.isVarargs()) {
+                sb.append("...");
+            }
+        }
+        return sb.append(")").toString();
+    }
+
+    private void appendTypeName(AbstractTypeDeclaration type, StringBuilder sb) {
+        final AbstractTypeDeclaration outerType = getAncestorOrNull(type, AbstractTypeDeclaration.class);
+        if (outerType != null) {
+            appendTypeName(outerType, sb);
+            sb.append(".");
+        } else {
+            final ASTNode root = type.getRoot();
+            if (root instanceof CompilationUnit && ((CompilationUnit) root).getPackage() != null) {
+                sb.append(((CompilationUnit) root).getPackage().getName().getFullyQualifiedName()).append(".");
+            }
+        }
+        sb.append(type.getName().getIdentifier());
+    }
+
+    private static String toJsonString(String s) {
+        final StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Flushes the CFGs written so far to the underlying output stream.
+     *
+     * @throws IOException if the CFGs cannot be flushed
+     */
+    public void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        } else {
+            dataOutput.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        } else {
+            dataOutput.close();
+        }
+    }
+}
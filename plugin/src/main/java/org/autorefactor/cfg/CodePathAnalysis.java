@@ -0,0 +1,289 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Answers questions about the code paths of a CFG without enumerating them.
+ * <p>
+ * Enumerating the code paths, like {@link CodePathCollector} does, takes exponential time:
+ * a method with n sequential if statements has 2^n code paths.
+ * Instead, this class works on the {@link CompactCFG}, where blocks are numbered in topological order,
+ * and answers each question with dynamic programming or a traversal over the blocks,
+ * in time linear in the number of blocks and edges.
+ * <p>
+ * Like for {@link CodePathCollector}, a code path goes from the entry block to an exit block,
+ * and does not go back to a block it already went through:
+ * the back edges found by a depth first search from the entry block are not part of any code path.
+ */
+public class CodePathAnalysis {
+    private final CompactCFG cfg;
+    /** The number of code paths from each block to an exit block, capped to {@link Long#MAX_VALUE}. */
+    private final long[] nbPathsToExit;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param entryBlock the entry block of the CFG
+     */
+    public CodePathAnalysis(CFGBasicBlock entryBlock) {
+        this(CompactCFG.of(entryBlock));
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param cfg the compact CFG
+     */
+    public CodePathAnalysis(CompactCFG cfg) {
+        this.cfg = cfg;
+        final int nbBlocks = cfg.getNbBlocks();
+        this.nbPathsToExit = new long[nbBlocks];
+        for (int block = nbBlocks - 1; block >= 0; block--) {
+            if (cfg.isExitBlock(block)) {
+                nbPathsToExit[block] = 1;
+            } else {
+                long nbPaths = 0;
+                for (int edge = cfg.getFirstSuccessorEdge(block); edge < cfg.getEndSuccessorEdge(block); edge++) {
+                    if (!cfg.isBackEdge(edge)) {
+                        nbPaths = addCapped(nbPaths, nbPathsToExit[cfg.getTargetBlock(edge)]);
+                    }
+                }
+                nbPathsToExit[block] = nbPaths;
+            }
+        }
+    }
+
+    private static long addCapped(long a, long b) {
+        final long result = a + b;
+        return result >= 0 ? result : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the number of code paths from the entry block to an exit block.
+     *
+     * @return the number of code paths, or {@link Long#MAX_VALUE} if there are more code paths than that
+     */
+    public long countPaths() {
+        return nbPathsToExit[0];
+    }
+
+    /**
+     * Returns whether the target block can be reached from the entry block without going through the avoided block.
+     * <p>
+     * This follows all the edges, including loop back edges, since executions can go round loops.
+     *
+     * @param target the block to reach
+     * @param avoided the block which must not be gone through
+     * @return true if the target block can be reached without going through the avoided block, false otherwise
+     */
+    public boolean isReachableWithoutGoingThrough(CFGBasicBlock target, CFGBasicBlock avoided) {
+        final int targetIndex = cfg.indexOf(target);
+        if (targetIndex == -1 || target == avoided || cfg.getBlock(0) == avoided) {
+            return false;
+        }
+        final int avoidedIndex = cfg.indexOf(avoided);
+        final boolean[] visited = new boolean[cfg.getNbBlocks()];
+        if (avoidedIndex != -1) {
+            visited[avoidedIndex] = true;
+        }
+        final int[] worklist = new int[cfg.getNbBlocks()];
+        int nbToVisit = 0;
+        worklist[nbToVisit++] = 0;
+        visited[0] = true;
+        while (nbToVisit > 0) {
+            final int block = worklist[--nbToVisit];
+            if (block == targetIndex) {
+                return true;
+            }
+            for (int edge = cfg.getFirstSuccessorEdge(block); edge < cfg.getEndSuccessorEdge(block); edge++) {
+                final int successor = cfg.getTargetBlock(edge);
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    worklist[nbToVisit++] = successor;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the blocks which are on all the code paths, from the entry block to an exit block.
+     * <p>
+     * These are the dominators of a virtual block following all the exit blocks,
+     * computed in one pass over the blocks in topological order.
+     *
+     * @return the blocks which are on all the code paths, in code path order,
+     *         or an empty list if there are no code paths
+     */
+    public List<CFGBasicBlock> getBlocksOnAllPaths() {
+        if (countPaths() == 0) {
+            return Collections.emptyList();
+        }
+        final int nbBlocks = cfg.getNbBlocks();
+        final int[] immediateDominators = new int[nbBlocks];
+        Arrays.fill(immediateDominators, -1);
+        immediateDominators[0] = 0;
+        int exitDominator = -1;
+        for (int block = 0; block < nbBlocks; block++) {
+            if (cfg.isExitBlock(block)) {
+                exitDominator = exitDominator == -1 ? block : intersect(immediateDominators, exitDominator, block);
+            }
+            for (int edge = cfg.getFirstSuccessorEdge(block); edge < cfg.getEndSuccessorEdge(block); edge++) {
+                if (!cfg.isBackEdge(edge)) {
+                    final int successor = cfg.getTargetBlock(edge);
+                    final int dominator = immediateDominators[successor];
+                    immediateDominators[successor] =
+                            dominator == -1 ? block : intersect(immediateDominators, dominator, block);
+                }
+            }
+        }
+
+        final List<CFGBasicBlock> results = new ArrayList<CFGBasicBlock>();
+        for (int block = exitDominator; block != 0; block = immediateDominators[block]) {
+            results.add(cfg.getBlock(block));
+        }
+        results.add(cfg.getBlock(0));
+        Collections.reverse(results);
+        return results;
+    }
+
+    /** Returns the nearest common dominator of the two blocks, relying on the topological order of the blocks. */
+    private static int intersect(int[] immediateDominators, int block1, int block2) {
+        int finger1 = block1;
+        int finger2 = block2;
+        while (finger1 != finger2) {
+            while (finger1 > finger2) {
+                finger1 = immediateDominators[finger1];
+            }
+            while (finger2 > finger1) {
+                finger2 = immediateDominators[finger2];
+            }
+        }
+        return finger1;
+    }
+
+    /**
+     * Returns an iterator lazily computing the code paths, for the callers which really need them.
+     * <p>
+     * Blocks which cannot reach an exit block are never explored,
+     * so computing each code path takes time linear in the number of blocks.
+     *
+     * @param maxNbPaths the maximum number of code paths to return
+     * @return an iterator over at most {@code maxNbPaths} code paths, each code path being a new list
+     */
+    public Iterator<List<CFGBasicBlock>> pathIterator(int maxNbPaths) {
+        return new PathIterator(maxNbPaths);
+    }
+
+    /** Depth first search over the blocks which have a code path to an exit block. */
+    private final class PathIterator implements Iterator<List<CFGBasicBlock>> {
+        private final int[] path = new int[cfg.getNbBlocks()];
+        private final int[] nextEdges = new int[cfg.getNbBlocks()];
+        private int depth;
+        private int nbRemainingPaths;
+
+        private PathIterator(int maxNbPaths) {
+            this.nbRemainingPaths = maxNbPaths;
+            if (maxNbPaths > 0 && countPaths() > 0) {
+                push(0);
+                descend();
+            }
+        }
+
+        private void push(int block) {
+            path[depth] = block;
+            nextEdges[depth] = cfg.getFirstSuccessorEdge(block);
+            depth++;
+        }
+
+        /** Extends the current path down to an exit block. */
+        private void descend() {
+            while (!cfg.isExitBlock(path[depth - 1])) {
+                // this block has a code path to an exit block, so it has such a successor
+                push(nextSuccessor());
+            }
+        }
+
+        /** Returns the next successor of the last block of the path which has a code path to an exit block. */
+        private int nextSuccessor() {
+            final int end = cfg.getEndSuccessorEdge(path[depth - 1]);
+            while (nextEdges[depth - 1] < end) {
+                final int edge = nextEdges[depth - 1]++;
+                if (!cfg.isBackEdge(edge) && nbPathsToExit[cfg.getTargetBlock(edge)] > 0) {
+                    return cfg.getTargetBlock(edge);
+                }
+            }
+            return -1;
+        }
+
+        /** Moves to the next code path, backtracking to the last block which has other successors to explore. */
+        private void advance() {
+            depth--;
+            while (depth > 0) {
+                final int successor = nextSuccessor();
+                if (successor != -1) {
+                    push(successor);
+                    descend();
+                    return;
+                }
+                depth--;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nbRemainingPaths > 0 && depth > 0;
+        }
+
+        @Override
+        public List<CFGBasicBlock> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final List<CFGBasicBlock> result = new ArrayList<CFGBasicBlock>(depth);
+            for (int i = 0; i < depth; i++) {
+                result.add(cfg.getBlock(path[i]));
+            }
+            nbRemainingPaths--;
+            if (nbRemainingPaths > 0) {
+                advance();
+            }
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
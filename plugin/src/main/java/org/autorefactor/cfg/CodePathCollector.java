@@ -28,15 +28,24 @@ package org.autorefactor.cfg;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.autorefactor.util.IllegalStateException;
 
-/** Collects code paths into the CFG. */
+/**
+ * Collects code paths into the CFG.
+ * <p>
+ * The number of code paths grows exponentially with the number of sequential decisions:
+ * prefer {@link CodePathAnalysis} which answers questions about the code paths without collecting them,
+ * and can lazily iterate over a bounded number of code paths.
+ */
 public class CodePathCollector {
     private final List<List<CFGBasicBlock>> results = new ArrayList<List<CFGBasicBlock>>();
     private final Deque<CFGBasicBlock> stack = new LinkedList<CFGBasicBlock>();
+    private final Set<CFGBasicBlock> blocksOnStack = new HashSet<CFGBasicBlock>();
 
     /**
      * Returns the collected code paths.
@@ -56,12 +65,13 @@ public class CodePathCollector {
             results.add(new ArrayList<CFGBasicBlock>(stack));
             return;
         }
-        if (stack.contains(block)) {
+        if (blocksOnStack.contains(block)) {
             // cycle detected, let's stop it here
             return;
         }
 
         stack.push(block);
+        blocksOnStack.add(block);
         try {
             boolean foundAtLeastOneEdge = false;
             for (Object obj : block.getOutgoingEdgesAndVariableAccesses()) {
@@ -76,7 +86,7 @@ public class CodePathCollector {
                         "Path should have ended with an exit block: " + stack);
             }
         } finally {
-            stack.pop();
+            blocksOnStack.remove(stack.pop());
         }
     }
 }
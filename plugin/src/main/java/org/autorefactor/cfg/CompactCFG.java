@@ -0,0 +1,381 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+
+/**
+ * Compact, array based, form of the CFG of a method, for the analyses walking the CFG many times.
+ * <p>
+ * Basic blocks are int ids, numbered in reverse post order from the entry block, which has id 0:
+ * apart from the loop back edges, every edge goes from a lower id to a higher id.
+ * Edges are stored in compressed sparse rows: the successors of block {@code b}
+ * are at the edge ids going from {@link #getFirstSuccessorEdge(int)} to {@link #getEndSuccessorEdge(int)},
+ * and the predecessors are stored the same way.
+ * Variable accesses are stored apart from the edges, in a typed array also indexed by block.
+ * <p>
+ * Code excerpts are only computed when asked for, from the source offsets of the basic blocks.
+ * <p>
+ * This is only a traversal index: it is built by walking the {@link CFGBasicBlock} object model
+ * once {@link CFGBuilder} has built it, and it keeps references to every basic block and variable access.
+ * So it speeds up the analyses walking the CFG, but it adds to the memory used by the object model
+ * instead of replacing it.
+ */
+public final class CompactCFG {
+    private final CFGBasicBlock[] blocks;
+    private final Map<CFGBasicBlock, Integer> ids;
+    private final BitSet exitBlocks = new BitSet();
+    private final int[] successorOffsets;
+    private final int[] successors;
+    private final int[] predecessorOffsets;
+    private final int[] predecessors;
+    private final BitSet backEdges = new BitSet();
+    private final int[] accessOffsets;
+    private final VariableAccess[] accesses;
+    private final String source;
+
+    private CompactCFG(CFGBasicBlock entryBlock, String source) {
+        this.source = source;
+
+        // collect the blocks reachable from the entry block, with their successors
+        final List<CFGBasicBlock> reachableBlocks = new ArrayList<CFGBasicBlock>();
+        final Map<CFGBasicBlock, Integer> reachableIds = new IdentityHashMap<CFGBasicBlock, Integer>();
+        final List<int[]> reachableSuccessors = new ArrayList<int[]>();
+        final List<VariableAccess> reachableAccesses = new ArrayList<VariableAccess>();
+        int nbReachableEdges = 0;
+        int nbReachableAccesses = 0;
+        reachableBlocks.add(entryBlock);
+        reachableIds.put(entryBlock, 0);
+        for (int i = 0; i < reachableBlocks.size(); i++) {
+            final List<Integer> blockSuccessors = new ArrayList<Integer>();
+            for (Object obj : reachableBlocks.get(i).getOutgoingEdgesAndVariableAccesses()) {
+                if (obj instanceof CFGEdge) {
+                    final CFGBasicBlock target = ((CFGEdge) obj).getTargetBlock();
+                    Integer targetId = reachableIds.get(target);
+                    if (targetId == null) {
+                        targetId = reachableBlocks.size();
+                        reachableBlocks.add(target);
+                        reachableIds.put(target, targetId);
+                    }
+                    blockSuccessors.add(targetId);
+                } else {
+                    nbReachableAccesses++;
+                }
+            }
+            final int[] results = new int[blockSuccessors.size()];
+            for (int j = 0; j < results.length; j++) {
+                results[j] = blockSuccessors.get(j);
+            }
+            reachableSuccessors.add(results);
+            nbReachableEdges += results.length;
+        }
+
+        // renumber the blocks in reverse post order, finding the back edges on the way
+        final int nbBlocks = reachableBlocks.size();
+        final boolean[][] isBackEdge = new boolean[nbBlocks][];
+        final int[] toRpo = getReversePostOrder(reachableSuccessors, isBackEdge);
+        this.blocks = new CFGBasicBlock[nbBlocks];
+        this.ids = new IdentityHashMap<CFGBasicBlock, Integer>(nbBlocks);
+        final int[] oldIds = new int[nbBlocks];
+        for (int oldId = 0; oldId < nbBlocks; oldId++) {
+            final int id = toRpo[oldId];
+            oldIds[id] = oldId;
+            blocks[id] = reachableBlocks.get(oldId);
+            ids.put(blocks[id], id);
+            if (blocks[id].isExitBlock()) {
+                exitBlocks.set(id);
+            }
+        }
+
+        this.successorOffsets = new int[nbBlocks + 1];
+        this.successors = new int[nbReachableEdges];
+        this.accessOffsets = new int[nbBlocks + 1];
+        this.accesses = new VariableAccess[nbReachableAccesses];
+        final int[] nbPredecessors = new int[nbBlocks];
+        int nbEdges = 0;
+        int nbAccesses = 0;
+        for (int id = 0; id < nbBlocks; id++) {
+            successorOffsets[id] = nbEdges;
+            final int oldId = oldIds[id];
+            final int[] oldSuccessors = reachableSuccessors.get(oldId);
+            for (int i = 0; i < oldSuccessors.length; i++) {
+                if (isBackEdge[oldId][i]) {
+                    backEdges.set(nbEdges);
+                }
+                final int target = toRpo[oldSuccessors[i]];
+                successors[nbEdges++] = target;
+                nbPredecessors[target]++;
+            }
+
+            accessOffsets[id] = nbAccesses;
+            for (Object obj : blocks[id].getOutgoingEdgesAndVariableAccesses()) {
+                if (obj instanceof VariableAccess) {
+                    accesses[nbAccesses++] = (VariableAccess) obj;
+                }
+            }
+        }
+        successorOffsets[nbBlocks] = nbEdges;
+        accessOffsets[nbBlocks] = nbAccesses;
+
+        this.predecessorOffsets = new int[nbBlocks + 1];
+        for (int id = 0; id < nbBlocks; id++) {
+            predecessorOffsets[id + 1] = predecessorOffsets[id] + nbPredecessors[id];
+        }
+        this.predecessors = new int[nbEdges];
+        final int[] nextPredecessors = new int[nbBlocks];
+        System.arraycopy(predecessorOffsets, 0, nextPredecessors, 0, nbBlocks);
+        for (int id = 0; id < nbBlocks; id++) {
+            for (int edge = successorOffsets[id]; edge < successorOffsets[id + 1]; edge++) {
+                predecessors[nextPredecessors[successors[edge]]++] = id;
+            }
+        }
+    }
+
+    /** Returns the reverse post order number of each block, computed with an iterative depth first search. */
+    private static int[] getReversePostOrder(List<int[]> successors, boolean[][] isBackEdge) {
+        final int nbBlocks = successors.size();
+        final int[] results = new int[nbBlocks];
+        final boolean[] visited = new boolean[nbBlocks];
+        final boolean[] onStack = new boolean[nbBlocks];
+        final int[] stack = new int[nbBlocks];
+        final int[] nextEdges = new int[nbBlocks];
+        for (int i = 0; i < nbBlocks; i++) {
+            isBackEdge[i] = new boolean[successors.get(i).length];
+        }
+        int nbPostOrdered = 0;
+        int depth = 0;
+        stack[depth++] = 0;
+        visited[0] = true;
+        onStack[0] = true;
+        while (depth > 0) {
+            final int block = stack[depth - 1];
+            final int[] blockSuccessors = successors.get(block);
+            if (nextEdges[block] < blockSuccessors.length) {
+                final int edge = nextEdges[block]++;
+                final int successor = blockSuccessors[edge];
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    onStack[successor] = true;
+                    stack[depth++] = successor;
+                } else if (onStack[successor]) {
+                    isBackEdge[block][edge] = true;
+                }
+            } else {
+                depth--;
+                onStack[block] = false;
+                results[block] = nbBlocks - 1 - nbPostOrdered++;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Builds the compact form of the CFG starting at the provided entry block.
+     *
+     * @param entryBlock the entry block of the CFG of a method
+     * @return the compact form of the CFG
+     */
+    public static CompactCFG of(CFGBasicBlock entryBlock) {
+        return new CompactCFG(entryBlock, null);
+    }
+
+    /**
+     * Builds the compact form of the CFG starting at the provided entry block.
+     *
+     * @param entryBlock the entry block of the CFG of a method
+     * @param source the source of the compilation unit, used to compute the code excerpts
+     * @return the compact form of the CFG
+     */
+    public static CompactCFG of(CFGBasicBlock entryBlock, String source) {
+        return new CompactCFG(entryBlock, source);
+    }
+
+    /**
+     * Returns the number of basic blocks reachable from the entry block.
+     *
+     * @return the number of basic blocks reachable from the entry block
+     */
+    public int getNbBlocks() {
+        return blocks.length;
+    }
+
+    /**
+     * Returns whether the provided block is an exit block.
+     *
+     * @param block the block id
+     * @return true if the provided block is an exit block, false otherwise
+     */
+    public boolean isExitBlock(int block) {
+        return exitBlocks.get(block);
+    }
+
+    /**
+     * Returns the id of the first outgoing edge of the provided block.
+     *
+     * @param block the block id
+     * @return the id of the first outgoing edge of the provided block
+     */
+    public int getFirstSuccessorEdge(int block) {
+        return successorOffsets[block];
+    }
+
+    /**
+     * Returns the id following the last outgoing edge of the provided block.
+     *
+     * @param block the block id
+     * @return the id following the last outgoing edge of the provided block
+     */
+    public int getEndSuccessorEdge(int block) {
+        return successorOffsets[block + 1];
+    }
+
+    /**
+     * Returns the target block of the provided edge.
+     *
+     * @param edge the edge id
+     * @return the target block of the provided edge
+     */
+    public int getTargetBlock(int edge) {
+        return successors[edge];
+    }
+
+    /**
+     * Returns whether the provided edge is a back edge, i.e. goes back to a block which leads to its source.
+     *
+     * @param edge the edge id
+     * @return true if the provided edge is a back edge, false otherwise
+     */
+    public boolean isBackEdge(int edge) {
+        return backEdges.get(edge);
+    }
+
+    /**
+     * Returns the index of the first predecessor of the provided block.
+     *
+     * @param block the block id
+     * @return the index of the first predecessor of the provided block
+     */
+    public int getFirstPredecessor(int block) {
+        return predecessorOffsets[block];
+    }
+
+    /**
+     * Returns the index following the last predecessor of the provided block.
+     *
+     * @param block the block id
+     * @return the index following the last predecessor of the provided block
+     */
+    public int getEndPredecessor(int block) {
+        return predecessorOffsets[block + 1];
+    }
+
+    /**
+     * Returns the predecessor block at the provided index.
+     *
+     * @param index the index of the predecessor
+     * @return the predecessor block at the provided index
+     */
+    public int getPredecessor(int index) {
+        return predecessors[index];
+    }
+
+    /**
+     * Returns the index of the first variable access of the provided block.
+     *
+     * @param block the block id
+     * @return the index of the first variable access of the provided block
+     */
+    public int getFirstAccess(int block) {
+        return accessOffsets[block];
+    }
+
+    /**
+     * Returns the index following the last variable access of the provided block.
+     *
+     * @param block the block id
+     * @return the index following the last variable access of the provided block
+     */
+    public int getEndAccess(int block) {
+        return accessOffsets[block + 1];
+    }
+
+    /**
+     * Returns the variable access at the provided index.
+     *
+     * @param index the index of the variable access
+     * @return the variable access at the provided index
+     */
+    public VariableAccess getAccess(int index) {
+        return accesses[index];
+    }
+
+    /**
+     * Returns the basic block, in the object model, with the provided id.
+     *
+     * @param block the block id
+     * @return the basic block with the provided id
+     */
+    public CFGBasicBlock getBlock(int block) {
+        return blocks[block];
+    }
+
+    /**
+     * Returns the id of the provided basic block.
+     *
+     * @param block the basic block
+     * @return the id of the provided basic block, or -1 if it is not reachable from the entry block
+     */
+    public int indexOf(CFGBasicBlock block) {
+        final Integer id = ids.get(block);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns a code excerpt for the provided block, computed from the source offsets of its node.
+     *
+     * @param block the block id
+     * @return a code excerpt for the provided block
+     */
+    public String getCodeExcerpt(int block) {
+        final ASTNode node = blocks[block].getNode();
+        if (source == null || node == null) {
+            return blocks[block].getCodeExcerpt();
+        }
+        final int start = node.getStartPosition();
+        int end = start + node.getLength();
+        final int endOfLine = source.indexOf('\n', start);
+        if (endOfLine != -1 && endOfLine < end) {
+            end = endOfLine;
+        }
+        return source.substring(start, end).replaceAll("\\s+", " ").trim();
+    }
+}
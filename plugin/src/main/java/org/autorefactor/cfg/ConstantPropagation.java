@@ -0,0 +1,432 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.Name;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+
+import static org.autorefactor.cfg.LocalVariableIndex.*;
+import static org.autorefactor.refactoring.ASTHelper.*;
+import static org.eclipse.jdt.core.dom.ASTNode.*;
+import static org.eclipse.jdt.core.dom.InfixExpression.Operator.*;
+
+/**
+ * Computes the values of the expressions which are constant when evaluated in a method,
+ * but which are not compile time constants according to the JLS.
+ * <p>
+ * This handles the local variables whose reaching definitions all assign the same constant,
+ * and the {@code static final} fields of primitive or String type
+ * which are initialized with a constant in the same compilation unit.
+ * The values are boxed like the values returned by {@link Expression#resolveConstantExpressionValue()}.
+ * Only boolean, integral and String values are computed: floating point values are never considered constant.
+ * <p>
+ * Like the CFG, this does not see the definitions reaching a catch clause from its try block.
+ * The local variables with references the CFG does not record, like in anonymous classes,
+ * are never considered constant.
+ */
+public class ConstantPropagation {
+    private final ReachingDefinitionsAnalysis reachingDefinitions;
+    /** The basic block containing each name read in the method. */
+    private final Map<ASTNode, CFGBasicBlock> readBlocks = new IdentityHashMap<ASTNode, CFGBasicBlock>();
+    /** The access for each name read in the method. */
+    private final Map<ASTNode, VariableAccess> reads = new IdentityHashMap<ASTNode, VariableAccess>();
+    /** The names of all the accesses recorded by the CFG. */
+    private final Set<ASTNode> accessedNames = Collections.newSetFromMap(new IdentityHashMap<ASTNode, Boolean>());
+    /** The local variables with references missing from the CFG, computed on first use. */
+    private Set<IBinding> unsafeVariables;
+    /**
+     * The values computed for the definitions of local variables and for the {@code static final} fields.
+     * A null value means the definition or the field is not constant, or is being computed.
+     */
+    private final Map<Object, Object> values = new IdentityHashMap<Object, Object>();
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param cfg the compact CFG of a method
+     */
+    public ConstantPropagation(CompactCFG cfg) {
+        this.reachingDefinitions = new ReachingDefinitionsAnalysis(cfg);
+        final LocalVariableIndex variables = reachingDefinitions.getVariables();
+        for (CFGBasicBlock block : reachingDefinitions.getBlocks()) {
+            for (VariableAccess access : variables.getAccesses(block)) {
+                accessedNames.add(access.getName());
+                if (isRead(access)) {
+                    readBlocks.put(access.getName(), block);
+                    reads.put(access.getName(), access);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the constant value of the provided expression.
+     *
+     * @param expr the expression of the method for which to compute the constant value
+     * @return the constant value of the provided expression, or null if it is not constant
+     */
+    public Object getConstantValue(Expression expr) {
+        if (expr == null) {
+            return null;
+        }
+        final Object constant = expr.resolveConstantExpressionValue();
+        if (constant != null) {
+            return constant;
+        }
+        switch (expr.getNodeType()) {
+        case PARENTHESIZED_EXPRESSION:
+            return getConstantValue(((ParenthesizedExpression) expr).getExpression());
+        case QUALIFIED_NAME:
+        case SIMPLE_NAME:
+            return getConstantValue((Name) expr);
+        case PREFIX_EXPRESSION:
+            return getConstantValue((PrefixExpression) expr);
+        case INFIX_EXPRESSION:
+            return getConstantValue((InfixExpression) expr);
+        case METHOD_INVOCATION:
+            return getConstantValue((MethodInvocation) expr);
+        default:
+            return null;
+        }
+    }
+
+    private Object getConstantValue(Name name) {
+        final IBinding binding = name.resolveBinding();
+        if (!(binding instanceof IVariableBinding)) {
+            return null;
+        }
+        final IVariableBinding varBinding = (IVariableBinding) binding;
+        if (!varBinding.isField()) {
+            return getLocalVariableValue(name);
+        } else if (Modifier.isStatic(varBinding.getModifiers()) && Modifier.isFinal(varBinding.getModifiers())) {
+            return getFieldValue(name, varBinding.getVariableDeclaration());
+        }
+        return null;
+    }
+
+    private Object getLocalVariableValue(Name name) {
+        final VariableAccess access = reads.get(name);
+        if (access == null) {
+            // unreachable code, or a name the CFG does not record like in anonymous classes
+            return null;
+        }
+        if (getUnsafeVariables(name).contains(name.resolveBinding())) {
+            // the definitions the CFG does not record could reach this read
+            return null;
+        }
+        Object result = null;
+        for (VariableAccess definition : reachingDefinitions.getReachingDefinitions(readBlocks.get(name), access)) {
+            final Object value = getDefinedValue(definition);
+            if (value == null || (result != null && !result.equals(value))) {
+                return null;
+            }
+            result = value;
+        }
+        return result;
+    }
+
+    private Set<IBinding> getUnsafeVariables(Name name) {
+        if (unsafeVariables == null) {
+            unsafeVariables = new HashSet<IBinding>();
+            final MethodDeclaration method = getAncestorOrNull(name, MethodDeclaration.class);
+            if (method != null) {
+                method.accept(new ASTVisitor() {
+                    @Override
+                    public boolean visit(SimpleName node) {
+                        final IBinding binding = node.resolveBinding();
+                        if (binding instanceof IVariableBinding
+                                && !((IVariableBinding) binding).isField()
+                                && !node.isDeclaration()
+                                && !accessedNames.contains(node)) {
+                            unsafeVariables.add(binding);
+                        }
+                        return VISIT_SUBTREE;
+                    }
+                });
+            }
+        }
+        return unsafeVariables;
+    }
+
+    private Object getDefinedValue(VariableAccess definition) {
+        if (values.containsKey(definition)) {
+            return values.get(definition);
+        }
+        // guards against cycles, like for "i = i + 1" in a loop
+        values.put(definition, null);
+        final Object value = toType(getConstantValue(getDefinedExpression(definition)),
+                definition.getName().resolveTypeBinding());
+        values.put(definition, value);
+        return value;
+    }
+
+    /** Returns the expression assigned by the provided definition, or null if it does not assign an expression. */
+    private Expression getDefinedExpression(VariableAccess definition) {
+        final ASTNode node = definition.getAstNode();
+        if (node instanceof VariableDeclarationFragment) {
+            return ((VariableDeclarationFragment) node).getInitializer();
+        }
+        ASTNode lhs = node;
+        while (lhs.getParent() instanceof ParenthesizedExpression) {
+            lhs = lhs.getParent();
+        }
+        if (lhs.getParent() instanceof Assignment) {
+            final Assignment as = (Assignment) lhs.getParent();
+            if (as.getLeftHandSide() == lhs && hasOperator(as, Assignment.Operator.ASSIGN)) {
+                return as.getRightHandSide();
+            }
+        }
+        // increments, compound assignments, parameters, etc.
+        return null;
+    }
+
+    private Object getFieldValue(Name name, IVariableBinding field) {
+        if (values.containsKey(field)) {
+            return values.get(field);
+        }
+        values.put(field, null);
+        Object value = null;
+        if (name.getRoot() instanceof CompilationUnit) {
+            final ASTNode declaration = ((CompilationUnit) name.getRoot()).findDeclaringNode(field);
+            if (declaration instanceof VariableDeclarationFragment) {
+                value = toType(getConstantValue(((VariableDeclarationFragment) declaration).getInitializer()),
+                        field.getType());
+            }
+        }
+        values.put(field, value);
+        return value;
+    }
+
+    private Object getConstantValue(PrefixExpression pe) {
+        final Object operand = getConstantValue(pe.getOperand());
+        final PrefixExpression.Operator operator = pe.getOperator();
+        if (PrefixExpression.Operator.NOT.equals(operator)) {
+            return operand instanceof Boolean ? !(Boolean) operand : null;
+        }
+        final Object promoted = promote(operand);
+        if (PrefixExpression.Operator.PLUS.equals(operator)) {
+            return promoted;
+        } else if (PrefixExpression.Operator.MINUS.equals(operator)) {
+            if (promoted instanceof Integer) {
+                return -(Integer) promoted;
+            } else if (promoted instanceof Long) {
+                return -(Long) promoted;
+            }
+        } else if (PrefixExpression.Operator.COMPLEMENT.equals(operator)) {
+            if (promoted instanceof Integer) {
+                return ~(Integer) promoted;
+            } else if (promoted instanceof Long) {
+                return ~(Long) promoted;
+            }
+        }
+        return null;
+    }
+
+    private Object getConstantValue(InfixExpression ie) {
+        final InfixExpression.Operator operator = ie.getOperator();
+        final List<Expression> operands = new ArrayList<Expression>();
+        operands.add(ie.getLeftOperand());
+        operands.add(ie.getRightOperand());
+        operands.addAll(extendedOperands(ie));
+
+        Object result = getConstantValue(operands.get(0));
+        for (int i = 1; i < operands.size() && result != null; i++) {
+            if (CONDITIONAL_AND.equals(operator) && Boolean.FALSE.equals(result)) {
+                return Boolean.FALSE;
+            } else if (CONDITIONAL_OR.equals(operator) && Boolean.TRUE.equals(result)) {
+                return Boolean.TRUE;
+            }
+            result = compute(operator, result, getConstantValue(operands.get(i)));
+        }
+        return result;
+    }
+
+    private Object getConstantValue(MethodInvocation mi) {
+        if (isMethod(mi, "java.lang.String", "equals", "java.lang.Object")) {
+            final Object receiver = getConstantValue(mi.getExpression());
+            final Object arg = getConstantValue(arguments(mi).get(0));
+            if (receiver instanceof String && arg instanceof String) {
+                return receiver.equals(arg);
+            }
+        }
+        return null;
+    }
+
+    private static Object compute(InfixExpression.Operator operator, Object left, Object right) {
+        if (left instanceof Boolean && right instanceof Boolean) {
+            return compute(operator, ((Boolean) left).booleanValue(), ((Boolean) right).booleanValue());
+        } else if (PLUS.equals(operator) && (left instanceof String || right instanceof String)) {
+            return left != null && right != null ? String.valueOf(left) + right : null;
+        }
+        final Object promotedLeft = promote(left);
+        final Object promotedRight = promote(right);
+        if (promotedLeft == null || promotedRight == null) {
+            return null;
+        }
+        final long l = ((Number) promotedLeft).longValue();
+        final long r = ((Number) promotedRight).longValue();
+        if (LEFT_SHIFT.equals(operator)
+                || RIGHT_SHIFT_SIGNED.equals(operator)
+                || RIGHT_SHIFT_UNSIGNED.equals(operator)) {
+            // the type of a shift expression is the promoted type of its left operand
+            return promotedLeft instanceof Integer ? shift(operator, (int) l, (int) r) : shift(operator, l, r);
+        }
+        final Object result = compute(operator, l, r);
+        if (result instanceof Long && promotedLeft instanceof Integer && promotedRight instanceof Integer) {
+            return ((Long) result).intValue();
+        }
+        return result;
+    }
+
+    private static Object compute(InfixExpression.Operator operator, boolean l, boolean r) {
+        if (AND.equals(operator) || CONDITIONAL_AND.equals(operator)) {
+            return l && r;
+        } else if (OR.equals(operator) || CONDITIONAL_OR.equals(operator)) {
+            return l || r;
+        } else if (XOR.equals(operator) || NOT_EQUALS.equals(operator)) {
+            return l != r;
+        } else if (EQUALS.equals(operator)) {
+            return l == r;
+        }
+        return null;
+    }
+
+    /**
+     * Computes the result of the provided operator on integral operands.
+     * Arithmetic results are computed as long values, then truncated by the caller for int operands,
+     * which matches the java semantics because only the lowest bits of the results are kept.
+     */
+    private static Object compute(InfixExpression.Operator operator, long l, long r) {
+        if (EQUALS.equals(operator)) {
+            return l == r;
+        } else if (NOT_EQUALS.equals(operator)) {
+            return l != r;
+        } else if (LESS.equals(operator)) {
+            return l < r;
+        } else if (LESS_EQUALS.equals(operator)) {
+            return l <= r;
+        } else if (GREATER.equals(operator)) {
+            return l > r;
+        } else if (GREATER_EQUALS.equals(operator)) {
+            return l >= r;
+        } else if (PLUS.equals(operator)) {
+            return l + r;
+        } else if (MINUS.equals(operator)) {
+            return l - r;
+        } else if (TIMES.equals(operator)) {
+            return l * r;
+        } else if (AND.equals(operator)) {
+            return l & r;
+        } else if (OR.equals(operator)) {
+            return l | r;
+        } else if (XOR.equals(operator)) {
+            return l ^ r;
+        }
+        // divisions are left alone: they do not truncate like the other operators
+        return null;
+    }
+
+    private static Object shift(InfixExpression.Operator operator, int l, int r) {
+        if (LEFT_SHIFT.equals(operator)) {
+            return l << r;
+        } else if (RIGHT_SHIFT_SIGNED.equals(operator)) {
+            return l >> r;
+        }
+        return l >>> r;
+    }
+
+    private static Object shift(InfixExpression.Operator operator, long l, long r) {
+        if (LEFT_SHIFT.equals(operator)) {
+            return l << r;
+        } else if (RIGHT_SHIFT_SIGNED.equals(operator)) {
+            return l >> r;
+        }
+        return l >>> r;
+    }
+
+    /** Applies the unary numeric promotion to integral values, or returns null for any other value. */
+    private static Object promote(Object value) {
+        if (value instanceof Character) {
+            return (int) ((Character) value).charValue();
+        } else if (value instanceof Byte || value instanceof Short) {
+            return ((Number) value).intValue();
+        } else if (value instanceof Integer || value instanceof Long) {
+            return value;
+        }
+        return null;
+    }
+
+    /** Converts the provided value to the provided type, like assigning it to a variable of this type. */
+    private static Object toType(Object value, ITypeBinding type) {
+        if (value == null || type == null) {
+            return null;
+        } else if (hasType(type, "java.lang.String")) {
+            return value instanceof String ? value : null;
+        } else if (isPrimitive(type, "boolean")) {
+            return value instanceof Boolean ? value : null;
+        }
+        final Object promoted = promote(value);
+        if (promoted == null) {
+            return null;
+        }
+        final long l = ((Number) promoted).longValue();
+        if (isPrimitive(type, "char")) {
+            return (char) l;
+        } else if (isPrimitive(type, "byte")) {
+            return (byte) l;
+        } else if (isPrimitive(type, "short")) {
+            return (short) l;
+        } else if (isPrimitive(type, "int")) {
+            return (int) l;
+        } else if (isPrimitive(type, "long")) {
+            return l;
+        }
+        return null;
+    }
+}
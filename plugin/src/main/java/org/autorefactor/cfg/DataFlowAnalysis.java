@@ -0,0 +1,254 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Worklist solver for the dataflow problems over the basic blocks of the CFG of a method,
+ * using bit sets as lattice values.
+ * <p>
+ * Subclasses describe their problem with its direction, its meet operator,
+ * and the gen and kill sets of each basic block,
+ * then call {@link #solve()} at the end of their constructor.
+ * Basic blocks are visited in reverse post order for forward problems, and in post order for backward problems,
+ * so the solution is usually found after two or three passes over the basic blocks.
+ * <p>
+ * Analyses run on the {@link CompactCFG} of the method, which can be shared by several analyses.
+ * The local variables of the method are densely indexed by a {@link LocalVariableIndex},
+ * so problems about local variables can use one bit per local variable.
+ */
+public abstract class DataFlowAnalysis {
+    private final CompactCFG cfg;
+    private final LocalVariableIndex variables;
+    private final boolean forward;
+    private final boolean union;
+    /** The values where the flow enters each basic block: at its start for forward problems, else at its end. */
+    private BitSet[] before;
+    /** The values where the flow leaves each basic block: at its end for forward problems, else at its start. */
+    private BitSet[] after;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param cfg the compact CFG of a method
+     * @param forward true for a forward problem, false for a backward problem
+     * @param union true if the meet operator is the union (may problems),
+     *        false if it is the intersection (must problems)
+     */
+    protected DataFlowAnalysis(CompactCFG cfg, boolean forward, boolean union) {
+        this.cfg = cfg;
+        this.variables = new LocalVariableIndex(cfg);
+        this.forward = forward;
+        this.union = union;
+    }
+
+    /**
+     * Returns the number of bits of the lattice values of this problem.
+     *
+     * @return the number of bits of the lattice values of this problem
+     */
+    protected abstract int getNbBits();
+
+    /**
+     * Computes the gen and kill sets of the provided basic block:
+     * the value leaving the basic block is {@code gen | (value entering the basic block & ~kill)}.
+     *
+     * @param block the basic block
+     * @param gen the set to fill with the bits generated by the basic block
+     * @param kill the set to fill with the bits killed by the basic block
+     */
+    protected abstract void computeGenKill(CFGBasicBlock block, BitSet gen, BitSet kill);
+
+    /**
+     * Returns the value entering the CFG: at the entry block for forward problems,
+     * else at the basic blocks without successors. Defaults to the empty set.
+     *
+     * @return the value entering the CFG
+     */
+    protected BitSet getBoundaryValue() {
+        return new BitSet();
+    }
+
+    /** Solves this dataflow problem. Subclasses must call this method at the end of their constructor. */
+    protected final void solve() {
+        final int nbBlocks = cfg.getNbBlocks();
+        final int nbBits = getNbBits();
+        final BitSet[] gen = new BitSet[nbBlocks];
+        final BitSet[] kill = new BitSet[nbBlocks];
+        before = new BitSet[nbBlocks];
+        after = new BitSet[nbBlocks];
+        final int[] worklist = new int[nbBlocks];
+        final boolean[] queued = new boolean[nbBlocks];
+        for (int i = 0; i < nbBlocks; i++) {
+            gen[i] = new BitSet(nbBits);
+            kill[i] = new BitSet(nbBits);
+            computeGenKill(cfg.getBlock(i), gen[i], kill[i]);
+            before[i] = new BitSet(nbBits);
+            after[i] = new BitSet(nbBits);
+            if (!union) {
+                after[i].set(0, nbBits);
+            }
+            worklist[i] = forward ? i : nbBlocks - 1 - i;
+            queued[i] = true;
+        }
+
+        int head = 0;
+        int nbQueued = nbBlocks;
+        while (nbQueued > 0) {
+            final int block = worklist[head];
+            head = (head + 1) % nbBlocks;
+            nbQueued--;
+            queued[block] = false;
+
+            final BitSet newBefore = forward ? meetPredecessors(block) : meetSuccessors(block);
+            before[block] = newBefore;
+
+            final BitSet newAfter = (BitSet) newBefore.clone();
+            newAfter.andNot(kill[block]);
+            newAfter.or(gen[block]);
+            if (!newAfter.equals(after[block])) {
+                after[block] = newAfter;
+                if (forward) {
+                    for (int edge = cfg.getFirstSuccessorEdge(block); edge < cfg.getEndSuccessorEdge(block); edge++) {
+                        nbQueued += enqueue(cfg.getTargetBlock(edge), worklist, queued, head, nbQueued);
+                    }
+                } else {
+                    for (int i = cfg.getFirstPredecessor(block); i < cfg.getEndPredecessor(block); i++) {
+                        nbQueued += enqueue(cfg.getPredecessor(i), worklist, queued, head, nbQueued);
+                    }
+                }
+            }
+        }
+    }
+
+    private BitSet meetPredecessors(int block) {
+        final int first = cfg.getFirstPredecessor(block);
+        final int end = cfg.getEndPredecessor(block);
+        if (block == 0 || first == end) {
+            return getBoundaryValue();
+        }
+        final BitSet result = (BitSet) after[cfg.getPredecessor(first)].clone();
+        for (int i = first + 1; i < end; i++) {
+            meet(result, after[cfg.getPredecessor(i)]);
+        }
+        return result;
+    }
+
+    private BitSet meetSuccessors(int block) {
+        final int first = cfg.getFirstSuccessorEdge(block);
+        final int end = cfg.getEndSuccessorEdge(block);
+        if (first == end) {
+            return getBoundaryValue();
+        }
+        final BitSet result = (BitSet) after[cfg.getTargetBlock(first)].clone();
+        for (int edge = first + 1; edge < end; edge++) {
+            meet(result, after[cfg.getTargetBlock(edge)]);
+        }
+        return result;
+    }
+
+    private void meet(BitSet result, BitSet value) {
+        if (union) {
+            result.or(value);
+        } else {
+            result.and(value);
+        }
+    }
+
+    /** Queues the provided block if it is not already queued, and returns the number of blocks added to the queue. */
+    private static int enqueue(int block, int[] worklist, boolean[] queued, int head, int nbQueued) {
+        if (queued[block]) {
+            return 0;
+        }
+        queued[block] = true;
+        worklist[(head + nbQueued) % worklist.length] = block;
+        return 1;
+    }
+
+    /**
+     * Returns the basic blocks reachable from the entry block, in reverse post order.
+     *
+     * @return the basic blocks reachable from the entry block, in reverse post order
+     */
+    public List<CFGBasicBlock> getBlocks() {
+        final List<CFGBasicBlock> results = new ArrayList<CFGBasicBlock>(cfg.getNbBlocks());
+        for (int i = 0; i < cfg.getNbBlocks(); i++) {
+            results.add(cfg.getBlock(i));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the compact CFG of the method.
+     *
+     * @return the compact CFG of the method
+     */
+    public CompactCFG getCFG() {
+        return cfg;
+    }
+
+    /**
+     * Returns the index of the local variables of the method.
+     *
+     * @return the index of the local variables of the method
+     */
+    public LocalVariableIndex getVariables() {
+        return variables;
+    }
+
+    /**
+     * Returns the value at the start of the provided basic block.
+     *
+     * @param block the basic block
+     * @return a copy of the value at the start of the provided basic block,
+     *         or an empty set if the basic block is not reachable
+     */
+    public BitSet getIn(CFGBasicBlock block) {
+        final int index = cfg.indexOf(block);
+        if (index == -1) {
+            return new BitSet();
+        }
+        return (BitSet) (forward ? before[index] : after[index]).clone();
+    }
+
+    /**
+     * Returns the value at the end of the provided basic block.
+     *
+     * @param block the basic block
+     * @return a copy of the value at the end of the provided basic block,
+     *         or an empty set if the basic block is not reachable
+     */
+    public BitSet getOut(CFGBasicBlock block) {
+        final int index = cfg.indexOf(block);
+        if (index == -1) {
+            return new BitSet();
+        }
+        return (BitSet) (forward ? after[index] : before[index]).clone();
+    }
+}
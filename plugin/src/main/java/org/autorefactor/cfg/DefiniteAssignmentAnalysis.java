@@ -0,0 +1,104 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.BitSet;
+
+import static org.autorefactor.cfg.LocalVariableIndex.*;
+import static org.autorefactor.cfg.VariableAccess.*;
+
+/**
+ * Computes which local variables are definitely assigned at each point of a method,
+ * i.e. have been written on all the code paths leading there.
+ * <p>
+ * This is a forward must problem, with one bit per local variable.
+ */
+public class DefiniteAssignmentAnalysis extends DataFlowAnalysis {
+    /**
+     * Builds an instance of this class, and solves the definite assignment problem.
+     *
+     * @param entryBlock the entry block of the CFG of a method
+     */
+    public DefiniteAssignmentAnalysis(CFGBasicBlock entryBlock) {
+        this(CompactCFG.of(entryBlock));
+    }
+
+    /**
+     * Builds an instance of this class, and solves the definite assignment problem.
+     *
+     * @param cfg the compact CFG of a method
+     */
+    public DefiniteAssignmentAnalysis(CompactCFG cfg) {
+        super(cfg, true, false);
+        solve();
+    }
+
+    @Override
+    protected int getNbBits() {
+        return getVariables().size();
+    }
+
+    @Override
+    protected void computeGenKill(CFGBasicBlock block, BitSet gen, BitSet kill) {
+        for (VariableAccess access : getVariables().getAccesses(block)) {
+            transfer(access, gen, kill);
+        }
+    }
+
+    /** Moves the assigned variables after the provided access, along with the variables killed so far. */
+    private void transfer(VariableAccess access, BitSet assigned, BitSet kill) {
+        final int variable = getVariables().indexOf(access);
+        if (isWrite(access)) {
+            if (!isConditionalWrite(access)) {
+                assigned.set(variable);
+            }
+        } else if ((access.getAccessType() & DECL_UNINIT) != 0) {
+            // a declaration without initializer, executed again in a loop
+            assigned.clear(variable);
+            kill.set(variable);
+        }
+    }
+
+    /**
+     * Returns whether the accessed local variable is definitely assigned before the provided access.
+     *
+     * @param block the basic block containing the provided access
+     * @param access the access to a local variable
+     * @return true if the accessed local variable is definitely assigned before the provided access,
+     *         false otherwise
+     */
+    public boolean isDefinitelyAssignedBefore(CFGBasicBlock block, VariableAccess access) {
+        final BitSet assigned = getIn(block);
+        final BitSet kill = new BitSet();
+        for (VariableAccess blockAccess : getVariables().getAccesses(block)) {
+            if (blockAccess == access) {
+                break;
+            }
+            transfer(blockAccess, assigned, kill);
+        }
+        return assigned.get(getVariables().indexOf(access));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.autorefactor.cfg.LocalVariableIndex.*;
+
+/**
+ * Computes which local variables are live at each point of a method,
+ * i.e. whose current value might be read later.
+ * <p>
+ * This is a backward may problem, with one bit per local variable.
+ */
+public class LivenessAnalysis extends DataFlowAnalysis {
+    /**
+     * Builds an instance of this class, and solves the liveness problem.
+     *
+     * @param entryBlock the entry block of the CFG of a method
+     */
+    public LivenessAnalysis(CFGBasicBlock entryBlock) {
+        this(CompactCFG.of(entryBlock));
+    }
+
+    /**
+     * Builds an instance of this class, and solves the liveness problem.
+     *
+     * @param cfg the compact CFG of a method
+     */
+    public LivenessAnalysis(CompactCFG cfg) {
+        super(cfg, false, true);
+        solve();
+    }
+
+    @Override
+    protected int getNbBits() {
+        return getVariables().size();
+    }
+
+    @Override
+    protected void computeGenKill(CFGBasicBlock block, BitSet gen, BitSet kill) {
+        final List<VariableAccess> accesses = getVariables().getAccesses(block);
+        for (int i = accesses.size() - 1; i >= 0; i--) {
+            transfer(accesses.get(i), gen, kill);
+        }
+    }
+
+    /** Moves the live variables before the provided access, along with the variables killed so far. */
+    private void transfer(VariableAccess access, BitSet live, BitSet kill) {
+        final int variable = getVariables().indexOf(access);
+        if (isWrite(access) && !isConditionalWrite(access)) {
+            live.clear(variable);
+            kill.set(variable);
+        }
+        if (isRead(access)) {
+            live.set(variable);
+        }
+    }
+
+    /**
+     * Returns whether the value of the accessed local variable might be read after the provided access.
+     * For a write access, returns false when the written value is never read, i.e. for a dead store.
+     *
+     * @param block the basic block containing the provided access
+     * @param access the access to a local variable
+     * @return true if the value of the accessed local variable might be read after the provided access,
+     *         false otherwise
+     */
+    public boolean isLiveAfter(CFGBasicBlock block, VariableAccess access) {
+        final BitSet live = getOut(block);
+        final BitSet kill = new BitSet();
+        final List<VariableAccess> accesses = getVariables().getAccesses(block);
+        for (int i = accesses.size() - 1; i >= 0 && accesses.get(i) != access; i--) {
+            transfer(accesses.get(i), live, kill);
+        }
+        return live.get(getVariables().indexOf(access));
+    }
+}
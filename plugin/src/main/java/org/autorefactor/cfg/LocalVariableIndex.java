@@ -0,0 +1,304 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.ConditionalExpression;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.ParenthesizedExpression;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.VariableDeclaration;
+
+import static org.autorefactor.cfg.VariableAccess.*;
+
+/**
+ * Densely indexes the local variables declared in the CFG of a method,
+ * and orders the accesses to these local variables in each basic block.
+ * <p>
+ * Variables are identified by their binding when bindings are available,
+ * otherwise by their identifier.
+ * <p>
+ * The accesses recorded by {@link CFGBuilder} are not always in evaluation order,
+ * and their access type describes the enclosing expression rather than the variable itself,
+ * like for {@code a[i] = 0} where {@code a} and {@code i} are recorded as written.
+ * This class looks at the AST to find whether each access reads or writes the variable,
+ * and orders the accesses of each basic block by their evaluation position.
+ */
+public class LocalVariableIndex {
+    private final Map<Object, Integer> indexes = new HashMap<Object, Integer>();
+    private final List<SimpleName> declarations = new ArrayList<SimpleName>();
+    private final CompactCFG cfg;
+    /** The accesses to local variables of each basic block, in evaluation order. */
+    private final List<VariableAccess>[] accesses;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param cfg the compact CFG of a method
+     */
+    @SuppressWarnings("unchecked")
+    public LocalVariableIndex(CompactCFG cfg) {
+        this.cfg = cfg;
+        final int nbBlocks = cfg.getNbBlocks();
+        for (int block = 0; block < nbBlocks; block++) {
+            for (int i = cfg.getFirstAccess(block); i < cfg.getEndAccess(block); i++) {
+                final VariableAccess access = cfg.getAccess(i);
+                if (isDeclaration(access)) {
+                    final SimpleName name = (SimpleName) access.getName();
+                    final Object key = getKey(name);
+                    if (!indexes.containsKey(key)) {
+                        indexes.put(key, declarations.size());
+                        declarations.add(name);
+                    }
+                }
+            }
+        }
+        this.accesses = new List[nbBlocks];
+        for (int block = 0; block < nbBlocks; block++) {
+            final List<VariableAccess> blockAccesses = new ArrayList<VariableAccess>();
+            final Map<VariableAccess, Integer> nodeIndexes = new HashMap<VariableAccess, Integer>();
+            final List<ASTNode> blockNodes = cfg.getBlock(block).getNodes();
+            int nodeIndex = 0;
+            for (int i = cfg.getFirstAccess(block); i < cfg.getEndAccess(block); i++) {
+                final VariableAccess access = cfg.getAccess(i);
+                if (indexOf(access) != -1) {
+                    nodeIndex = getNodeIndex(blockNodes, access, nodeIndex);
+                    nodeIndexes.put(access, nodeIndex);
+                    blockAccesses.add(access);
+                }
+            }
+            Collections.sort(blockAccesses, new Comparator<VariableAccess>() {
+                @Override
+                public int compare(VariableAccess va1, VariableAccess va2) {
+                    final int cmp = nodeIndexes.get(va1) - nodeIndexes.get(va2);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                    return getEvaluationPosition(va1) - getEvaluationPosition(va2);
+                }
+            });
+            accesses[block] = blockAccesses;
+        }
+    }
+
+    /**
+     * Returns the index of the innermost block node containing the provided access.
+     * <p>
+     * Coalesced blocks keep the nodes of the blocks they absorbed in execution order,
+     * which is not the source order for the updaters of a {@code for} loop,
+     * so the accesses are only ordered by evaluation position within the same node.
+     */
+    private static int getNodeIndex(List<ASTNode> blockNodes, VariableAccess access, int defaultIndex) {
+        final ASTNode accessNode = access.getName() != null ? access.getName() : access.getAstNode();
+        final int start = accessNode.getStartPosition();
+        int result = defaultIndex;
+        int resultLength = Integer.MAX_VALUE;
+        for (int i = 0; i < blockNodes.size(); i++) {
+            final ASTNode node = blockNodes.get(i);
+            if (node.getStartPosition() <= start
+                    && start < node.getStartPosition() + node.getLength()
+                    && node.getLength() < resultLength) {
+                result = i;
+                resultLength = node.getLength();
+            }
+        }
+        return result;
+    }
+
+    private static boolean isDeclaration(VariableAccess access) {
+        return access.getAstNode() instanceof VariableDeclaration
+                && (access.getAccessType() & (DECL_INIT | DECL_UNINIT)) != 0;
+    }
+
+    private static Object getKey(SimpleName name) {
+        final IBinding binding = name.resolveBinding();
+        return binding != null ? binding : name.getIdentifier();
+    }
+
+    /**
+     * Returns the number of local variables.
+     *
+     * @return the number of local variables
+     */
+    public int size() {
+        return declarations.size();
+    }
+
+    /**
+     * Returns the index of the local variable accessed by the provided variable access.
+     *
+     * @param access the variable access
+     * @return the index of the accessed local variable, or -1 if it does not access a local variable
+     */
+    public int indexOf(VariableAccess access) {
+        if (!(access.getName() instanceof SimpleName)) {
+            return -1;
+        }
+        final SimpleName name = (SimpleName) access.getName();
+        final IBinding binding = name.resolveBinding();
+        if (binding != null && (!(binding instanceof IVariableBinding) || ((IVariableBinding) binding).isField())) {
+            return -1;
+        }
+        final Integer index = indexes.get(getKey(name));
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the name declaring the local variable with the provided index.
+     *
+     * @param index the index of the local variable
+     * @return the name declaring the local variable
+     */
+    public SimpleName getDeclaration(int index) {
+        return declarations.get(index);
+    }
+
+    /**
+     * Returns the accesses to local variables of the provided basic block, in evaluation order.
+     *
+     * @param block the basic block
+     * @return the accesses to local variables of the provided basic block, in evaluation order
+     */
+    public List<VariableAccess> getAccesses(CFGBasicBlock block) {
+        final int index = cfg.indexOf(block);
+        return index != -1 ? accesses[index] : Collections.<VariableAccess> emptyList();
+    }
+
+    /**
+     * Returns whether the provided access reads the value of the local variable.
+     * Compound assignments, increments and decrements both read and write the local variable.
+     *
+     * @param access the variable access
+     * @return true if the provided access reads the value of the local variable, false otherwise
+     */
+    public static boolean isRead(VariableAccess access) {
+        if (access.getAstNode() instanceof VariableDeclaration) {
+            return false;
+        }
+        final Assignment assignment = getAssignment(access);
+        return assignment == null || assignment.getOperator() != Assignment.Operator.ASSIGN;
+    }
+
+    /**
+     * Returns whether the provided access writes a value to the local variable.
+     *
+     * @param access the variable access
+     * @return true if the provided access writes a value to the local variable, false otherwise
+     */
+    public static boolean isWrite(VariableAccess access) {
+        if (access.getAstNode() instanceof VariableDeclaration) {
+            return (access.getAccessType() & (DECL_INIT | WRITE)) != 0;
+        }
+        if (getAssignment(access) != null) {
+            return true;
+        }
+        final ASTNode parent = getParentSkippingParentheses(access.getAstNode());
+        if (parent instanceof PrefixExpression) {
+            final PrefixExpression.Operator operator = ((PrefixExpression) parent).getOperator();
+            return operator == PrefixExpression.Operator.INCREMENT || operator == PrefixExpression.Operator.DECREMENT;
+        }
+        return parent instanceof PostfixExpression;
+    }
+
+    /**
+     * Returns whether the provided write access might not be executed when its basic block is executed,
+     * like the assignment in {@code b && (x = 0) == 0}.
+     *
+     * @param access the write access
+     * @return true if the provided write access might not be executed when its basic block is executed,
+     *         false otherwise
+     */
+    public static boolean isConditionalWrite(VariableAccess access) {
+        ASTNode node = access.getAstNode();
+        ASTNode parent = node.getParent();
+        while (parent instanceof Expression) {
+            if (parent instanceof ConditionalExpression
+                    && node.getLocationInParent() != ConditionalExpression.EXPRESSION_PROPERTY) {
+                return true;
+            }
+            if (parent instanceof InfixExpression
+                    && node.getLocationInParent() != InfixExpression.LEFT_OPERAND_PROPERTY) {
+                final InfixExpression.Operator operator = ((InfixExpression) parent).getOperator();
+                if (operator == InfixExpression.Operator.CONDITIONAL_AND
+                        || operator == InfixExpression.Operator.CONDITIONAL_OR) {
+                    return true;
+                }
+            }
+            node = parent;
+            parent = node.getParent();
+        }
+        return false;
+    }
+
+    /** Returns the assignment for which the provided access is the left hand side, or null if there is none. */
+    private static Assignment getAssignment(VariableAccess access) {
+        ASTNode node = access.getAstNode();
+        while (node.getParent() instanceof ParenthesizedExpression) {
+            node = node.getParent();
+        }
+        if (node.getLocationInParent() == Assignment.LEFT_HAND_SIDE_PROPERTY) {
+            return (Assignment) node.getParent();
+        }
+        return null;
+    }
+
+    private static ASTNode getParentSkippingParentheses(ASTNode node) {
+        ASTNode parent = node.getParent();
+        while (parent instanceof ParenthesizedExpression) {
+            parent = parent.getParent();
+        }
+        return parent;
+    }
+
+    /**
+     * Returns the position at which the access happens during evaluation:
+     * an assignment or a declaration writes the variable after evaluating its right hand side.
+     */
+    private static int getEvaluationPosition(VariableAccess access) {
+        final ASTNode node = access.getAstNode();
+        if (node instanceof VariableDeclaration) {
+            return node.getStartPosition() + node.getLength();
+        }
+        final Assignment assignment = getAssignment(access);
+        if (assignment != null) {
+            return assignment.getStartPosition() + assignment.getLength();
+        }
+        return node.getStartPosition();
+    }
+}
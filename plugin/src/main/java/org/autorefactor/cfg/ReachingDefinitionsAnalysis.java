@@ -0,0 +1,139 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.cfg;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.autorefactor.cfg.LocalVariableIndex.*;
+
+/**
+ * Computes which writes to local variables, called definitions, can reach each point of a method
+ * without being overwritten on the way.
+ * <p>
+ * This is a forward may problem, with one bit per definition.
+ */
+public class ReachingDefinitionsAnalysis extends DataFlowAnalysis {
+    private final List<VariableAccess> definitions = new ArrayList<VariableAccess>();
+    private final Map<VariableAccess, Integer> definitionIndexes = new IdentityHashMap<VariableAccess, Integer>();
+    /** The definitions of each local variable. */
+    private final BitSet[] variableDefinitions;
+
+    /**
+     * Builds an instance of this class, and solves the reaching definitions problem.
+     *
+     * @param entryBlock the entry block of the CFG of a method
+     */
+    public ReachingDefinitionsAnalysis(CFGBasicBlock entryBlock) {
+        this(CompactCFG.of(entryBlock));
+    }
+
+    /**
+     * Builds an instance of this class, and solves the reaching definitions problem.
+     *
+     * @param cfg the compact CFG of a method
+     */
+    public ReachingDefinitionsAnalysis(CompactCFG cfg) {
+        super(cfg, true, true);
+        final LocalVariableIndex variables = getVariables();
+        variableDefinitions = new BitSet[variables.size()];
+        for (int i = 0; i < variableDefinitions.length; i++) {
+            variableDefinitions[i] = new BitSet();
+        }
+        for (CFGBasicBlock block : getBlocks()) {
+            for (VariableAccess access : variables.getAccesses(block)) {
+                if (isWrite(access)) {
+                    variableDefinitions[variables.indexOf(access)].set(definitions.size());
+                    definitionIndexes.put(access, definitions.size());
+                    definitions.add(access);
+                }
+            }
+        }
+        solve();
+    }
+
+    @Override
+    protected int getNbBits() {
+        return definitions.size();
+    }
+
+    @Override
+    protected void computeGenKill(CFGBasicBlock block, BitSet gen, BitSet kill) {
+        for (VariableAccess access : getVariables().getAccesses(block)) {
+            transfer(access, gen, kill);
+        }
+    }
+
+    /** Moves the reaching definitions after the provided access, along with the definitions killed so far. */
+    private void transfer(VariableAccess access, BitSet reaching, BitSet kill) {
+        final Integer definition = definitionIndexes.get(access);
+        if (definition != null) {
+            if (!isConditionalWrite(access)) {
+                final BitSet overwritten = variableDefinitions[getVariables().indexOf(access)];
+                reaching.andNot(overwritten);
+                kill.or(overwritten);
+            }
+            reaching.set(definition);
+        }
+    }
+
+    /**
+     * Returns all the definitions of local variables in the method.
+     *
+     * @return all the definitions of local variables in the method
+     */
+    public List<VariableAccess> getDefinitions() {
+        return Collections.unmodifiableList(definitions);
+    }
+
+    /**
+     * Returns the definitions of the accessed local variable which reach the provided access.
+     *
+     * @param block the basic block containing the provided access
+     * @param access the access to a local variable
+     * @return the definitions of the accessed local variable which reach the provided access
+     */
+    public List<VariableAccess> getReachingDefinitions(CFGBasicBlock block, VariableAccess access) {
+        final BitSet reaching = getIn(block);
+        final BitSet kill = new BitSet();
+        for (VariableAccess blockAccess : getVariables().getAccesses(block)) {
+            if (blockAccess == access) {
+                break;
+            }
+            transfer(blockAccess, reaching, kill);
+        }
+        reaching.and(variableDefinitions[getVariables().indexOf(access)]);
+        final List<VariableAccess> results = new ArrayList<VariableAccess>(reaching.cardinality());
+        for (int i = reaching.nextSetBit(0); i >= 0; i = reaching.nextSetBit(i + 1)) {
+            results.add(definitions.get(i));
+        }
+        return results;
+    }
+}
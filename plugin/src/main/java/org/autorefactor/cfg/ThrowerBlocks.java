@@ -1,8 +1,11 @@
 package org.autorefactor.cfg;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -12,12 +15,95 @@ import java.util.Set;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 
-/** Holds all the basic blocks that can potentially throw. */
+/**
+ * Holds all the basic blocks that can potentially throw.
+ * <p>
+ * Throwers are indexed by the erasures of the exception types they throw and of all their superclasses,
+ * so finding the throwers caught by a catch clause does not scan all the throwers.
+ */
 class ThrowerBlocks {
-    private final Map<CFGBasicBlock, Set<ITypeBinding>> potentialThrowingBlocks =
-            new HashMap<CFGBasicBlock, Set<ITypeBinding>>();
-    private final Map<CFGEdgeBuilder, Set<ITypeBinding>> potentialThrowingEdges =
-            new HashMap<CFGEdgeBuilder, Set<ITypeBinding>>();
+    /** Indexes throwers by the exception types they throw. */
+    private static final class ThrowerIndex<T> {
+        private final Map<T, Set<ITypeBinding>> thrownTypes = new HashMap<T, Set<ITypeBinding>>();
+        /** Throwers keyed by the erasure key of each exception type they throw and of its superclasses. */
+        private final Map<String, Set<T>> throwersBySuperType = new HashMap<String, Set<T>>();
+        /** The keys computed by {@link ThrowerBlocks#getSuperTypeKeys(ITypeBinding)} for each thrown type. */
+        private final Map<ITypeBinding, List<String>> superTypeKeys = new HashMap<ITypeBinding, List<String>>();
+
+        private void put(T thrower, Set<ITypeBinding> exceptionTypes) {
+            final Set<ITypeBinding> previousTypes = thrownTypes.put(thrower, exceptionTypes);
+            if (previousTypes != null) {
+                for (ITypeBinding previousType : previousTypes) {
+                    for (String key : superTypeKeys.get(previousType)) {
+                        throwersBySuperType.get(key).remove(thrower);
+                    }
+                }
+            }
+            for (ITypeBinding exceptionType : exceptionTypes) {
+                List<String> keys = superTypeKeys.get(exceptionType);
+                if (keys == null) {
+                    keys = getSuperTypeKeys(exceptionType);
+                    superTypeKeys.put(exceptionType, keys);
+                }
+                for (String key : keys) {
+                    Set<T> throwers = throwersBySuperType.get(key);
+                    if (throwers == null) {
+                        throwers = new LinkedHashSet<T>();
+                        throwersBySuperType.put(key, throwers);
+                    }
+                    throwers.add(thrower);
+                }
+            }
+        }
+
+        private List<T> selectThrowing(ITypeBinding exceptionTypeToFind) {
+            if (exceptionTypeToFind == null) {
+                return new LinkedList<T>(thrownTypes.keySet());
+            }
+            final Set<T> throwers = throwersBySuperType.get(getKey(exceptionTypeToFind));
+            return throwers != null ? new LinkedList<T>(throwers) : new LinkedList<T>();
+        }
+
+        private Map<T, Set<ITypeBinding>> selectThrowingOtherThan(Set<ITypeBinding> exceptionTypesToReject) {
+            final Set<String> keysToReject = new HashSet<String>();
+            for (ITypeBinding exceptionType : exceptionTypesToReject) {
+                keysToReject.add(getKey(exceptionType));
+            }
+            // only the throwers of a rejected type need their thrown types to be filtered
+            final Set<T> throwersToFilter = new HashSet<T>();
+            for (String key : keysToReject) {
+                final Set<T> throwers = throwersBySuperType.get(key);
+                if (throwers != null) {
+                    throwersToFilter.addAll(throwers);
+                }
+            }
+            final Map<T, Set<ITypeBinding>> results = new HashMap<T, Set<ITypeBinding>>();
+            for (Entry<T, Set<ITypeBinding>> entry : thrownTypes.entrySet()) {
+                if (!throwersToFilter.contains(entry.getKey())) {
+                    results.put(entry.getKey(), new HashSet<ITypeBinding>(entry.getValue()));
+                    continue;
+                }
+                final Set<ITypeBinding> bindings = new HashSet<ITypeBinding>();
+                for (ITypeBinding thrownType : entry.getValue()) {
+                    if (Collections.disjoint(superTypeKeys.get(thrownType), keysToReject)) {
+                        bindings.add(thrownType);
+                    }
+                }
+                if (!bindings.isEmpty()) {
+                    results.put(entry.getKey(), bindings);
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public String toString() {
+            return thrownTypes.toString();
+        }
+    }
+
+    private final ThrowerIndex<CFGBasicBlock> potentialThrowingBlocks = new ThrowerIndex<CFGBasicBlock>();
+    private final ThrowerIndex<CFGEdgeBuilder> potentialThrowingEdges = new ThrowerIndex<CFGEdgeBuilder>();
 
     public void addThrow(CFGBasicBlock basicBlock, ITypeBinding... exceptionTypes) {
         if (exceptionTypes != null && exceptionTypes.length > 0) {
@@ -39,50 +125,54 @@ class ThrowerBlocks {
         return new HashSet<ITypeBinding>(Arrays.asList(exceptionTypes));
     }
 
-    public List<CFGBasicBlock> selectBlocksThrowing(ITypeBinding exceptionTypeToFind) {
-        final List<CFGBasicBlock> results = new LinkedList<CFGBasicBlock>();
-        for (Entry<CFGBasicBlock, Set<ITypeBinding>> entry : potentialThrowingBlocks.entrySet()) {
-            final Set<ITypeBinding> thrownTypes = entry.getValue();
-            if (exceptionTypeToFind == null || thrownTypes.contains(exceptionTypeToFind)) {
-                results.add(entry.getKey());
-            }
+    /** Returns the key of the erasure of the provided type, or null for an unresolved type. */
+    private static String getKey(ITypeBinding type) {
+        return type != null ? type.getErasure().getKey() : null;
+    }
+
+    /** Returns the keys of the provided type erasure and of all its superclasses, i.e. all the types catching it. */
+    private static List<String> getSuperTypeKeys(ITypeBinding type) {
+        final List<String> results = new ArrayList<String>();
+        if (type == null) {
+            results.add(null);
+            return results;
+        }
+        for (ITypeBinding superType = type; superType != null; superType = superType.getSuperclass()) {
+            results.add(getKey(superType));
         }
         return results;
     }
 
+    /**
+     * Returns the blocks throwing an exception which can be caught as the provided exception type.
+     *
+     * @param exceptionTypeToFind the caught exception type, or null to return all the throwing blocks
+     * @return the blocks throwing an exception which can be caught as the provided exception type
+     */
+    public List<CFGBasicBlock> selectBlocksThrowing(ITypeBinding exceptionTypeToFind) {
+        return potentialThrowingBlocks.selectThrowing(exceptionTypeToFind);
+    }
+
+    /**
+     * Returns the blocks throwing exceptions which cannot be caught as any of the provided exception types,
+     * with these exceptions.
+     *
+     * @param exceptionTypesToReject the caught exception types
+     * @return the blocks throwing exceptions which are not caught, with these exceptions
+     */
     public Map<CFGBasicBlock, Set<ITypeBinding>> selectBlocksThrowingOtherThan(
             Set<ITypeBinding> exceptionTypesToReject) {
-        Map<CFGBasicBlock, Set<ITypeBinding>> results = new HashMap<CFGBasicBlock, Set<ITypeBinding>>();
-        for (Entry<CFGBasicBlock, Set<ITypeBinding>> entry : potentialThrowingBlocks.entrySet()) {
-            final Set<ITypeBinding> bindings = getNonMatching(
-                    exceptionTypesToReject, entry.getValue());
-            if (!bindings.isEmpty()) {
-                results.put(entry.getKey(), bindings);
-            }
-        }
-        return results;
+        return potentialThrowingBlocks.selectThrowingOtherThan(exceptionTypesToReject);
     }
 
+    /**
+     * Returns the edges throwing an exception which can be caught as the provided exception type.
+     *
+     * @param exceptionTypeToFind the caught exception type, or null to return all the throwing edges
+     * @return the edges throwing an exception which can be caught as the provided exception type
+     */
     public List<CFGEdgeBuilder> selectEdgesThrowing(ITypeBinding exceptionTypeToFind) {
-        final List<CFGEdgeBuilder> results = new LinkedList<CFGEdgeBuilder>();
-        for (Entry<CFGEdgeBuilder, Set<ITypeBinding>> entry : potentialThrowingEdges.entrySet()) {
-            final Set<ITypeBinding> thrownTypes = entry.getValue();
-            if (exceptionTypeToFind == null || thrownTypes.contains(exceptionTypeToFind)) {
-                results.add(entry.getKey());
-            }
-        }
-        return results;
-    }
-
-    private Set<ITypeBinding> getNonMatching(Set<ITypeBinding> exceptionTypes,
-            Set<ITypeBinding> thrownTypes) {
-        final Set<ITypeBinding> results = new HashSet<ITypeBinding>();
-        for (ITypeBinding thrownType : thrownTypes) {
-            if (!exceptionTypes.contains(thrownType)) {
-                results.add(thrownType);
-            }
-        }
-        return results;
+        return potentialThrowingEdges.selectThrowing(exceptionTypeToFind);
     }
 
     @Override
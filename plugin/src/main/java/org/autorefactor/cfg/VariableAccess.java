@@ -70,6 +70,42 @@ public class VariableAccess {
         this(astNode, astNode instanceof Name ? (Name) astNode : null, null, accessType);
     }
 
+    /**
+     * Returns the AST node of the variable.
+     *
+     * @return the AST node of the variable
+     */
+    public ASTNode getAstNode() {
+        return astNode;
+    }
+
+    /**
+     * Returns the name of the variable.
+     *
+     * @return the name of the variable, or null if the accessed variable is not named
+     */
+    public Name getName() {
+        return name;
+    }
+
+    /**
+     * Returns the type of the variable.
+     *
+     * @return the type of the variable, only available for declarations
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the access type to the variable.
+     *
+     * @return the access type to the variable, a combination of the constants of this class
+     */
+    public int getAccessType() {
+        return accessType;
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder("VAR_ACCESS[");
@@ -31,6 +31,37 @@ public enum PreferenceConstants {
     DEBUG_MODE_ON(
             "debug_mode_on",
             "Enable debug mode (for developers)",
+            Boolean.FALSE),
+    /** Preference that turns recording and replaying the edit journal on or off. */
+    EDIT_JOURNAL_ON(
+            "edit_journal_on",
+            "Record applied refactorings in an edit journal and replay it for unchanged files",
+            Boolean.FALSE),
+    /** Preference holding the maximum time spent refactoring the edited lines when saving a file. */
+    SAVE_ACTION_TIME_BUDGET(
+            "save_action_time_budget",
+            "Maximum time (in milliseconds) spent refactoring the edited lines on save",
+            Integer.valueOf(50)),
+    /** Preference holding the git reference to compare with when refactoring the changed files. */
+    GIT_BASE_REF(
+            "git_base_ref",
+            "Git reference to compare with when refactoring changed files (leave empty to compare with the index)",
+            "HEAD"),
+    /** Preference that restricts refactoring the changed files to their changed lines. */
+    GIT_CHANGED_LINES_ONLY(
+            "git_changed_lines_only",
+            "Only refactor the changed lines when refactoring changed files",
+            Boolean.TRUE),
+    /** Preference holding the file where to write the findings of the report only mode as JSON. */
+    REPORT_JSON_FILE(
+            "report_json_file",
+            "File where to also write the findings as JSON when only reporting (leave empty for markers only)",
+            ""),
+    /** Preference that turns reporting the automatic refactorings of edited and built files on or off. */
+    REPORT_WHILE_BUILDING(
+            "report_while_building",
+            "Report the automatic refactorings of the files being built"
+                    + " (and edited, before Eclipse 4.4) as warnings",
             Boolean.FALSE);
 
     /** TODO use this for preferences initialization. */
@@ -36,6 +36,48 @@ public interface Preferences {
      */
     boolean debugModeOn();
 
+    /**
+     * Returns whether the edit journal is on.
+     *
+     * @return true if the edit journal is on, false otherwise.
+     */
+    boolean editJournalOn();
+
+    /**
+     * Returns the maximum time spent refactoring the edited lines when saving a file.
+     *
+     * @return the maximum time in milliseconds
+     */
+    int saveActionTimeBudget();
+
+    /**
+     * Returns the git reference to compare with when refactoring the changed files.
+     *
+     * @return the git reference, or an empty string to compare with the index
+     */
+    String gitBaseRef();
+
+    /**
+     * Returns whether refactoring the changed files is restricted to their changed lines.
+     *
+     * @return true if refactoring the changed files is restricted to their changed lines, false otherwise.
+     */
+    boolean gitChangedLinesOnly();
+
+    /**
+     * Returns the file where to write the findings of the report only mode as JSON.
+     *
+     * @return the path of the JSON file, or an empty string to only create problem markers
+     */
+    String reportJsonFile();
+
+    /**
+     * Returns whether the automatic refactorings of the files being edited or built are reported.
+     *
+     * @return true if the automatic refactorings of the files being edited or built are reported, false otherwise.
+     */
+    boolean reportWhileBuilding();
+
     /**
      * Returns whether this refactoring rule is on.
      *
@@ -26,8 +26,6 @@
 package org.autorefactor.refactoring;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -36,7 +34,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,13 +50,12 @@ import org.eclipse.jdt.core.dom.LineComment;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.text.edits.DeleteEdit;
 import org.eclipse.text.edits.InsertEdit;
-import org.eclipse.text.edits.MultiTextEdit;
 import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEdit;
-import org.eclipse.text.edits.TextEditVisitor;
 
 import static org.autorefactor.refactoring.ASTHelper.*;
 import static org.autorefactor.refactoring.SourceLocation.*;
+import static org.autorefactor.refactoring.TextEditIndex.*;
 
 /** This class rewrites AST comments. */
 public class ASTCommentRewriter {
@@ -154,36 +150,42 @@ public class ASTCommentRewriter {
         addReplacementEdits(commentEdits);
         addBlockCommentToJavadocEdits(commentEdits);
         addLineCommentsToJavadocEdits(commentEdits, source);
-        // detectPotentiallyMalformedTree(commentEdits, source);
-        if (!commentEdits.isEmpty() && !anyOverlaps(edits, commentEdits)) {
-            edits.addChildren(commentEdits.toArray(new TextEdit[commentEdits.size()]));
+        final List<TextEdit> sortedEdits = sortAndMergeAdjacentEdits(commentEdits);
+        // detectPotentiallyMalformedTree(sortedEdits, source);
+        if (!sortedEdits.isEmpty() && !new TextEditIndex(edits).overlapsWithAny(sortedEdits)) {
+            edits.addChildren(sortedEdits.toArray(new TextEdit[sortedEdits.size()]));
         }
         // else, code edits take priority. Give up applying current text edits.
         // They will be retried in the next refactoring loop.
     }
 
-    private void detectPotentiallyMalformedTree(List<TextEdit> commentEdits, final String source) {
-        if (commentEdits.isEmpty()) {
-            return;
-        }
-        Collections.sort(commentEdits, new Comparator<TextEdit>() {
-            @Override
-            public int compare(TextEdit te1, TextEdit te2) {
-                final SourceLocation sourceLoc1 = toSourceLoc(te1);
-                final SourceLocation sourceLoc2 = toSourceLoc(te2);
+    /**
+     * Detects overlapping edits in one pass over the provided edits.
+     *
+     * @param sortedEdits the edits, sorted by offset
+     * @param source the source being edited
+     */
+    private void detectPotentiallyMalformedTree(List<TextEdit> sortedEdits, String source) {
+        TextEdit widestEdit = null;
+        for (TextEdit edit : sortedEdits) {
+            if (widestEdit != null) {
+                final SourceLocation sourceLoc1 = toSourceLoc(widestEdit);
+                final SourceLocation sourceLoc2 = toSourceLoc(edit);
                 if (sourceLoc1.overlapsWith(sourceLoc2)) {
                     throw new IllegalStateException(null,
                             "Potentially malformed tree detected:\n"
-                            + " overlapping edit 1: " + toString(te1, sourceLoc1, source)
-                            + " overlapping edit 2: " + toString(te2, sourceLoc2, source));
+                            + " overlapping edit 1: " + toString(widestEdit, sourceLoc1, source)
+                            + " overlapping edit 2: " + toString(edit, sourceLoc2, source));
                 }
-                return sourceLoc1.compareTo(sourceLoc2);
             }
-
-            private String toString(TextEdit te, SourceLocation sourceLocation, String source) {
-                return te + "\"" + sourceLocation.substring(source) + "\"";
+            if (widestEdit == null || widestEdit.getExclusiveEnd() < edit.getExclusiveEnd()) {
+                widestEdit = edit;
             }
-        });
+        }
+    }
+
+    private String toString(TextEdit te, SourceLocation sourceLocation, String source) {
+        return te + "\"" + sourceLocation.substring(source) + "\"";
     }
 
     private int nbEdits() {
@@ -193,36 +195,6 @@ public class ASTCommentRewriter {
                 + lineCommentsToJavadoc.size();
     }
 
-    private boolean anyOverlaps(TextEdit edits, List<TextEdit> commentEdits) {
-        for (TextEdit commentEdit : commentEdits) {
-            if (overlaps(edits, commentEdit)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean overlaps(TextEdit edits, TextEdit edit2) {
-        final SourceLocation range = toSourceLoc(edit2);
-        final AtomicBoolean overlaps = new AtomicBoolean();
-        edits.accept(new TextEditVisitor() {
-            @Override
-            public boolean visit(MultiTextEdit edit) {
-                // move on there is nothing to check here
-                return VISIT_SUBTREE;
-            }
-
-            @Override
-            public boolean visitNode(TextEdit edit) {
-                if (!overlaps.get()) {
-                    overlaps.set(range.overlapsWith(toSourceLoc(edit)));
-                }
-                return !overlaps.get();
-            }
-        });
-        return overlaps.get();
-    }
-
     private SourceLocation toSourceLoc(TextEdit edit) {
         return new SourceLocation(edit.getOffset(), edit.getLength());
     }
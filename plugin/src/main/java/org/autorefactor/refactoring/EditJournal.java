@@ -0,0 +1,608 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.autorefactor.util.IllegalArgumentException;
+import org.autorefactor.util.IllegalStateException;
+import org.autorefactor.util.UnhandledException;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
+
+/**
+ * Journal of the edits applied to source files by the refactoring rules, pass after pass.
+ * <p>
+ * Each pass is recorded as plain offset/length/replacement operations tagged with the rules which contributed them.
+ * Unlike {@link org.eclipse.jdt.core.dom.rewrite.ASTRewrite} operations, these do not depend on any AST,
+ * so a journal can be persisted and later:
+ * <ul>
+ * <li>replayed against a file identical to the one originally refactored, without running any analysis,</li>
+ * <li>reverted as a cheap inverse patch,</li>
+ * <li>replayed outside of Eclipse, for example by a CI server (see {@link #main(String[])}).</li>
+ * </ul>
+ * Files are identified by their path and by a hash of their content.
+ * Note that the result of a run may also depend on other files (through type bindings), so replaying is only
+ * as reliable as the assumption that the rest of the code base did not change in a way affecting the rules.
+ * <p>
+ * This class is thread safe.
+ */
+public class EditJournal {
+    private static final String HEADER = "# AutoRefactor edit journal v1";
+    private static final String CHARSET = "UTF-8";
+
+    /** A single text replacement. */
+    public static final class Edit {
+        private final int offset;
+        private final String original;
+        private final String replacement;
+
+        private Edit(int offset, String original, String replacement) {
+            this.offset = offset;
+            this.original = original;
+            this.replacement = replacement;
+        }
+
+        /**
+         * Returns the offset of the replaced text in the source before the pass.
+         *
+         * @return the offset of the replaced text in the source before the pass
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the length of the replaced text in the source before the pass.
+         *
+         * @return the length of the replaced text in the source before the pass
+         */
+        public int getLength() {
+            return original.length();
+        }
+
+        /**
+         * Returns the replacement text.
+         *
+         * @return the replacement text
+         */
+        public String getReplacement() {
+            return replacement;
+        }
+
+        @Override
+        public String toString() {
+            return "Edit[offset=" + offset + ", length=" + getLength() + ", replacement=" + replacement + "]";
+        }
+    }
+
+    /** The edits applied to a file by one pass of the refactoring rules. */
+    public static final class Pass {
+        private final List<String> rules;
+        /** Sorted by offset, non overlapping. */
+        private final List<Edit> edits;
+
+        private Pass(List<String> rules, List<Edit> edits) {
+            this.rules = rules;
+            this.edits = edits;
+        }
+
+        /**
+         * Returns the names of the rules which contributed this pass.
+         *
+         * @return the names of the rules which contributed this pass
+         */
+        public List<String> getRules() {
+            return Collections.unmodifiableList(rules);
+        }
+
+        /**
+         * Returns the edits of this pass, sorted by offset.
+         *
+         * @return the edits of this pass, sorted by offset
+         */
+        public List<Edit> getEdits() {
+            return Collections.unmodifiableList(edits);
+        }
+
+        private String apply(String source) {
+            final StringBuilder sb = new StringBuilder(source.length());
+            int last = 0;
+            for (Edit edit : edits) {
+                sb.append(source, last, edit.offset).append(edit.replacement);
+                last = edit.offset + edit.getLength();
+            }
+            return sb.append(source, last, source.length()).toString();
+        }
+
+        private String revert(String source) {
+            final StringBuilder sb = new StringBuilder(source.length());
+            int last = 0;
+            int shift = 0;
+            for (Edit edit : edits) {
+                final int offset = edit.offset + shift;
+                sb.append(source, last, offset).append(edit.original);
+                last = offset + edit.replacement.length();
+                shift += edit.replacement.length() - edit.getLength();
+            }
+            return sb.append(source, last, source.length()).toString();
+        }
+    }
+
+    /** The journal of one file. */
+    private static final class FileEntry {
+        private final String configuration;
+        private final String initialHash;
+        private final List<Pass> passes = new ArrayList<Pass>();
+        /** Null while the file is still being refactored. */
+        private String finalHash;
+
+        private FileEntry(String configuration, String initialHash) {
+            this.configuration = configuration;
+            this.initialHash = initialHash;
+        }
+    }
+
+    private final Map<String, FileEntry> entries = new LinkedHashMap<String, FileEntry>();
+    /** The files being refactored with passes which could not be journaled. */
+    private final Set<String> unrecordedFiles = new HashSet<String>();
+
+    /**
+     * Starts recording the refactoring of the provided file, discarding any previous record for it.
+     *
+     * @param path the path of the file
+     * @param configuration a description of everything else than the file content affecting the result of the run,
+     *            like the rules to apply and the project options
+     * @param source the content of the file before refactoring
+     */
+    public synchronized void startFile(String path, String configuration, String source) {
+        unrecordedFiles.remove(path);
+        entries.put(path, new FileEntry(configuration, hash(source)));
+    }
+
+    /**
+     * Records a pass of the refactoring rules over the provided file.
+     * <p>
+     * If the undo edit contains edits which cannot be expressed as text replacements,
+     * the record of this file is dropped and the rest of its run is not journaled.
+     *
+     * @param path the path of the file
+     * @param rules the names of the rules which contributed this pass
+     * @param undo the edit reverting this pass, as returned by {@link Refactorings#applyTo(
+     *            org.eclipse.jface.text.IDocument)}
+     * @param refactoredSource the content of the file after this pass
+     */
+    public synchronized void recordPass(String path, Collection<String> rules, UndoEdit undo,
+            String refactoredSource) {
+        if (unrecordedFiles.contains(path)) {
+            return;
+        }
+        final FileEntry entry = getEntryBeingRecorded(path);
+        final List<TextEdit> undoEdits = new ArrayList<TextEdit>();
+        if (!collectLeaves(undo, undoEdits)) {
+            // the journal of this file would not be replayable
+            entries.remove(path);
+            unrecordedFiles.add(path);
+            return;
+        }
+        final List<Edit> edits = new ArrayList<Edit>(undoEdits.size());
+        // undo edits are expressed in the coordinates of the refactored source:
+        // shift them back to the coordinates of the source before this pass
+        int shift = 0;
+        for (TextEdit undoEdit : sortByOffset(undoEdits)) {
+            final String original = getText(undoEdit);
+            final String replacement = refactoredSource.substring(undoEdit.getOffset(), undoEdit.getExclusiveEnd());
+            edits.add(new Edit(undoEdit.getOffset() - shift, original, replacement));
+            shift += replacement.length() - original.length();
+        }
+        entry.passes.add(new Pass(new ArrayList<String>(rules), edits));
+    }
+
+    /**
+     * Collects the leaf edits of the provided edit.
+     *
+     * @return false if one of the leaf edits is not a text replacement, like a move or a copy edit
+     */
+    private boolean collectLeaves(TextEdit edit, List<TextEdit> leaves) {
+        if (edit instanceof ReplaceEdit || edit instanceof InsertEdit || edit instanceof DeleteEdit) {
+            leaves.add(edit);
+            return true;
+        } else if (!(edit instanceof UndoEdit) && !(edit instanceof MultiTextEdit)) {
+            return false;
+        }
+        for (TextEdit child : edit.getChildren()) {
+            if (!collectLeaves(child, leaves)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the text of the source before the pass replaced by the provided undo edit. */
+    private String getText(TextEdit undoEdit) {
+        if (undoEdit instanceof ReplaceEdit) {
+            return ((ReplaceEdit) undoEdit).getText();
+        } else if (undoEdit instanceof InsertEdit) {
+            return ((InsertEdit) undoEdit).getText();
+        }
+        // undoing a deletion of text means it had been inserted by the pass
+        return "";
+    }
+
+    private List<TextEdit> sortByOffset(List<TextEdit> edits) {
+        final List<TextEdit> results = new ArrayList<TextEdit>(edits);
+        Collections.sort(results, new Comparator<TextEdit>() {
+            @Override
+            public int compare(TextEdit te1, TextEdit te2) {
+                return te1.getOffset() - te2.getOffset();
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Marks the provided file as completely refactored.
+     *
+     * @param path the path of the file
+     * @param source the content of the file after all the passes
+     */
+    public synchronized void endFile(String path, String source) {
+        if (!unrecordedFiles.remove(path)) {
+            getEntryBeingRecorded(path).finalHash = hash(source);
+        }
+    }
+
+    /**
+     * Forgets any record of the provided file, for example because its refactoring did not converge.
+     *
+     * @param path the path of the file
+     */
+    public synchronized void discardFile(String path) {
+        unrecordedFiles.remove(path);
+        entries.remove(path);
+    }
+
+    private FileEntry getEntryBeingRecorded(String path) {
+        final FileEntry entry = entries.get(path);
+        if (entry == null || entry.finalHash != null) {
+            throw new IllegalStateException(null, "The recording of file " + path + " has not been started");
+        }
+        return entry;
+    }
+
+    /**
+     * Returns whether this journal holds a complete record of a run for the provided file with the provided content
+     * and configuration.
+     *
+     * @param path the path of the file
+     * @param configuration the configuration of the current run
+     * @param source the current content of the file
+     * @return true if the recorded run can be replayed, false otherwise
+     */
+    public synchronized boolean canReplay(String path, String configuration, String source) {
+        final FileEntry entry = entries.get(path);
+        return entry != null
+                && entry.finalHash != null
+                && entry.configuration.equals(configuration)
+                && entry.initialHash.equals(hash(source));
+    }
+
+    /**
+     * Returns the passes recorded for the provided file.
+     *
+     * @param path the path of the file
+     * @return the passes recorded for the provided file, empty if no run was recorded for it
+     */
+    public synchronized List<Pass> getPasses(String path) {
+        final FileEntry entry = entries.get(path);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<Pass>(entry.passes));
+    }
+
+    /**
+     * Replays all the recorded passes against the provided source.
+     *
+     * @param path the path of the file
+     * @param source the content of the file, it must be identical to the content before the recorded run
+     * @return the refactored source
+     */
+    public synchronized String replay(String path, String source) {
+        final FileEntry entry = getCompleteEntry(path);
+        checkHash(path, entry.initialHash, source);
+        String result = source;
+        for (Pass pass : entry.passes) {
+            result = pass.apply(result);
+        }
+        return result;
+    }
+
+    /**
+     * Reverts all the recorded passes from the provided source.
+     *
+     * @param path the path of the file
+     * @param source the content of the file, it must be identical to the content after the recorded run
+     * @return the source as it was before the recorded run
+     */
+    public synchronized String revert(String path, String source) {
+        final FileEntry entry = getCompleteEntry(path);
+        checkHash(path, entry.finalHash, source);
+        String result = source;
+        for (int i = entry.passes.size() - 1; i >= 0; i--) {
+            result = entry.passes.get(i).revert(result);
+        }
+        return result;
+    }
+
+    private FileEntry getCompleteEntry(String path) {
+        final FileEntry entry = entries.get(path);
+        if (entry == null || entry.finalHash == null) {
+            throw new IllegalArgumentException(null, "No complete record for file " + path);
+        }
+        return entry;
+    }
+
+    private void checkHash(String path, String expectedHash, String source) {
+        if (!expectedHash.equals(hash(source))) {
+            throw new IllegalArgumentException(null,
+                    "The content of file " + path + " differs from the content recorded in the journal");
+        }
+    }
+
+    /**
+     * Returns the paths of the files recorded in this journal.
+     *
+     * @return the paths of the files recorded in this journal
+     */
+    public synchronized List<String> getPaths() {
+        return new ArrayList<String>(entries.keySet());
+    }
+
+    /**
+     * Writes the complete records of this journal to the provided writer.
+     * <p>
+     * The format is line oriented and meant to be reviewed like a patch.
+     *
+     * @param writer where to write this journal
+     * @throws IOException if an I/O problem occurs
+     */
+    public synchronized void write(Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (Entry<String, FileEntry> mapEntry : entries.entrySet()) {
+            final FileEntry entry = mapEntry.getValue();
+            if (entry.finalHash == null) {
+                continue;
+            }
+            writeLine(writer, "file ", escape(mapEntry.getKey()));
+            writeLine(writer, "configuration ", escape(entry.configuration));
+            writeLine(writer, "initial ", entry.initialHash);
+            writeLine(writer, "final ", entry.finalHash);
+            for (Pass pass : entry.passes) {
+                final StringBuilder rules = new StringBuilder();
+                for (String rule : pass.rules) {
+                    rules.append(' ').append(rule);
+                }
+                writeLine(writer, "pass", rules.toString());
+                for (Edit edit : pass.edits) {
+                    writeLine(writer, "edit ", edit.offset + " " + edit.getLength());
+                    writeLine(writer, "-", escape(edit.original));
+                    writeLine(writer, "+", escape(edit.replacement));
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeLine(Writer writer, String key, String value) throws IOException {
+        writer.write(key);
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    /**
+     * Reads the records of the provided reader into this journal.
+     * Records for files already present in this journal are replaced.
+     *
+     * @param reader where to read the journal from
+     * @throws IOException if an I/O problem occurs
+     */
+    public synchronized void read(Reader reader) throws IOException {
+        final BufferedReader br = new BufferedReader(reader);
+        String line = br.readLine();
+        if (!HEADER.equals(line)) {
+            throw new IOException("Not an AutoRefactor edit journal, first line is: " + line);
+        }
+        FileEntry entry = null;
+        List<Edit> edits = null;
+        while ((line = br.readLine()) != null) {
+            if (line.startsWith("file ")) {
+                final String path = unescape(line.substring("file ".length()));
+                final String configuration = unescape(readValue(br, "configuration "));
+                final String initialHash = readValue(br, "initial ");
+                entry = new FileEntry(configuration, initialHash);
+                entry.finalHash = readValue(br, "final ");
+                entries.put(path, entry);
+            } else if (entry != null && line.startsWith("pass")) {
+                final String rules = line.substring("pass".length()).trim();
+                edits = new ArrayList<Edit>();
+                entry.passes.add(new Pass(
+                        rules.length() > 0 ? Arrays.asList(rules.split(" ")) : Collections.<String> emptyList(),
+                        edits));
+            } else if (edits != null && line.startsWith("edit ")) {
+                final String[] offsetAndLength = line.substring("edit ".length()).split(" ");
+                final String original = unescape(readValue(br, "-"));
+                final String replacement = unescape(readValue(br, "+"));
+                if (original.length() != Integer.parseInt(offsetAndLength[1])) {
+                    throw new IOException("Corrupted journal, wrong length for edit: " + line);
+                }
+                edits.add(new Edit(Integer.parseInt(offsetAndLength[0]), original, replacement));
+            } else if (line.length() > 0) {
+                throw new IOException("Corrupted journal, unexpected line: " + line);
+            }
+        }
+    }
+
+    private String readValue(BufferedReader br, String key) throws IOException {
+        final String line = br.readLine();
+        if (line == null || !line.startsWith(key)) {
+            throw new IOException("Corrupted journal, expected '" + key + "' but found: " + line);
+        }
+        return line.substring(key.length());
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\r", "\\r").replace("\n", "\\n");
+    }
+
+    private static String unescape(String s) {
+        final StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                final char next = s.charAt(++i);
+                if (next == 'n') {
+                    sb.append('\n');
+                } else if (next == 'r') {
+                    sb.append('\r');
+                } else {
+                    sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a hash of the provided source, suitable to detect whether a file changed.
+     *
+     * @param source the source to hash
+     * @return a hash of the provided source
+     */
+    public static String hash(String source) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(CHARSET));
+            final StringBuilder sb = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnhandledException(null, e);
+        } catch (IOException e) {
+            throw new UnhandledException(null, e);
+        }
+    }
+
+    /**
+     * Replays or reverts a journal against a directory tree, without Eclipse.
+     * <p>
+     * Usage: <code>EditJournal (replay|revert) &lt;journal file&gt; &lt;root directory&gt;</code>,
+     * where the root directory plays the role of the Eclipse workspace root for the paths recorded in the journal.
+     * Files are read and written as UTF-8.
+     *
+     * @param args the arguments of the Java program
+     * @throws IOException if an I/O problem occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || (!"replay".equals(args[0]) && !"revert".equals(args[0]))) {
+            System.err.println("Usage: EditJournal (replay|revert) <journal file> <root directory>");
+            System.exit(1);
+        }
+        final boolean replay = "replay".equals(args[0]);
+        final EditJournal journal = new EditJournal();
+        final Reader reader = new InputStreamReader(new FileInputStream(args[1]), CHARSET);
+        try {
+            journal.read(reader);
+        } finally {
+            reader.close();
+        }
+
+        final File root = new File(args[2]);
+        for (String path : journal.getPaths()) {
+            final File file = new File(root, path);
+            final String source = readAll(file);
+            final String result = replay ? journal.replay(path, source) : journal.revert(path, source);
+            if (!result.equals(source)) {
+                writeAll(file, result);
+                System.out.println((replay ? "Refactored " : "Reverted ") + path);
+            }
+        }
+    }
+
+    private static String readAll(File file) throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+        try {
+            final StringBuilder sb = new StringBuilder();
+            final char[] buffer = new char[8192];
+            int nbRead;
+            while ((nbRead = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, nbRead);
+            }
+            return sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeAll(File file, String content) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), CHARSET));
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+/**
+ * A place in a compilation unit which a refactoring rule would refactor,
+ * reported instead of being refactored when running in report only mode.
+ */
+public class Finding {
+    private final String ruleName;
+    private final int startPosition;
+    private final int length;
+    private final int lineNumber;
+    private final String message;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param ruleName the name of the refactoring rule reporting this finding
+     * @param startPosition the start position of the code to refactor
+     * @param length the length of the code to refactor
+     * @param lineNumber the line number where the code to refactor starts, or -1 if unknown
+     * @param message the message describing this finding
+     */
+    public Finding(String ruleName, int startPosition, int length, int lineNumber, String message) {
+        this.ruleName = ruleName;
+        this.startPosition = startPosition;
+        this.length = length;
+        this.lineNumber = lineNumber;
+        this.message = message;
+    }
+
+    /**
+     * Returns the name of the refactoring rule reporting this finding.
+     *
+     * @return the name of the refactoring rule reporting this finding
+     */
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    /**
+     * Returns the start position of the code to refactor.
+     *
+     * @return the start position of the code to refactor
+     */
+    public int getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * Returns the length of the code to refactor.
+     *
+     * @return the length of the code to refactor
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the line number where the code to refactor starts.
+     *
+     * @return the line number where the code to refactor starts, or -1 if unknown
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the message describing this finding.
+     *
+     * @return the message describing this finding
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + lineNumber + " [" + ruleName + "] " + message;
+    }
+}
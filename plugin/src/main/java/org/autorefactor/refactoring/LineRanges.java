@@ -0,0 +1,198 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.autorefactor.util.IllegalArgumentException;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+
+/**
+ * Set of line ranges in a source file. Line numbers are one-based and ranges include both their start and end lines.
+ * <p>
+ * Adjacent and overlapping ranges are merged when they are added,
+ * so intersection queries are answered in O(log n).
+ */
+public class LineRanges {
+    /** Maps the start line of each range to its end line. */
+    private final TreeMap<Integer, Integer> ranges = new TreeMap<Integer, Integer>();
+
+    /**
+     * Adds the provided line range to this set.
+     *
+     * @param startLine the first line of the range
+     * @param endLine the last line of the range
+     */
+    public void add(int startLine, int endLine) {
+        if (startLine > endLine) {
+            throw new IllegalArgumentException(null,
+                    "Start line " + startLine + " must not be greater than end line " + endLine);
+        }
+        int start = startLine;
+        int end = endLine;
+        // merge with the range starting before, if it overlaps or is adjacent
+        final Entry<Integer, Integer> before = ranges.floorEntry(start);
+        if (before != null && before.getValue() >= start - 1) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+        }
+        // merge with the ranges starting inside the new range, or just after it
+        Entry<Integer, Integer> after;
+        while ((after = ranges.ceilingEntry(start)) != null && after.getKey() <= end + 1) {
+            end = Math.max(end, after.getValue());
+            ranges.remove(after.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    /**
+     * Returns whether this set does not contain any line.
+     *
+     * @return true if this set does not contain any line, false otherwise
+     */
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * Returns whether the provided line is in this set.
+     *
+     * @param line the line to look for
+     * @return true if the provided line is in this set, false otherwise
+     */
+    public boolean contains(int line) {
+        return intersects(line, line);
+    }
+
+    /**
+     * Returns whether any line of the provided range is in this set.
+     *
+     * @param startLine the first line of the range
+     * @param endLine the last line of the range
+     * @return true if any line of the provided range is in this set, false otherwise
+     */
+    public boolean intersects(int startLine, int endLine) {
+        // the candidate is the last range starting before the end of the provided range
+        final Entry<Integer, Integer> candidate = ranges.floorEntry(endLine);
+        return candidate != null && candidate.getValue() >= startLine;
+    }
+
+    /**
+     * Returns the regions of the provided document covered by this set of lines.
+     * <p>
+     * Once added to the document, these positions are kept up to date while the document is modified,
+     * so the lines can later be recomputed with {@link #fromPositions(IDocument, Collection)}.
+     *
+     * @param document the document containing the lines
+     * @return the regions of the provided document covered by this set of lines
+     * @throws BadLocationException if a line does not exist in the provided document
+     */
+    public List<Position> toPositions(IDocument document) throws BadLocationException {
+        final List<Position> results = new ArrayList<Position>(ranges.size());
+        for (Entry<Integer, Integer> range : ranges.entrySet()) {
+            final int startLine = Math.min(range.getKey(), document.getNumberOfLines()) - 1;
+            final int endLine = Math.min(range.getValue(), document.getNumberOfLines()) - 1;
+            final int startOffset = document.getLineOffset(startLine);
+            final int endOffset = document.getLineOffset(endLine) + document.getLineLength(endLine);
+            results.add(new Position(startOffset, endOffset - startOffset));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the lines of the provided document covered by the provided regions.
+     *
+     * @param document the document containing the regions
+     * @param positions the regions of the document
+     * @return the lines covered by the provided regions
+     * @throws BadLocationException if a region does not exist in the provided document
+     */
+    public static LineRanges fromPositions(IDocument document, Collection<Position> positions)
+            throws BadLocationException {
+        final LineRanges results = new LineRanges();
+        for (Position position : positions) {
+            if (!position.isDeleted()) {
+                final int startLine = document.getLineOfOffset(position.getOffset()) + 1;
+                final int endLine = document.getLineOfOffset(
+                        position.getOffset() + Math.max(0, position.getLength() - 1)) + 1;
+                results.add(startLine, endLine);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the lines of the new source which differ from the old source.
+     * <p>
+     * Only the common leading and trailing lines are matched,
+     * so the result is a single range covering all the changes.
+     * When lines have only been deleted, the line following the deletion is returned.
+     *
+     * @param oldSource the source before the changes
+     * @param newSource the source after the changes
+     * @return the changed lines of the new source
+     */
+    public static LineRanges ofChangedLines(String oldSource, String newSource) {
+        final LineRanges results = new LineRanges();
+        final String[] oldLines = oldSource.split("\r\n|\r|\n", -1);
+        final String[] newLines = newSource.split("\r\n|\r|\n", -1);
+        final int minLength = Math.min(oldLines.length, newLines.length);
+        int prefix = 0;
+        while (prefix < minLength && oldLines[prefix].equals(newLines[prefix])) {
+            prefix++;
+        }
+        if (prefix == oldLines.length && prefix == newLines.length) {
+            return results;
+        }
+        int suffix = 0;
+        while (suffix < minLength - prefix
+                && oldLines[oldLines.length - 1 - suffix].equals(newLines[newLines.length - 1 - suffix])) {
+            suffix++;
+        }
+        final int startLine = Math.min(prefix + 1, newLines.length);
+        final int endLine = Math.max(startLine, newLines.length - suffix);
+        results.add(startLine, endLine);
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (Entry<Integer, Integer> range : ranges.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(",");
+            }
+            sb.append(range.getKey()).append("-").append(range.getValue());
+        }
+        return sb.toString();
+    }
+}
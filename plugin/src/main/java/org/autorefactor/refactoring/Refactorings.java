@@ -25,6 +25,7 @@
  */
 package org.autorefactor.refactoring;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -33,12 +34,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
 
+import org.autorefactor.util.IllegalStateException;
 import org.autorefactor.util.Pair;
-import org.autorefactor.util.UnhandledException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.BlockComment;
@@ -52,8 +50,15 @@ import org.eclipse.jdt.core.dom.rewrite.ListRewrite;
 import org.eclipse.jdt.core.dom.rewrite.TargetSourceRangeComputer;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.swt.widgets.Display;
+import org.eclipse.text.edits.CopySourceEdit;
+import org.eclipse.text.edits.CopyTargetEdit;
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MoveSourceEdit;
+import org.eclipse.text.edits.MoveTargetEdit;
+import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
 
 /**
  * Class aggregating all the refactorings performed by a refactoring rule until
@@ -62,7 +67,9 @@ import org.eclipse.text.edits.TextEdit;
 public class Refactorings {
 
     private static final String UNTOUCH_COMMENT = "untouchComment";
-    private boolean hasRefactorings;
+    private int nbRefactorings;
+    /** Whether the refactorings are only counted, without recording the changes to make. */
+    private final boolean countOnly;
     private final ASTRewrite rewrite;
     private final Map<Pair<ASTNode, ChildListPropertyDescriptor>, ListRewrite> listRewriteCache =
             new HashMap<Pair<ASTNode, ChildListPropertyDescriptor>, ListRewrite>();
@@ -70,6 +77,11 @@ public class Refactorings {
     private final SourceRewriter sourceRewriter = new SourceRewriter();
     /** Nodes that cannot be visited. */
     private final Set<ASTNode> refactoredNodes = new HashSet<ASTNode>();
+    /**
+     * The source ranges touched by each visit, the last list being for the current visit.
+     * The edits of one visit are applied together or not at all.
+     */
+    private final List<List<SourceLocation>> visitRanges = new ArrayList<List<SourceLocation>>();
 
     /**
      * Builds an instance of this class.
@@ -77,6 +89,21 @@ public class Refactorings {
      * @param astRoot the compilation unit, root of the AST
      */
     public Refactorings(CompilationUnit astRoot) {
+        this(astRoot, false);
+    }
+
+    /**
+     * Builds an instance of this class.
+     * <p>
+     * When only counting the refactorings, the changes to make are not recorded,
+     * so the refactorings can never be applied.
+     * This is for the report only mode, where the refactored nodes are all that is needed.
+     *
+     * @param astRoot the compilation unit, root of the AST
+     * @param countOnly whether to only count the refactorings, without recording the changes to make
+     */
+    public Refactorings(CompilationUnit astRoot, boolean countOnly) {
+        this.countOnly = countOnly;
         this.rewrite = ASTRewrite.create(astRoot.getAST());
         this.rewrite.setTargetSourceRangeComputer(new TargetSourceRangeComputer() {
             public SourceRange computeSourceRange(ASTNode node) {
@@ -87,6 +114,34 @@ public class Refactorings {
             }
         });
         this.commentRewriter = new ASTCommentRewriter(astRoot);
+        startVisit();
+    }
+
+    /**
+     * Starts recording the refactorings of a new visit.
+     * <p>
+     * When the refactorings are restricted to some lines,
+     * the edits of one visit are either all applied or all discarded,
+     * so that a visit modifying several regions of the source code is never applied in part.
+     *
+     * @see #toTextEdit(IDocument, LineRanges)
+     */
+    public void startVisit() {
+        if (visitRanges.isEmpty() || !visitRanges.get(visitRanges.size() - 1).isEmpty()) {
+            visitRanges.add(new ArrayList<SourceLocation>());
+        }
+    }
+
+    private void addVisitRange(ASTNode node) {
+        if (node != null && node.getStartPosition() >= 0) {
+            addVisitRange(new SourceLocation(node));
+        }
+    }
+
+    private void addVisitRange(SourceLocation range) {
+        if (!countOnly) {
+            visitRanges.get(visitRanges.size() - 1).add(range);
+        }
     }
 
     /**
@@ -108,8 +163,12 @@ public class Refactorings {
         return refactoredNodes.contains(node);
     }
 
+    private void addRefactoring(ASTNode node) {
+        nbRefactorings++;
+        addRefactoredNodes(node);
+    }
+
     private void addRefactoredNodes(ASTNode node) {
-        hasRefactorings = true;
         refactoredNodes.add(node);
         if (node.getParent() != null) {
             addRefactoredNodes(node.getParent());
@@ -129,6 +188,7 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createCopyTarget(T node) {
+        addVisitRange(node);
         return (T) rewrite.createCopyTarget(node);
     }
 
@@ -146,6 +206,8 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createCopyTarget(T first, T last) {
+        addVisitRange(first);
+        addVisitRange(last);
         return (T) getListRewrite(first).createCopyTarget(first, last);
     }
 
@@ -181,6 +243,7 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createMoveTarget(T node) {
+        addVisitRange(node);
         return (T) rewrite.createMoveTarget(node);
     }
 
@@ -207,6 +270,8 @@ public class Refactorings {
      */
     @SuppressWarnings("unchecked")
     public <T extends ASTNode> T createMoveTarget(T first, T last) {
+        addVisitRange(first);
+        addVisitRange(last);
         return (T) getListRewrite(first).createMoveTarget(first, last);
     }
 
@@ -252,9 +317,12 @@ public class Refactorings {
      * @see ASTRewrite#replace(ASTNode, ASTNode, org.eclipse.text.edits.TextEditGroup)
      */
     public void replace(ASTNode node, ASTNode replacement) {
-        node.setProperty(UNTOUCH_COMMENT, Boolean.TRUE);
-        rewrite.replace(node, replacement, null);
-        addRefactoredNodes(node);
+        if (!countOnly) {
+            node.setProperty(UNTOUCH_COMMENT, Boolean.TRUE);
+            rewrite.replace(node, replacement, null);
+        }
+        addVisitRange(node);
+        addRefactoring(node);
     }
 
     /**
@@ -264,8 +332,11 @@ public class Refactorings {
      * @param replacement the replacement text
      */
     public void replace(Comment comment, String replacement) {
-        hasRefactorings = true;
-        commentRewriter.replace(comment, replacement);
+        nbRefactorings++;
+        if (!countOnly) {
+            commentRewriter.replace(comment, replacement);
+        }
+        addVisitRange(comment);
     }
 
     /**
@@ -275,8 +346,11 @@ public class Refactorings {
      * @param replacement the replacement string
      */
     public void replace(SourceLocation toReplace, String replacement) {
-        hasRefactorings = true;
-        this.sourceRewriter.replace(toReplace, replacement);
+        nbRefactorings++;
+        if (!countOnly) {
+            this.sourceRewriter.replace(toReplace, replacement);
+        }
+        addVisitRange(toReplace);
     }
 
     /**
@@ -286,12 +360,15 @@ public class Refactorings {
      * @see ASTRewrite#remove(ASTNode, org.eclipse.text.edits.TextEditGroup)
      */
     public void remove(ASTNode node) {
-        if (node instanceof Comment) {
-            commentRewriter.remove((Comment) node);
-        } else {
-            rewrite.remove(node, null);
+        if (!countOnly) {
+            if (node instanceof Comment) {
+                commentRewriter.remove((Comment) node);
+            } else {
+                rewrite.remove(node, null);
+            }
         }
-        addRefactoredNodes(node);
+        addVisitRange(node);
+        addRefactoring(node);
     }
 
     /**
@@ -303,8 +380,11 @@ public class Refactorings {
         if (toRemove.getLength() == 0) {
             throw new IllegalArgumentException("Cannot remove an empty source range: " + toRemove);
         }
-        hasRefactorings = true;
-        sourceRewriter.remove(toRemove);
+        nbRefactorings++;
+        if (!countOnly) {
+            sourceRewriter.remove(toRemove);
+        }
+        addVisitRange(toRemove);
     }
 
     /**
@@ -335,7 +415,17 @@ public class Refactorings {
      * @return true if this instance has any refactorings, false otherwise.
      */
     public boolean hasRefactorings() {
-        return hasRefactorings;
+        return nbRefactorings > 0;
+    }
+
+    /**
+     * Returns the number of refactorings added to this instance so far.
+     * Comparing it before and after a rule visits a node tells whether this rule refactored anything.
+     *
+     * @return the number of refactorings added to this instance so far
+     */
+    public int getNbRefactorings() {
+        return nbRefactorings;
     }
 
     /**
@@ -349,8 +439,11 @@ public class Refactorings {
      */
     public void insertAt(
             ASTNode listHolder, StructuralPropertyDescriptor locationInParent, ASTNode nodeToInsert, int index) {
-        getListRewrite(listHolder, locationInParent).insertAt(nodeToInsert, index, null);
-        addRefactoredNodes(listHolder);
+        if (!countOnly) {
+            getListRewrite(listHolder, locationInParent).insertAt(nodeToInsert, index, null);
+        }
+        addVisitRange(listHolder);
+        addRefactoring(listHolder);
     }
 
     /**
@@ -361,8 +454,11 @@ public class Refactorings {
      * @see ListRewrite#insertBefore(ASTNode, ASTNode, org.eclipse.text.edits.TextEditGroup)
      */
     public void insertBefore(ASTNode nodeToInsert, ASTNode element) {
-        getListRewrite(element).insertBefore(nodeToInsert, element, null);
-        addRefactoredNodes(element.getParent());
+        if (!countOnly) {
+            getListRewrite(element).insertBefore(nodeToInsert, element, null);
+        }
+        addVisitRange(element);
+        addRefactoring(element.getParent());
     }
 
     /**
@@ -373,8 +469,11 @@ public class Refactorings {
      * @see ListRewrite#insertAfter(ASTNode, ASTNode, org.eclipse.text.edits.TextEditGroup)
      */
     public void insertAfter(ASTNode nodeToInsert, ASTNode element) {
-        getListRewrite(element).insertAfter(nodeToInsert, element, null);
-        addRefactoredNodes(element.getParent());
+        if (!countOnly) {
+            getListRewrite(element).insertAfter(nodeToInsert, element, null);
+        }
+        addVisitRange(element);
+        addRefactoring(element.getParent());
     }
 
     /**
@@ -386,8 +485,11 @@ public class Refactorings {
      * @see ListRewrite#insertFirst(ASTNode, org.eclipse.text.edits.TextEditGroup)
      */
     public void insertFirst(ASTNode listHolder, StructuralPropertyDescriptor locationInParent, ASTNode nodeToInsert) {
-        getListRewrite(listHolder, locationInParent).insertFirst(nodeToInsert, null);
-        addRefactoredNodes(listHolder);
+        if (!countOnly) {
+            getListRewrite(listHolder, locationInParent).insertFirst(nodeToInsert, null);
+        }
+        addVisitRange(listHolder);
+        addRefactoring(listHolder);
     }
 
     /**
@@ -399,8 +501,11 @@ public class Refactorings {
      * @see ListRewrite#insertLast(ASTNode, org.eclipse.text.edits.TextEditGroup)
      */
     public void insertLast(ASTNode listHolder, StructuralPropertyDescriptor locationInParent, ASTNode nodeToInsert) {
-        getListRewrite(listHolder, locationInParent).insertLast(nodeToInsert, null);
-        addRefactoredNodes(listHolder);
+        if (!countOnly) {
+            getListRewrite(listHolder, locationInParent).insertLast(nodeToInsert, null);
+        }
+        addVisitRange(listHolder);
+        addRefactoring(listHolder);
     }
 
     /**
@@ -422,8 +527,11 @@ public class Refactorings {
      * @param nextNode the AST node immediately following the line comment
      */
     public void toJavadoc(LineComment lineComment, ASTNode nextNode) {
-        hasRefactorings = true;
-        commentRewriter.toJavadoc(lineComment, nextNode);
+        nbRefactorings++;
+        if (!countOnly) {
+            commentRewriter.toJavadoc(lineComment, nextNode);
+        }
+        addVisitRange(lineComment);
     }
 
     /**
@@ -432,8 +540,11 @@ public class Refactorings {
      * @param blockComment the block comment to convert to javadoc
      */
     public void toJavadoc(BlockComment blockComment) {
-        hasRefactorings = true;
-        commentRewriter.toJavadoc(blockComment);
+        nbRefactorings++;
+        if (!countOnly) {
+            commentRewriter.toJavadoc(blockComment);
+        }
+        addVisitRange(blockComment);
     }
 
     /**
@@ -445,51 +556,192 @@ public class Refactorings {
      * @see ASTRewrite#set(ASTNode, StructuralPropertyDescriptor, Object, org.eclipse.text.edits.TextEditGroup)
      */
     public void set(ASTNode node, StructuralPropertyDescriptor property, Object value) {
-        rewrite.set(node, property, value, null);
-        addRefactoredNodes(node);
+        if (!countOnly) {
+            rewrite.set(node, property, value, null);
+        }
+        addVisitRange(node);
+        addRefactoring(node);
     }
 
     /**
      * Applies the accumulated refactorings to the provided document.
+     * <p>
+     * The edits are applied on the calling thread, so the provided document must not be bound to an open editor:
+     * use a file buffer document nobody else is connected to, or an in-memory document.
+     *
+     * @param document the document to refactor
+     * @return the edit which reverts the applied refactorings,
+     *         it is expressed in the coordinates of the refactored document
+     * @throws BadLocationException if trying to access a non existing position
+     */
+    public UndoEdit applyTo(final IDocument document) throws BadLocationException {
+        return toTextEdit(document).apply(document);
+    }
+
+    /**
+     * Applies the accumulated refactorings to the provided document,
+     * except those of the visits which modify lines outside the provided line ranges.
+     * <p>
+     * The edits of one visit are applied together or not at all,
+     * like the edits moving or copying code and the edits where this code goes.
      *
      * @param document the document to refactor
+     * @param lineRanges the lines to refactor, or null to refactor the whole document
+     * @return the edit which reverts the applied refactorings,
+     *         it is expressed in the coordinates of the refactored document
      * @throws BadLocationException if trying to access a non existing position
+     * @see #applyTo(IDocument)
      */
-    public void applyTo(final IDocument document) throws BadLocationException {
+    public UndoEdit applyTo(final IDocument document, LineRanges lineRanges) throws BadLocationException {
+        return toTextEdit(document, lineRanges).apply(document);
+    }
+
+    private boolean isInLineRanges(TextEdit edit, IDocument document, LineRanges lineRanges)
+            throws BadLocationException {
+        final int startLine = document.getLineOfOffset(edit.getOffset()) + 1;
+        final int endLine = document.getLineOfOffset(edit.getExclusiveEnd()) + 1;
+        return lineRanges.intersects(startLine, endLine);
+    }
+
+    /** Returns whether the provided edit modifies the document, copying code from a region does not. */
+    private boolean modifiesDocument(TextEdit edit) {
+        if (edit instanceof ReplaceEdit
+                || edit instanceof InsertEdit
+                || edit instanceof DeleteEdit
+                || edit instanceof MoveSourceEdit
+                || edit instanceof MoveTargetEdit
+                || edit instanceof CopyTargetEdit) {
+            return true;
+        }
+        for (TextEdit child : edit.getChildren()) {
+            if (modifiesDocument(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Adds to the provided list the edits moving or copying code from or to the provided edit. */
+    private void collectLinkedEdits(TextEdit edit, List<TextEdit> results) {
+        if (edit instanceof MoveSourceEdit) {
+            results.add(((MoveSourceEdit) edit).getTargetEdit());
+        } else if (edit instanceof MoveTargetEdit) {
+            results.add(((MoveTargetEdit) edit).getSourceEdit());
+        } else if (edit instanceof CopySourceEdit) {
+            results.add(((CopySourceEdit) edit).getTargetEdit());
+        } else if (edit instanceof CopyTargetEdit) {
+            results.add(((CopyTargetEdit) edit).getSourceEdit());
+        }
+        for (TextEdit child : edit.getChildren()) {
+            collectLinkedEdits(child, results);
+        }
+    }
+
+    private static boolean overlaps(TextEdit edit, SourceLocation range) {
+        return edit.getOffset() <= range.getEndPosition() && range.getStartPosition() <= edit.getExclusiveEnd();
+    }
+
+    /** Returns the index of the root child which contains the provided edit, or -1. */
+    private static int indexOfRootChild(TextEdit[] rootChildren, TextEdit edit) {
+        for (TextEdit e = edit; e != null; e = e.getParent()) {
+            for (int i = 0; i < rootChildren.length; i++) {
+                if (rootChildren[i] == e) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int find(int[] groups, int i) {
+        while (groups[i] != i) {
+            groups[i] = groups[groups[i]];
+            i = groups[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] groups, int i, int j) {
+        groups[find(groups, i)] = find(groups, j);
+    }
+
+    /**
+     * Computes the edits for the accumulated refactorings, without applying them.
+     *
+     * @param document the document to refactor, it is only read
+     * @return the edits for the accumulated refactorings
+     */
+    public TextEdit toTextEdit(final IDocument document) {
+        if (countOnly) {
+            throw new IllegalStateException(null, "The refactorings have only been counted, they cannot be applied");
+        }
         final TextEdit edits = rewrite.rewriteAST(document, null);
         commentRewriter.addEdits(document, edits);
         sourceRewriter.addEdits(document, edits);
-        applyEditsToDocument(edits, document);
-    }
-
-    private void applyEditsToDocument(final TextEdit edits, final IDocument document) throws BadLocationException {
-        // Call this operation on the SWT Display Thread with syncExec(),
-        // because it changes or adds something to the GUI.
-        // Otherwise it would throw an Invalid thread access Exception.
-        final Callable<BadLocationException> call = new Callable<BadLocationException>() {
-            @Override
-            public BadLocationException call() throws Exception {
-                try {
-                    edits.apply(document);
-                    return null;
-                } catch (BadLocationException e) {
-                    return e;
+        return edits;
+    }
+
+    /**
+     * Computes the edits for the accumulated refactorings, without applying them,
+     * except those of the visits which modify lines outside the provided line ranges.
+     * <p>
+     * The disjoint regions modified in the document are grouped
+     * when they are touched by the same visit, or when code is moved or copied from one to the other.
+     * A group of regions is discarded as a whole as soon as one of its regions is outside the line ranges.
+     *
+     * @param document the document to refactor, it is only read
+     * @param lineRanges the lines to refactor, or null to refactor the whole document
+     * @return the edits for the accumulated refactorings in the provided line ranges
+     * @throws BadLocationException if trying to access a non existing position
+     * @see #applyTo(IDocument, LineRanges)
+     */
+    public TextEdit toTextEdit(final IDocument document, LineRanges lineRanges) throws BadLocationException {
+        final TextEdit edits = toTextEdit(document);
+        if (lineRanges == null) {
+            return edits;
+        }
+        final TextEdit[] children = edits.getChildren();
+        final int[] groups = new int[children.length];
+        for (int i = 0; i < children.length; i++) {
+            groups[i] = i;
+        }
+        for (List<SourceLocation> ranges : visitRanges) {
+            int first = -1;
+            for (SourceLocation range : ranges) {
+                for (int i = 0; i < children.length; i++) {
+                    if (overlaps(children[i], range)) {
+                        if (first == -1) {
+                            first = i;
+                        } else {
+                            union(groups, first, i);
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < children.length; i++) {
+            final List<TextEdit> linkedEdits = new ArrayList<TextEdit>();
+            collectLinkedEdits(children[i], linkedEdits);
+            for (TextEdit linkedEdit : linkedEdits) {
+                final int j = indexOfRootChild(children, linkedEdit);
+                if (j != -1) {
+                    union(groups, i, j);
                 }
             }
-        };
-        final FutureTask<BadLocationException> future = new FutureTask<BadLocationException>(call);
-        Display.getDefault().syncExec(future);
-        final BadLocationException ex;
-        try {
-            ex = future.get();
-        } catch (ExecutionException e) {
-            throw new UnhandledException(null, e.getCause());
-        } catch (Exception e) {
-            throw new UnhandledException(null, e);
-        }
-        if (ex != null) {
-            throw ex;
         }
+
+        final boolean[] discardedGroups = new boolean[children.length];
+        for (int i = 0; i < children.length; i++) {
+            if (modifiesDocument(children[i]) && !isInLineRanges(children[i], document, lineRanges)) {
+                discardedGroups[find(groups, i)] = true;
+            }
+        }
+        for (int i = 0; i < children.length; i++) {
+            if (discardedGroups[find(groups, i)]) {
+                edits.removeChild(children[i]);
+            }
+        }
+        return edits;
     }
 
     /**
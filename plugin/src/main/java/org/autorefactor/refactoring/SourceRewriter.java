@@ -25,8 +25,10 @@
  */
 package org.autorefactor.refactoring;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -36,6 +38,8 @@ import org.eclipse.text.edits.DeleteEdit;
 import org.eclipse.text.edits.ReplaceEdit;
 import org.eclipse.text.edits.TextEdit;
 
+import static org.autorefactor.refactoring.TextEditIndex.*;
+
 /** Directly rewrites source code. */
 public class SourceRewriter {
 
@@ -68,13 +72,17 @@ public class SourceRewriter {
      * @param edits where to add edits
      */
     public void addEdits(IDocument document, TextEdit edits) {
+        final List<TextEdit> sourceEdits = new ArrayList<TextEdit>(removals.size() + replacements.size());
         for (SourceLocation loc : this.removals) {
-            edits.addChild(new DeleteEdit(loc.getStartPosition(), loc.getLength()));
+            sourceEdits.add(new DeleteEdit(loc.getStartPosition(), loc.getLength()));
         }
         for (Entry<SourceLocation, String> entry : this.replacements.entrySet()) {
             SourceLocation loc = entry.getKey();
             String replacement = entry.getValue();
-            edits.addChild(new ReplaceEdit(loc.getStartPosition(), loc.getLength(), replacement));
+            sourceEdits.add(new ReplaceEdit(loc.getStartPosition(), loc.getLength(), replacement));
+        }
+        for (TextEdit edit : sortAndMergeAdjacentEdits(sourceEdits)) {
+            edits.addChild(edit);
         }
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.text.edits.DeleteEdit;
+import org.eclipse.text.edits.InsertEdit;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+
+/**
+ * Sorted interval index over the source ranges modified by a {@link TextEdit} tree.
+ * <p>
+ * It answers overlap queries in O(log n) instead of visiting the whole edit tree for each query.
+ * Like {@link SourceLocation#overlapsWith(org.eclipse.jdt.core.ISourceRange)},
+ * ranges which only touch each other are considered to be overlapping.
+ */
+public class TextEditIndex {
+    private static final Comparator<TextEdit> BY_OFFSET = new Comparator<TextEdit>() {
+        @Override
+        public int compare(TextEdit te1, TextEdit te2) {
+            return te1.getOffset() - te2.getOffset();
+        }
+    };
+
+    /** Start positions of the indexed ranges, in increasing order. */
+    private final int[] starts;
+    /** For each index i, the maximum end position of the ranges between 0 and i inclusive. */
+    private final int[] maxEnds;
+
+    /**
+     * Builds an index of the source ranges modified by the provided edit tree.
+     *
+     * @param edits the edit tree to index
+     */
+    public TextEditIndex(TextEdit edits) {
+        final List<TextEdit> ranges = new ArrayList<TextEdit>();
+        collectRanges(edits, ranges);
+        Collections.sort(ranges, BY_OFFSET);
+
+        this.starts = new int[ranges.size()];
+        this.maxEnds = new int[ranges.size()];
+        int maxEnd = Integer.MIN_VALUE;
+        for (int i = 0; i < ranges.size(); i++) {
+            final TextEdit range = ranges.get(i);
+            starts[i] = range.getOffset();
+            maxEnd = Math.max(maxEnd, range.getExclusiveEnd());
+            maxEnds[i] = maxEnd;
+        }
+    }
+
+    /**
+     * Only collects the outermost edits which are not {@link MultiTextEdit}s:
+     * their children are necessarily enclosed in their own range.
+     */
+    private static void collectRanges(TextEdit edit, List<TextEdit> results) {
+        if (edit instanceof MultiTextEdit) {
+            for (TextEdit child : edit.getChildren()) {
+                collectRanges(child, results);
+            }
+        } else if (!edit.isDeleted()) {
+            results.add(edit);
+        }
+    }
+
+    /**
+     * Returns whether the provided edit overlaps with any of the indexed ranges.
+     *
+     * @param edit the edit for which to make the determination
+     * @return true if the provided edit overlaps with any of the indexed ranges, false otherwise
+     */
+    public boolean overlapsWith(TextEdit edit) {
+        return overlapsWith(edit.getOffset(), edit.getExclusiveEnd());
+    }
+
+    /**
+     * Returns whether any of the provided edits overlaps with any of the indexed ranges.
+     *
+     * @param edits the edits for which to make the determination
+     * @return true if any of the provided edits overlaps with any of the indexed ranges, false otherwise
+     */
+    public boolean overlapsWithAny(List<TextEdit> edits) {
+        for (TextEdit edit : edits) {
+            if (overlapsWith(edit)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean overlapsWith(int start, int end) {
+        // find the last indexed range starting before the end of the queried range
+        int low = 0;
+        int high = starts.length - 1;
+        int lastStartingBefore = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (starts[mid] <= end) {
+                lastStartingBefore = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // does any of the ranges starting before the end of the queried range finish after its start?
+        return lastStartingBefore != -1 && maxEnds[lastStartingBefore] >= start;
+    }
+
+    /**
+     * Sorts the provided edits by offset and merges the edits directly following each other
+     * into one single {@link ReplaceEdit}.
+     * <p>
+     * Only {@link InsertEdit}s, {@link DeleteEdit}s and {@link ReplaceEdit}s are merged.
+     * Edits which overlap are left untouched.
+     *
+     * @param edits the edits to sort and merge
+     * @return a new list with the sorted and merged edits
+     */
+    public static List<TextEdit> sortAndMergeAdjacentEdits(List<TextEdit> edits) {
+        if (edits.size() <= 1) {
+            return edits;
+        }
+        final List<TextEdit> sorted = new ArrayList<TextEdit>(edits);
+        // stable sort: edits inserting at the same offset keep their relative order
+        Collections.sort(sorted, BY_OFFSET);
+
+        final List<TextEdit> results = new ArrayList<TextEdit>(sorted.size());
+        TextEdit previous = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            final TextEdit current = sorted.get(i);
+            if (previous.getExclusiveEnd() == current.getOffset()
+                    && isMergeable(previous)
+                    && isMergeable(current)) {
+                previous = new ReplaceEdit(previous.getOffset(),
+                        previous.getLength() + current.getLength(),
+                        getText(previous) + getText(current));
+            } else {
+                results.add(previous);
+                previous = current;
+            }
+        }
+        results.add(previous);
+        return results;
+    }
+
+    private static boolean isMergeable(TextEdit edit) {
+        return !edit.hasChildren()
+                && (edit instanceof InsertEdit || edit instanceof DeleteEdit || edit instanceof ReplaceEdit);
+    }
+
+    private static String getText(TextEdit edit) {
+        if (edit instanceof InsertEdit) {
+            return ((InsertEdit) edit).getText();
+        } else if (edit instanceof ReplaceEdit) {
+            return ((ReplaceEdit) edit).getText();
+        }
+        return "";
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[nbRanges=" + starts.length + "]";
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring;
+
+/**
+ * Interface for refactoring rules which can only apply to the compilation units referencing specific types,
+ * like the rules replacing calls to the methods of a given class.
+ * <p>
+ * Before anything is parsed, each compilation unit is scanned for the simple names of the required types
+ * and of their subtypes. The compilation units naming none of them are not given to such rules.
+ * <p>
+ * Code can use a type without ever naming it or one of its subtypes,
+ * for example by calling a method on the result of another call.
+ * Such code is not refactored by these rules.
+ */
+public interface TypeSpecificRefactoringRule extends RefactoringRule {
+    /**
+     * Returns the fully qualified names of the types which a compilation unit must reference
+     * for this rule to apply to it. Referencing any one of them or of their subtypes is enough.
+     *
+     * @return the fully qualified names of the types which a compilation unit must reference
+     */
+    String[] getRequiredTypes();
+}
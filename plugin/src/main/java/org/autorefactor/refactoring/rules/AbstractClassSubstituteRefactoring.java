@@ -34,6 +34,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
@@ -51,7 +52,8 @@ import org.eclipse.jdt.core.dom.VariableDeclaration;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 /** See {@link #getDescription()} method. */
-public abstract class AbstractClassSubstituteRefactoring extends AbstractRefactoringRule {
+public abstract class AbstractClassSubstituteRefactoring extends AbstractRefactoringRule
+        implements TypeSpecificRefactoringRule {
 
     /**
      * Get the existing class canonical name.
@@ -67,6 +69,16 @@ public abstract class AbstractClassSubstituteRefactoring extends AbstractRefacto
      */
     public abstract String getSubstitutingClassName();
 
+    /**
+     * Only the compilation units instantiating the existing class can be refactored.
+     *
+     * @return the existing class canonical name
+     */
+    @Override
+    public String[] getRequiredTypes() {
+        return new String[] { getExistingClassCanonicalName() };
+    }
+
     /**
      * Is the method returning existing class.
      *
@@ -26,6 +26,7 @@
 package org.autorefactor.refactoring.rules;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.SyntacticRefactoringRule;
 import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.DoStatement;
 import org.eclipse.jdt.core.dom.EnhancedForStatement;
@@ -38,7 +39,8 @@ import static org.autorefactor.refactoring.ASTHelper.*;
 
 /** See {@link #getDescription()} method. */
 @SuppressWarnings("javadoc")
-public class AddBracketsToControlStatementRefactoring extends AbstractRefactoringRule {
+public class AddBracketsToControlStatementRefactoring extends AbstractRefactoringRule
+        implements SyntacticRefactoringRule {
     @Override
     public String getDescription() {
         return ""
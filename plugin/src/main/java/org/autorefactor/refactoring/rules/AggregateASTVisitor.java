@@ -37,11 +37,14 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.autorefactor.preferences.Preferences;
 import org.autorefactor.refactoring.JavaRefactoringRule;
+import org.autorefactor.refactoring.LineRanges;
 import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.SyntacticRefactoringRule;
 import org.autorefactor.util.AutoRefactorException;
 import org.autorefactor.util.NotImplementedException;
 import org.autorefactor.util.UnhandledException;
@@ -152,8 +155,18 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
     private final List<ASTVisitor> visitors;
 
     private RefactoringContext ctx;
+    /** The number of refactorings before the current visitor visited the current node. */
+    private int nbRefactoringsBeforeVisit;
     private final Set<ASTVisitor> visitorsContributingRefactoring = new HashSet<ASTVisitor>();
 
+    private CompilationUnit astRoot;
+    /** The lines to refactor, or null to refactor the whole file. */
+    private LineRanges lineRanges;
+    /** The maximum time spent visiting one AST, in nanoseconds, or a negative value for no limit. */
+    private long timeBudgetNanos = -1;
+    private long deadlineNanos;
+    private boolean timeBudgetExceeded;
+
     /**
      * Builds an instance of this class.
      *
@@ -256,10 +269,60 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
 
     @Override
     public Refactorings getRefactorings(CompilationUnit astRoot) {
+        this.astRoot = astRoot;
+        this.timeBudgetExceeded = false;
+        if (timeBudgetNanos >= 0) {
+            this.deadlineNanos = System.nanoTime() + timeBudgetNanos;
+        }
         astRoot.accept(this);
         return this.ctx.getRefactorings();
     }
 
+    /**
+     * Restricts the visitors to the provided lines:
+     * the subtrees which do not have any line in the provided ranges are not visited.
+     *
+     * @param lineRanges the lines to refactor, or null to refactor the whole file
+     */
+    public void setLineRanges(LineRanges lineRanges) {
+        this.lineRanges = lineRanges;
+    }
+
+    /**
+     * Bounds the time spent visiting each AST.
+     * Once the time budget is exceeded, no more nodes are visited,
+     * and only the refactorings found so far are returned.
+     *
+     * @param timeBudget the maximum time spent visiting one AST, or a negative value for no limit
+     * @param unit the unit of the time budget
+     */
+    public void setTimeBudget(long timeBudget, TimeUnit unit) {
+        this.timeBudgetNanos = timeBudget >= 0 ? unit.toNanos(timeBudget) : -1;
+    }
+
+    /**
+     * Returns whether the last visit stopped early because it exceeded the time budget.
+     *
+     * @return true if the last visit stopped early because it exceeded the time budget, false otherwise
+     */
+    public boolean isTimeBudgetExceeded() {
+        return timeBudgetExceeded;
+    }
+
+    private boolean isInScope(ASTNode node) {
+        if (timeBudgetNanos >= 0 && System.nanoTime() - deadlineNanos > 0) {
+            timeBudgetExceeded = true;
+            return false;
+        }
+        if (lineRanges != null) {
+            final int startLine = astRoot.getLineNumber(node.getStartPosition());
+            final int endLine = astRoot.getLineNumber(node.getStartPosition() + Math.max(0, node.getLength() - 1));
+            // nodes without position information are always in scope
+            return startLine == -1 || endLine == -1 || lineRanges.intersects(startLine, endLine);
+        }
+        return true;
+    }
+
     /**
      * Returns the visitors that contributed refactorings in the last run.
      *
@@ -269,6 +332,35 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         return visitorsContributingRefactoring;
     }
 
+    /**
+     * Returns whether all the visitors only need a syntax tree, i.e. whether they can run without bindings.
+     *
+     * @return true if all the visitors are {@link SyntacticRefactoringRule}s, false otherwise
+     */
+    public boolean isSyntactic() {
+        for (ASTVisitor v : visitors) {
+            if (!(v instanceof SyntacticRefactoringRule)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the visitors which only need a syntax tree, i.e. which can run without bindings.
+     *
+     * @return the visitors which are {@link SyntacticRefactoringRule}s
+     */
+    public List<RefactoringRule> getSyntacticRules() {
+        final List<RefactoringRule> results = new ArrayList<RefactoringRule>();
+        for (ASTVisitor v : visitors) {
+            if (v instanceof SyntacticRefactoringRule) {
+                results.add((RefactoringRule) v);
+            }
+        }
+        return results;
+    }
+
     /**
      * Verify whether the following visitors can visit the current node.
      *
@@ -280,11 +372,10 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
      *         false otherwise
      */
     private boolean continueVisiting(boolean continueVisiting, ASTVisitor v, ASTNode node) {
+        final boolean hasRefactored = finishVisit(v, node);
         if (!continueVisiting) {
-            if (!this.ctx.getRefactorings().hasRefactorings()) {
+            if (!hasRefactored) {
                 logBadlyBehavedVisitor(v, node);
-            } else {
-                visitorsContributingRefactoring.add(v);
             }
             // changes will be made to this node.
             // no other visitors can make any more changes to it
@@ -294,6 +385,32 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         return true;
     }
 
+    /** Starts a new visit, so that the edits made by each visitor call are applied together or not at all. */
+    private void startVisit() {
+        this.ctx.getRefactorings().startVisit();
+        this.nbRefactoringsBeforeVisit = this.ctx.getRefactorings().getNbRefactorings();
+    }
+
+    /**
+     * Records the refactorings made by the visitor call which just returned, whatever it returned.
+     *
+     * @param v the visitor which has just been called
+     * @param node the node it visited
+     * @return true if this visitor call refactored something, false otherwise
+     */
+    private boolean finishVisit(ASTVisitor v, ASTNode node) {
+        // only the refactorings added by this call matter, not those of the previous visitors
+        if (this.ctx.getRefactorings().getNbRefactorings() <= nbRefactoringsBeforeVisit) {
+            return false;
+        }
+        visitorsContributingRefactoring.add(v);
+        if (this.ctx.isReportOnly()) {
+            final RefactoringRule rule = (RefactoringRule) v;
+            this.ctx.report(rule, node, "Can be refactored: " + rule.getName());
+        }
+        return true;
+    }
+
     private void logBadlyBehavedVisitor(ASTVisitor v, ASTNode node) {
         String message = "Visitor " + v.getClass().getName() + " is badly behaved:"
                 + " it reported doing a refactoring, but it did not actually contribute any refactoring.";
@@ -344,6 +461,11 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
                 System.out.print((isVisit ? "visitorsMap" : "endVisitorsMap") + ", ");
                 System.out.println(m.getParameterTypes()[0].getSimpleName() + ".class);");
             }
+            if (isPrevisit2) {
+                System.out.println("\tif (!isInScope(node)) {");
+                System.out.println("\t\treturn DO_NOT_VISIT_SUBTREE;");
+                System.out.println("\t}");
+            }
             System.out.print("\tfor (Iterator<ASTVisitor> iter = ");
             if (is("preVisit", m)) {
                 System.out.print("preVisitors");
@@ -364,11 +486,14 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
                 System.out.println("\t\t\t\treturn DO_NOT_VISIT_SUBTREE;");
                 System.out.println("\t\t\t}");
             } else if (Boolean.TYPE.equals(m.getReturnType())) {
+                System.out.println("\t\t\tstartVisit();");
                 System.out.println("\t\t\tif (!continueVisiting(v." + m.getName() + "(node), v, node)) {");
                 System.out.println("\t\t\t\treturn DO_NOT_VISIT_SUBTREE;");
                 System.out.println("\t\t\t}");
             } else {
+                System.out.println("\t\t\tstartVisit();");
                 System.out.println("\t\t\tv." + m.getName() + "(node);");
+                System.out.println("\t\t\tfinishVisit(v, node);");
             }
             System.out.println("\t\t} catch (Exception e) {");
             System.out.println("\t\t\tlogFaultyVisitor(v, node, e);");
@@ -389,7 +514,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -403,7 +530,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -417,7 +546,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -431,7 +562,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -445,7 +578,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -459,7 +594,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -473,7 +610,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -487,7 +626,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -501,7 +642,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -515,7 +658,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -529,7 +674,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -543,7 +690,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -557,7 +706,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -571,7 +722,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -585,7 +738,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -599,7 +754,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -613,7 +770,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -627,7 +786,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -641,7 +802,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -655,7 +818,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -669,7 +834,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -683,7 +850,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -697,7 +866,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -711,7 +882,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -725,7 +898,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -739,7 +914,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -753,7 +930,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -767,7 +946,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -781,7 +962,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -795,7 +978,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -809,7 +994,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -823,7 +1010,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -837,7 +1026,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -851,7 +1042,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -865,7 +1058,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -879,7 +1074,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -893,7 +1090,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -907,7 +1106,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -921,7 +1122,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -935,7 +1138,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -949,7 +1154,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -963,7 +1170,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -977,7 +1186,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -991,7 +1202,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1005,7 +1218,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1019,7 +1234,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1033,7 +1250,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1047,7 +1266,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1061,7 +1282,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1075,7 +1298,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1089,7 +1314,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1103,7 +1330,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1117,7 +1346,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1131,7 +1362,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1145,7 +1378,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1159,7 +1394,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1173,7 +1410,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1187,7 +1426,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1201,7 +1442,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1215,7 +1458,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1229,7 +1474,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1243,7 +1490,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1257,7 +1506,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1271,7 +1522,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1285,7 +1538,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1299,7 +1554,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1313,7 +1570,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1327,7 +1586,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1341,7 +1602,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1355,7 +1618,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1369,7 +1634,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1383,7 +1650,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1397,7 +1666,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1411,7 +1682,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1425,7 +1698,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1439,7 +1714,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1453,7 +1730,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1467,7 +1746,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1481,7 +1762,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1495,7 +1778,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1509,7 +1794,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1523,7 +1810,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1537,7 +1826,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1551,7 +1842,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.endVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1564,7 +1857,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = postVisitors.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.postVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1577,7 +1872,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = preVisitors.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 v.preVisit(node);
+                finishVisit(v, node);
             } catch (Exception e) {
                 logFaultyVisitor(v, node, e);
                 iter.remove();
@@ -1587,6 +1884,9 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
 
     @Override
     public boolean preVisit2(ASTNode node) {
+        if (!isInScope(node)) {
+            return DO_NOT_VISIT_SUBTREE;
+        }
         for (Iterator<ASTVisitor> iter = preVisitors2.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
@@ -1607,6 +1907,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1624,6 +1925,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1641,6 +1943,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1658,6 +1961,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1675,6 +1979,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1692,6 +1997,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1709,6 +2015,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1726,6 +2033,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1743,6 +2051,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1760,6 +2069,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1777,6 +2087,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1794,6 +2105,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1811,6 +2123,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1828,6 +2141,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1845,6 +2159,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1862,6 +2177,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1879,6 +2195,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1896,6 +2213,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1913,6 +2231,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1930,6 +2249,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1947,6 +2267,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1964,6 +2285,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1981,6 +2303,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -1998,6 +2321,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2015,6 +2339,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2032,6 +2357,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2049,6 +2375,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2066,6 +2393,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2083,6 +2411,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2100,6 +2429,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2117,6 +2447,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2134,6 +2465,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2151,6 +2483,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2168,6 +2501,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2185,6 +2519,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2202,6 +2537,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2219,6 +2555,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2236,6 +2573,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2253,6 +2591,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2270,6 +2609,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2287,6 +2627,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2304,6 +2645,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2321,6 +2663,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2338,6 +2681,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2355,6 +2699,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2372,6 +2717,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2389,6 +2735,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2406,6 +2753,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2423,6 +2771,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2440,6 +2789,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2457,6 +2807,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2474,6 +2825,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2491,6 +2843,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2508,6 +2861,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2525,6 +2879,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2542,6 +2897,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2559,6 +2915,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2576,6 +2933,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2593,6 +2951,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2610,6 +2969,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2627,6 +2987,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2644,6 +3005,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2661,6 +3023,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2678,6 +3041,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2695,6 +3059,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2712,6 +3077,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2729,6 +3095,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2746,6 +3113,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2763,6 +3131,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2780,6 +3149,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2797,6 +3167,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2814,6 +3185,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2831,6 +3203,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2848,6 +3221,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2865,6 +3239,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2882,6 +3257,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2899,6 +3275,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2916,6 +3293,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2933,6 +3311,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2950,6 +3329,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2967,6 +3347,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -2984,6 +3365,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -3001,6 +3383,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
@@ -3018,6 +3401,7 @@ public class AggregateASTVisitor extends ASTVisitor implements JavaRefactoringRu
         for (Iterator<ASTVisitor> iter = visitorList.iterator(); iter.hasNext();) {
             final ASTVisitor v = iter.next();
             try {
+                startVisit();
                 if (!continueVisiting(v.visit(node), v, node)) {
                     return DO_NOT_VISIT_SUBTREE;
                 }
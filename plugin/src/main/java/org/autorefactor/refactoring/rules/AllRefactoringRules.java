@@ -117,6 +117,7 @@ public final class AllRefactoringRules {
                 new CommentsRefactoring(),
                 new RemoveFieldsDefaultValuesRefactoring(),
                 new RemoveUnnecessaryLocalBeforeReturnRefactoring(),
+                new RemoveDeadStoresRefactoring(),
                 new RemoveUnnecessaryCastRefactoring(),
                 new RemoveUselessModifiersRefactoring(),
                 new HotSpotIntrinsicedAPIsRefactoring(),
@@ -32,6 +32,7 @@ import org.autorefactor.preferences.Preferences;
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.FinderVisitor;
 import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.IMethodBinding;
@@ -41,7 +42,7 @@ import org.eclipse.jdt.core.dom.Statement;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
 /** See {@link #getDescription()} method. */
-public class AndroidWakeLockRefactoring extends AbstractRefactoringRule {
+public class AndroidWakeLockRefactoring extends AbstractRefactoringRule implements TypeSpecificRefactoringRule {
     @Override
     public String getDescription() {
         return "Android - Failing to release a wakelock properly can keep the Android device "
@@ -57,6 +58,11 @@ public class AndroidWakeLockRefactoring extends AbstractRefactoringRule {
         return "Android WakeLock";
     }
 
+    @Override
+    public String[] getRequiredTypes() {
+        return new String[] { "android.os.PowerManager", "android.os.PowerManager.WakeLock" };
+    }
+
     @Override
     public boolean isEnabled(Preferences preferences) {
         // FIXME enable only when android libraries are detected
@@ -43,6 +43,7 @@ import static org.eclipse.jdt.core.dom.InfixExpression.Operator.PLUS;
 import static org.eclipse.jdt.core.dom.PrefixExpression.Operator.NOT;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ClassInstanceCreation;
 import org.eclipse.jdt.core.dom.Expression;
@@ -57,7 +58,7 @@ import org.eclipse.jdt.core.dom.StringLiteral;
 
 /** See {@link #getDescription()} method. */
 @SuppressWarnings("javadoc")
-public class BigDecimalRefactoring extends AbstractRefactoringRule {
+public class BigDecimalRefactoring extends AbstractRefactoringRule implements TypeSpecificRefactoringRule {
 
     @Override
     public String getDescription() {
@@ -74,6 +75,11 @@ public class BigDecimalRefactoring extends AbstractRefactoringRule {
         return "BigDecimal";
     }
 
+    @Override
+    public String[] getRequiredTypes() {
+        return new String[] { "java.math.BigDecimal" };
+    }
+
     private int getJavaMinorVersion() {
         return ctx.getJavaProjectOptions().getJavaSERelease().getMinorVersion();
     }
@@ -35,6 +35,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.autorefactor.refactoring.SourceLocation;
+import org.autorefactor.refactoring.SyntacticRefactoringRule;
 import org.autorefactor.util.NotImplementedException;
 import org.autorefactor.util.Pair;
 import org.eclipse.jdt.core.dom.ASTNode;
@@ -67,7 +68,7 @@ import static org.eclipse.jdt.core.dom.TagElement.*;
  * <li>TODO Fix typo in comments</li>
  * </ul>
  */
-public class CommentsRefactoring extends AbstractRefactoringRule {
+public class CommentsRefactoring extends AbstractRefactoringRule implements SyntacticRefactoringRule {
 
     @Override
     public String getDescription() {
@@ -269,7 +270,13 @@ public class CommentsRefactoring extends AbstractRefactoringRule {
     private boolean hasOverrideAnnotation(ASTNode node) {
         if (node instanceof BodyDeclaration) {
             for (IExtendedModifier modifier : modifiers((BodyDeclaration) node)) {
-                return hasType(getTypeName(modifier), "java.lang.Override");
+                final Name typeName = getTypeName(modifier);
+                if (typeName != null && typeName.resolveTypeBinding() == null) {
+                    // bindings are not available: look at the name only
+                    return "Override".equals(typeName.getFullyQualifiedName())
+                            || "java.lang.Override".equals(typeName.getFullyQualifiedName());
+                }
+                return hasType(typeName, "java.lang.Override");
             }
         }
         return false;
@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.autorefactor.cfg.ConstantPropagation;
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.util.OnEclipseVersionUpgrade;
@@ -82,7 +83,8 @@ import static org.eclipse.jdt.core.search.IJavaSearchConstants.*;
 import static org.eclipse.jdt.core.search.SearchPattern.*;
 
 /**
- * TODO Use variable values analysis for determining where code is dead.
+ * Conditions which are not compile time constants are evaluated with a {@link ConstantPropagation}
+ * over the CFG of the enclosing method.
  *
  * @see #getDescription()
  */
@@ -131,7 +133,7 @@ public class DeadCodeEliminationRefactoring extends AbstractRefactoringRule {
             return DO_NOT_VISIT_SUBTREE;
         }
 
-        final Object constantCondition = condition.resolveConstantExpressionValue();
+        final Object constantCondition = getConstantCondition(node);
         if (Boolean.TRUE.equals(constantCondition)) {
             r.replace(node, b.copy(thenStmt));
             if (lastStmtIsThrowOrReturn(thenStmt)) {
@@ -152,6 +154,26 @@ public class DeadCodeEliminationRefactoring extends AbstractRefactoringRule {
         return VISIT_SUBTREE;
     }
 
+    private Object getConstantCondition(IfStatement node) {
+        final Expression condition = node.getExpression();
+        final Object constantCondition = condition.resolveConstantExpressionValue();
+        if (constantCondition != null) {
+            return constantCondition;
+        }
+        final List<Expression> sideEffectExprs = new ArrayList<Expression>();
+        collectSideEffects(condition, sideEffectExprs);
+        if (!sideEffectExprs.isEmpty()) {
+            return null;
+        }
+        final MethodDeclaration method = getAncestorOrNull(node, MethodDeclaration.class);
+        if (method == null) {
+            return null;
+        }
+        // computed once per method declaration and pass, whatever the number of if statements
+        final ConstantPropagation constantPropagation = ctx.getConstantPropagation(method);
+        return constantPropagation != null ? constantPropagation.getConstantValue(condition) : null;
+    }
+
     private void collectSideEffects(Expression expr, List<Expression> sideEffectExprs) {
         // local variable, parameter, enum constant, etc.
         // OR method starting with is*(), get*()
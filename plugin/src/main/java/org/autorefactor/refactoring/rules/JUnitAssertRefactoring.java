@@ -28,6 +28,7 @@ package org.autorefactor.refactoring.rules;
 import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
 import org.autorefactor.util.Pair;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.IfStatement;
@@ -39,7 +40,7 @@ import static org.autorefactor.refactoring.ASTHelper.*;
 /**
  * See {@link #getDescription()} method.
  */
-public class JUnitAssertRefactoring extends AbstractUnitTestRefactoring {
+public class JUnitAssertRefactoring extends AbstractUnitTestRefactoring implements TypeSpecificRefactoringRule {
 
     private static final String[] PACKAGE_PATHES = new String[] { "junit.framework.", "org.junit." };
 
@@ -53,6 +54,12 @@ public class JUnitAssertRefactoring extends AbstractUnitTestRefactoring {
         return "JUnit asserts";
     }
 
+    @Override
+    public String[] getRequiredTypes() {
+        // JUnit 3 test cases inherit the assertions without referencing junit.framework.Assert
+        return new String[] { "junit.framework.Assert", "junit.framework.TestCase", "org.junit.Assert" };
+    }
+
     @Override
     protected boolean canUseAssertNotEquals() {
         return false;
@@ -25,8 +25,16 @@
  */
 package org.autorefactor.refactoring.rules;
 
+import java.util.List;
+
+import org.autorefactor.cfg.CFGBasicBlock;
+import org.autorefactor.cfg.CFGCache;
+import org.autorefactor.cfg.CompactCFG;
+import org.autorefactor.cfg.ConstantPropagation;
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.Finding;
 import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.util.UnhandledException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -36,6 +44,7 @@ import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Comment;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
 
 import static org.autorefactor.refactoring.ASTHelper.*;
 import static org.autorefactor.refactoring.SourceLocation.*;
@@ -48,6 +57,8 @@ public class RefactoringContext {
     private final ASTBuilder astBuilder;
     private final JavaProjectOptions options;
     private final IProgressMonitor monitor;
+    private final List<Finding> findings;
+    private final CFGCache cfgCache;
 
     /**
      * Builds an instance of this class.
@@ -59,12 +70,46 @@ public class RefactoringContext {
      */
     public RefactoringContext(ICompilationUnit compilationUnit, CompilationUnit astRoot,
             JavaProjectOptions options, IProgressMonitor monitor) {
+        this(compilationUnit, astRoot, options, monitor, null);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param compilationUnit the compilation unit to refactor
+     * @param astRoot the compilation unit, root of the AST
+     * @param options the Java project options used to compile the project
+     * @param monitor the progress monitor of the current job
+     * @param findings where to report the findings in report only mode,
+     *        or null to refactor the compilation unit
+     */
+    public RefactoringContext(ICompilationUnit compilationUnit, CompilationUnit astRoot,
+            JavaProjectOptions options, IProgressMonitor monitor, List<Finding> findings) {
+        this(compilationUnit, astRoot, options, monitor, findings, new CFGCache(options));
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param compilationUnit the compilation unit to refactor
+     * @param astRoot the compilation unit, root of the AST
+     * @param options the Java project options used to compile the project
+     * @param monitor the progress monitor of the current job
+     * @param findings where to report the findings in report only mode,
+     *        or null to refactor the compilation unit
+     * @param cfgCache the CFG cache shared with the previous passes on the same compilation unit
+     */
+    public RefactoringContext(ICompilationUnit compilationUnit, CompilationUnit astRoot,
+            JavaProjectOptions options, IProgressMonitor monitor, List<Finding> findings, CFGCache cfgCache) {
         this.compilationUnit = compilationUnit;
         this.astRoot = astRoot;
         this.monitor = monitor;
-        this.refactorings = new Refactorings(astRoot);
+        // findings only need the refactored nodes, never the rewrites
+        this.refactorings = new Refactorings(astRoot, findings != null);
         this.astBuilder = new ASTBuilder(refactorings);
         this.options = options;
+        this.findings = findings;
+        this.cfgCache = cfgCache;
     }
 
     /**
@@ -121,6 +166,69 @@ public class RefactoringContext {
         return refactorings;
     }
 
+    /**
+     * Returns whether the refactorings are only reported as findings, without ever being applied.
+     * <p>
+     * In this mode, the {@link Refactorings} only count the refactorings without recording the changes to make.
+     * Rules can check this to skip building costly replacement nodes.
+     *
+     * @return true if the refactorings are only reported as findings, false if they are applied
+     */
+    public boolean isReportOnly() {
+        return findings != null;
+    }
+
+    /**
+     * Reports that the provided rule would refactor the provided node.
+     * This does nothing unless running in report only mode.
+     *
+     * @param rule the refactoring rule which would refactor the node
+     * @param node the node which would be refactored
+     * @param message the message describing the finding
+     */
+    public void report(RefactoringRule rule, ASTNode node, String message) {
+        if (findings != null) {
+            final int startPosition = node.getStartPosition();
+            findings.add(new Finding(rule.getName(), startPosition, node.getLength(),
+                    astRoot.getLineNumber(startPosition), message));
+        }
+    }
+
+    /**
+     * Returns the entry block of the CFG of the provided method declaration.
+     * The CFG is shared by all the refactoring rules, so it must not be modified.
+     *
+     * @param method the method declaration for which to return the CFG
+     * @return the entry block of the CFG of the provided method declaration
+     */
+    public CFGBasicBlock getCFG(MethodDeclaration method) {
+        return cfgCache.getCFG(method, getSource(method));
+    }
+
+    /**
+     * Returns the compact CFG of the provided method declaration.
+     *
+     * @param method the method declaration for which to return the compact CFG
+     * @return the compact CFG of the provided method declaration
+     * @see #getCFG(MethodDeclaration)
+     */
+    public CompactCFG getCompactCFG(MethodDeclaration method) {
+        return cfgCache.getCompactCFG(method, getSource(method));
+    }
+
+    /**
+     * Returns the constant propagation of the provided method declaration,
+     * shared by all the refactoring rules of the current pass.
+     *
+     * @param method the method declaration for which to return the constant propagation
+     * @return the constant propagation of the provided method declaration,
+     *         or null if it cannot be computed for this method declaration
+     * @see CFGCache#getConstantPropagation(MethodDeclaration, String)
+     */
+    public ConstantPropagation getConstantPropagation(MethodDeclaration method) {
+        return cfgCache.getConstantPropagation(method, getSource(method));
+    }
+
     String getSource(ASTNode node) {
         try {
             return compilationUnit.getSource();
@@ -0,0 +1,253 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules;
+
+import static org.autorefactor.refactoring.ASTHelper.DO_NOT_VISIT_SUBTREE;
+import static org.autorefactor.refactoring.ASTHelper.VISIT_SUBTREE;
+import static org.autorefactor.refactoring.ASTHelper.fragments;
+import static org.autorefactor.refactoring.ASTHelper.hasOperator;
+import static org.autorefactor.refactoring.ASTHelper.isPassive;
+import static org.eclipse.jdt.core.dom.Assignment.Operator.ASSIGN;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.autorefactor.cfg.CFGBasicBlock;
+import org.autorefactor.cfg.LivenessAnalysis;
+import org.autorefactor.cfg.LocalVariableIndex;
+import org.autorefactor.cfg.VariableAccess;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.util.NotImplementedException;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.ExpressionStatement;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SwitchStatement;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+
+/**
+ * See {@link #getDescription()} method.
+ * <p>
+ * This rule works on the CFG of each method, which does not have edges from the statements of a try block
+ * to its catch clauses yet: methods containing try statements are left untouched.
+ */
+public class RemoveDeadStoresRefactoring extends AbstractRefactoringRule {
+    @Override
+    public String getDescription() {
+        return ""
+            + "Removes assignments to local variables whose value is never read afterwards,"
+            + " and local variables which are written but never read,"
+            + " as long as the assigned values do not have side effects.";
+    }
+
+    @Override
+    public String getName() {
+        return "Remove dead stores";
+    }
+
+    @Override
+    public boolean visit(MethodDeclaration node) {
+        final Block body = node.getBody();
+        if (body == null) {
+            return VISIT_SUBTREE;
+        }
+        final LocalNamesVisitor localNames = new LocalNamesVisitor();
+        body.accept(localNames);
+        if (localNames.hasTryStatement || localNames.hasUnresolvedName) {
+            return VISIT_SUBTREE;
+        }
+
+        final LivenessAnalysis liveness;
+        try {
+            liveness = new LivenessAnalysis(ctx.getCompactCFG(node));
+        } catch (NotImplementedException e) {
+            // the CFG builder does not support all the java constructs yet
+            return VISIT_SUBTREE;
+        }
+        final LocalVariableIndex variables = liveness.getVariables();
+
+        final Set<ASTNode> accessedNames = Collections.newSetFromMap(new IdentityHashMap<ASTNode, Boolean>());
+        final BitSet readVariables = new BitSet();
+        final BitSet unremovableWrites = new BitSet();
+        final List<ASTNode> deadStores = new ArrayList<ASTNode>();
+        for (CFGBasicBlock block : liveness.getBlocks()) {
+            for (VariableAccess access : variables.getAccesses(block)) {
+                final int variable = variables.indexOf(access);
+                accessedNames.add(access.getName());
+                if (LocalVariableIndex.isRead(access)) {
+                    readVariables.set(variable);
+                }
+                if (LocalVariableIndex.isWrite(access)) {
+                    final ASTNode store = getRemovableStore(access);
+                    if (store == null || LocalVariableIndex.isConditionalWrite(access)) {
+                        unremovableWrites.set(variable);
+                    } else if (!liveness.isLiveAfter(block, access)) {
+                        deadStores.add(store);
+                    }
+                }
+            }
+        }
+
+        // The CFG does not see the accesses from anonymous classes or from unreachable code:
+        // leave alone the variables accessed there
+        final Set<IBinding> unsafeVariables = new HashSet<IBinding>();
+        for (SimpleName name : localNames.names) {
+            if (!accessedNames.contains(name)) {
+                unsafeVariables.add(name.resolveBinding());
+            }
+        }
+        final Set<IBinding> unusedVariables = new HashSet<IBinding>();
+        for (int variable = 0; variable < variables.size(); variable++) {
+            if (!readVariables.get(variable) && !unremovableWrites.get(variable)) {
+                unusedVariables.add(variables.getDeclaration(variable).resolveBinding());
+            }
+        }
+        return removeDeadStores(deadStores, unsafeVariables, unusedVariables);
+    }
+
+    /**
+     * Returns the node to remove for removing the provided write access,
+     * or null if the written value might have side effects or the write cannot be removed on its own.
+     */
+    private ASTNode getRemovableStore(VariableAccess access) {
+        final ASTNode node = access.getAstNode();
+        if (node instanceof VariableDeclarationFragment) {
+            final VariableDeclarationFragment vdf = (VariableDeclarationFragment) node;
+            if (vdf.getParent() instanceof VariableDeclarationStatement && isPassive(vdf.getInitializer())) {
+                return vdf;
+            }
+        } else if (node instanceof SimpleName && node.getParent() instanceof Assignment) {
+            final Assignment as = (Assignment) node.getParent();
+            if (hasOperator(as, ASSIGN)
+                    && as.getLeftHandSide() == node
+                    && as.getParent() instanceof ExpressionStatement
+                    && isInStatementList(as.getParent())
+                    && isPassive(as.getRightHandSide())) {
+                return as.getParent();
+            }
+        }
+        return null;
+    }
+
+    private boolean isInStatementList(ASTNode stmt) {
+        return stmt.getLocationInParent() == Block.STATEMENTS_PROPERTY
+                || stmt.getLocationInParent() == SwitchStatement.STATEMENTS_PROPERTY;
+    }
+
+    private boolean removeDeadStores(List<ASTNode> deadStores, Set<IBinding> unsafeVariables,
+            Set<IBinding> unusedVariables) {
+        final Refactorings r = this.ctx.getRefactorings();
+        final Map<VariableDeclarationStatement, List<VariableDeclarationFragment>> unusedFragments =
+                new LinkedHashMap<VariableDeclarationStatement, List<VariableDeclarationFragment>>();
+        boolean result = VISIT_SUBTREE;
+        for (ASTNode deadStore : deadStores) {
+            if (r.hasBeenRefactored(deadStore)) {
+                continue;
+            }
+            if (deadStore instanceof VariableDeclarationFragment) {
+                final VariableDeclarationFragment vdf = (VariableDeclarationFragment) deadStore;
+                final IBinding binding = vdf.getName().resolveBinding();
+                if (unsafeVariables.contains(binding)) {
+                    continue;
+                }
+                if (unusedVariables.contains(binding)) {
+                    addUnusedFragment(unusedFragments, vdf);
+                } else {
+                    r.remove(vdf.getInitializer());
+                }
+                result = DO_NOT_VISIT_SUBTREE;
+            } else {
+                final Assignment as = (Assignment) ((ExpressionStatement) deadStore).getExpression();
+                if (!unsafeVariables.contains(((SimpleName) as.getLeftHandSide()).resolveBinding())) {
+                    r.remove(deadStore);
+                    result = DO_NOT_VISIT_SUBTREE;
+                }
+            }
+        }
+        for (Entry<VariableDeclarationStatement, List<VariableDeclarationFragment>> entry
+                : unusedFragments.entrySet()) {
+            final VariableDeclarationStatement vds = entry.getKey();
+            if (entry.getValue().size() == fragments(vds).size()) {
+                r.remove(vds);
+            } else {
+                r.remove(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void addUnusedFragment(Map<VariableDeclarationStatement, List<VariableDeclarationFragment>> unusedFragments,
+            VariableDeclarationFragment vdf) {
+        final VariableDeclarationStatement vds = (VariableDeclarationStatement) vdf.getParent();
+        List<VariableDeclarationFragment> vdfs = unusedFragments.get(vds);
+        if (vdfs == null) {
+            vdfs = new ArrayList<VariableDeclarationFragment>();
+            unusedFragments.put(vds, vdfs);
+        }
+        vdfs.add(vdf);
+    }
+
+    /** Collects the references to local variables, and looks for the constructs the CFG cannot handle. */
+    private static final class LocalNamesVisitor extends ASTVisitor {
+        private final List<SimpleName> names = new ArrayList<SimpleName>();
+        private boolean hasTryStatement;
+        private boolean hasUnresolvedName;
+
+        @Override
+        public boolean visit(TryStatement node) {
+            hasTryStatement = true;
+            return DO_NOT_VISIT_SUBTREE;
+        }
+
+        @Override
+        public boolean visit(SimpleName node) {
+            final IBinding binding = node.resolveBinding();
+            if (binding == null) {
+                hasUnresolvedName = true;
+            } else if (binding instanceof IVariableBinding
+                    && !((IVariableBinding) binding).isField()
+                    && !node.isDeclaration()) {
+                names.add(node);
+            }
+            return VISIT_SUBTREE;
+        }
+    }
+}
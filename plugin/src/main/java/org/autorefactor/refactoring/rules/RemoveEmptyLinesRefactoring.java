@@ -32,6 +32,7 @@ import java.util.regex.Pattern;
 
 import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.refactoring.SourceLocation;
+import org.autorefactor.refactoring.SyntacticRefactoringRule;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
 import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
@@ -45,7 +46,7 @@ import static org.autorefactor.refactoring.ASTHelper.*;
 import static org.autorefactor.refactoring.SourceLocation.*;
 
 /** See {@link #getDescription()} method. */
-public class RemoveEmptyLinesRefactoring extends AbstractRefactoringRule {
+public class RemoveEmptyLinesRefactoring extends AbstractRefactoringRule implements SyntacticRefactoringRule {
     @Override
     public String getDescription() {
         return ""
@@ -37,6 +37,7 @@ import java.util.regex.Pattern;
 
 import org.autorefactor.refactoring.ASTHelper.NodeStartPositionComparator;
 import org.autorefactor.refactoring.SourceLocation;
+import org.autorefactor.refactoring.SyntacticRefactoringRule;
 import org.autorefactor.util.NotImplementedException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
@@ -64,7 +65,7 @@ import static org.autorefactor.util.Utils.*;
  * <p>
  * TODO remove superfluous semi-colons in try-with-resources
  */
-public class RemoveSemiColonRefactoring extends AbstractRefactoringRule {
+public class RemoveSemiColonRefactoring extends AbstractRefactoringRule implements SyntacticRefactoringRule {
     @Override
     public String getDescription() {
         return "Removes superfluous semi-colon after body declarations in type declarations.";
@@ -34,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.SyntacticRefactoringRule;
 import org.autorefactor.util.NotImplementedException;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
@@ -53,7 +54,7 @@ import org.eclipse.jdt.core.dom.VariableDeclarationExpression;
 import static org.autorefactor.refactoring.ASTHelper.*;
 
 /** See {@link #getDescription()} method. */
-public class RemoveUselessModifiersRefactoring extends AbstractRefactoringRule {
+public class RemoveUselessModifiersRefactoring extends AbstractRefactoringRule implements SyntacticRefactoringRule {
     @Override
     public String getDescription() {
         return ""
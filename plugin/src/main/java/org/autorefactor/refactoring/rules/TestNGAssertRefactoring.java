@@ -29,6 +29,7 @@ package org.autorefactor.refactoring.rules;
 import java.util.List;
 
 import org.autorefactor.refactoring.ASTBuilder;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
 import org.autorefactor.util.Pair;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.Expression;
@@ -49,7 +50,7 @@ import static org.autorefactor.refactoring.ASTHelper.*;
  * refactoring should be made conditional on TestNG version.
  * </p>
  */
-public class TestNGAssertRefactoring extends AbstractUnitTestRefactoring {
+public class TestNGAssertRefactoring extends AbstractUnitTestRefactoring implements TypeSpecificRefactoringRule {
 
     private boolean canUseAssertNotEquals;
 
@@ -63,6 +64,11 @@ public class TestNGAssertRefactoring extends AbstractUnitTestRefactoring {
         return "TestNG asserts";
     }
 
+    @Override
+    public String[] getRequiredTypes() {
+        return new String[] { "org.testng.Assert" };
+    }
+
     @Override
     protected Pair<Expression, Expression> getActualAndExpected(final Expression leftValue,
             final Expression rightValue) {
@@ -31,6 +31,7 @@ import java.util.List;
 import org.autorefactor.refactoring.ASTBuilder;
 import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.refactoring.Release;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
 import org.autorefactor.util.IllegalArgumentException;
 import org.eclipse.jdt.core.dom.Expression;
 import org.eclipse.jdt.core.dom.MethodInvocation;
@@ -40,7 +41,7 @@ import static org.eclipse.jdt.core.dom.MethodInvocation.*;
 
 /** See {@link #getDescription()} method. */
 @SuppressWarnings("javadoc")
-public class VectorOldToNewAPIRefactoring extends AbstractRefactoringRule {
+public class VectorOldToNewAPIRefactoring extends AbstractRefactoringRule implements TypeSpecificRefactoringRule {
     @Override
     public String getDescription() {
         return "Replaces Vector pre-Collections APIs with equivalent Collections APIs.";
@@ -51,6 +52,11 @@ public class VectorOldToNewAPIRefactoring extends AbstractRefactoringRule {
         return "Vector old-to-new APIs";
     }
 
+    @Override
+    public String[] getRequiredTypes() {
+        return new String[] { "java.util.Vector" };
+    }
+
     @Override
     public boolean visit(MethodInvocation node) {
         if (ctx.getJavaProjectOptions().getJavaSERelease().isCompatibleWith(Release.javaSE("1.2.0"))) {
@@ -25,15 +25,25 @@
  */
 package org.autorefactor.ui;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.cfg.CFGCache;
+import org.autorefactor.refactoring.EditJournal;
+import org.autorefactor.refactoring.Finding;
 import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.LineRanges;
 import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.refactoring.Refactorings;
 import org.autorefactor.refactoring.rules.AggregateASTVisitor;
@@ -52,11 +62,19 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.eclipse.text.edits.UndoEdit;
 
 import static org.autorefactor.refactoring.ASTHelper.*;
 
@@ -67,8 +85,11 @@ import static org.autorefactor.refactoring.ASTHelper.*;
  * ({@link PrepareApplyRefactoringsJob}).
  */
 public class ApplyRefactoringsJob extends Job {
-    private final Queue<RefactoringUnit> refactoringUnits;
+    private final BlockingQueue<RefactoringUnit> refactoringUnits;
     private final List<RefactoringRule> refactoringRulesToApply;
+    private final EditJournal journal;
+    private final DeferredCommit deferredCommit;
+    private final FindingsReport findingsReport;
 
     /**
      * Builds an instance of this class.
@@ -77,11 +98,47 @@ public class ApplyRefactoringsJob extends Job {
      * @param refactoringRulesToApply the refactorings to apply
      */
     public ApplyRefactoringsJob(
-            Queue<RefactoringUnit> refactoringUnits, List<RefactoringRule> refactoringRulesToApply) {
+            BlockingQueue<RefactoringUnit> refactoringUnits, List<RefactoringRule> refactoringRulesToApply) {
+        this(refactoringUnits, refactoringRulesToApply, null, null);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param refactoringUnits the units to automatically refactor
+     * @param refactoringRulesToApply the refactorings to apply
+     * @param journal the journal where to record the applied edits,
+     *            and from which to replay them for unchanged files. Can be null.
+     * @param deferredCommit where to register the refactored files so they are all saved together
+     *            once all the workers are done. When null, each refactored file is saved as soon as it is done.
+     */
+    public ApplyRefactoringsJob(BlockingQueue<RefactoringUnit> refactoringUnits,
+            List<RefactoringRule> refactoringRulesToApply, EditJournal journal, DeferredCommit deferredCommit) {
+        this(refactoringUnits, refactoringRulesToApply, journal, deferredCommit, null);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param refactoringUnits the units to automatically refactor
+     * @param refactoringRulesToApply the refactorings to apply
+     * @param journal the journal where to record the applied edits,
+     *            and from which to replay them for unchanged files. Can be null.
+     * @param deferredCommit where to register the refactored files so they are all saved together
+     *            once all the workers are done. When null, each refactored file is saved as soon as it is done.
+     * @param findingsReport when not null, the units are not refactored:
+     *            the refactorings found in one pass are reported as findings there instead
+     */
+    ApplyRefactoringsJob(BlockingQueue<RefactoringUnit> refactoringUnits,
+            List<RefactoringRule> refactoringRulesToApply, EditJournal journal, DeferredCommit deferredCommit,
+            FindingsReport findingsReport) {
         super("Auto Refactor");
         setPriority(Job.LONG);
         this.refactoringUnits = refactoringUnits;
         this.refactoringRulesToApply = refactoringRulesToApply;
+        this.journal = journal;
+        this.deferredCommit = deferredCommit;
+        this.findingsReport = findingsReport;
     }
 
     @Override
@@ -104,37 +161,73 @@ public class ApplyRefactoringsJob extends Job {
             "Remove the check to monitor.isCanceled()",
             "Replace monitor.newChild(1) by monitor.split(1)" })
     private IStatus run0(IProgressMonitor monitor) throws Exception {
-        if (refactoringUnits.isEmpty()) {
-            // No java project exists.
-            return Status.OK_STATUS;
-        }
-
-        final SubMonitor loopMonitor = SubMonitor.convert(monitor, refactoringUnits.size());
+        final SubMonitor loopMonitor = SubMonitor.convert(monitor, refactoringUnits.size() + 1);
         try {
             RefactoringUnit toRefactor;
-            while ((toRefactor = refactoringUnits.poll()) != null) {
-                if (loopMonitor.isCanceled()) {
-                    return Status.CANCEL_STATUS;
-                }
-
+            while ((toRefactor = nextRefactoringUnit(loopMonitor)) != null) {
+                // units are still being discovered while this job runs: the total amount of work is unknown
+                loopMonitor.setWorkRemaining(refactoringUnits.size() + 1);
                 final ICompilationUnit compilationUnit = toRefactor.getCompilationUnit();
                 final JavaProjectOptions options = toRefactor.getOptions();
                 try {
                     loopMonitor.subTask("Applying refactorings to " + getClassName(compilationUnit));
-                    final AggregateASTVisitor refactoring = new AggregateASTVisitor(refactoringRulesToApply);
-                    applyRefactoring(compilationUnit, refactoring, options, loopMonitor.newChild(1));
+                    final AggregateASTVisitor refactoring =
+                            new AggregateASTVisitor(getRefactoringRulesToApply(toRefactor.getReferencedTypes()));
+                    if (findingsReport != null) {
+                        reportFindings(compilationUnit, refactoring, options, toRefactor.getLineRanges(),
+                                loopMonitor.newChild(1));
+                    } else {
+                        applyRefactoring(compilationUnit, refactoring, options, toRefactor.getLineRanges(),
+                                loopMonitor.newChild(1));
+                    }
                 } catch (Exception e) {
                     final String msg = "Exception when applying refactorings to file \""
                             + compilationUnit.getPath() + "\": " + e.getMessage();
                     throw new UnhandledException(null, msg, e);
                 }
             }
+            if (loopMonitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
         } finally {
             loopMonitor.done();
         }
         return Status.OK_STATUS;
     }
 
+    /** Leaves out the type specific refactoring rules which cannot apply to a unit referencing the provided types. */
+    private List<RefactoringRule> getRefactoringRulesToApply(Set<String> referencedTypes) {
+        if (referencedTypes == null) {
+            return refactoringRulesToApply;
+        }
+        final List<RefactoringRule> results = new ArrayList<RefactoringRule>(refactoringRulesToApply.size());
+        for (RefactoringRule refactoringRule : refactoringRulesToApply) {
+            if (ReferencedTypes.canApply(refactoringRule, referencedTypes)) {
+                results.add(refactoringRule);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the next unit to refactor.
+     *
+     * @return the next unit to refactor, or null if there is no more work or the job has been canceled
+     */
+    private RefactoringUnit nextRefactoringUnit(IProgressMonitor monitor) throws InterruptedException {
+        while (!monitor.isCanceled()) {
+            final RefactoringUnit unit = refactoringUnits.poll(100, TimeUnit.MILLISECONDS);
+            if (unit == RefactoringUnit.NO_MORE_UNITS) {
+                // put it back so the other workers also stop
+                refactoringUnits.add(unit);
+                return null;
+            } else if (unit != null) {
+                return unit;
+            }
+        }
+        return null;
+    }
+
     private String getClassName(final ICompilationUnit compilationUnit) {
         final String elName = compilationUnit.getElementName();
         final String simpleName = elName.substring(0, elName.lastIndexOf('.'));
@@ -142,7 +235,7 @@ public class ApplyRefactoringsJob extends Job {
     }
 
     private void applyRefactoring(ICompilationUnit compilationUnit, AggregateASTVisitor refactoringToApply,
-            JavaProjectOptions options, IProgressMonitor monitor) throws Exception {
+            JavaProjectOptions options, LineRanges lineRanges, IProgressMonitor monitor) throws Exception {
         final ITextFileBufferManager bufferManager = FileBuffers.getTextFileBufferManager();
         final IPath path = compilationUnit.getPath();
         final LocationKind locationKind = LocationKind.NORMALIZE;
@@ -162,15 +255,101 @@ public class ApplyRefactoringsJob extends Job {
                 return;
             }
             final IDocument document = textFileBuffer.getDocument();
-            applyRefactoring(document, compilationUnit, refactoringToApply, options, monitor);
+            if (textFileBuffer.isSynchronizationContextRequested()) {
+                // This document is shown in an open editor: it can only be modified from the UI thread,
+                // like the buffer of the compilation unit which is bound to it.
+                // Converge all the refactoring passes on a detached copy and a private working copy,
+                // then push all the changes at once to the editor's document
+                final boolean hadUnsavedChanges = compilationUnit.hasUnsavedChanges();
+                final String originalSource = document.get();
+                final IDocument detachedDocument = new Document(originalSource);
+                final ICompilationUnit workingCopy = compilationUnit.getWorkingCopy(null);
+                final boolean refactored;
+                try {
+                    setContents(workingCopy, originalSource);
+                    refactored = refactor(detachedDocument, workingCopy, refactoringToApply, options, lineRanges,
+                            monitor);
+                } finally {
+                    workingCopy.discardWorkingCopy();
+                }
+                if (refactored) {
+                    applyChangesInUIThread(document, originalSource, detachedDocument.get());
+                    save(compilationUnit, hadUnsavedChanges);
+                }
+            } else {
+                applyRefactoring(document, compilationUnit, refactoringToApply, options, lineRanges, monitor);
+            }
         } finally {
             bufferManager.disconnect(path, locationKind, null);
         }
     }
 
+    private void applyChangesInUIThread(final IDocument document, final String originalSource,
+            final String refactoredSource) throws BadLocationException {
+        if (originalSource.equals(refactoredSource)) {
+            return;
+        }
+        // Call this operation on the SWT Display Thread with syncExec(),
+        // because it changes or adds something to the GUI.
+        // Otherwise it would throw an Invalid thread access Exception.
+        final Callable<BadLocationException> call = new Callable<BadLocationException>() {
+            @Override
+            public BadLocationException call() throws Exception {
+                if (!document.get().equals(originalSource)) {
+                    AutoRefactorPlugin.logError("The editor's document has been modified"
+                            + " while automated refactorings were being applied to it."
+                            + " The refactored source has not been copied to the editor.");
+                    return null;
+                }
+                try {
+                    toReplaceEdit(originalSource, refactoredSource).apply(document);
+                    return null;
+                } catch (BadLocationException e) {
+                    return e;
+                }
+            }
+        };
+        final FutureTask<BadLocationException> future = new FutureTask<BadLocationException>(call);
+        Display.getDefault().syncExec(future);
+        final BadLocationException ex;
+        try {
+            ex = future.get();
+        } catch (ExecutionException e) {
+            throw new UnhandledException(null, e.getCause());
+        } catch (Exception e) {
+            throw new UnhandledException(null, e);
+        }
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns a single edit replacing the only region which differs between the two provided sources,
+     * so the editor records one undoable change and only repaints what actually changed.
+     */
+    private TextEdit toReplaceEdit(String originalSource, String refactoredSource) {
+        final int maxPrefix = Math.min(originalSource.length(), refactoredSource.length());
+        int prefix = 0;
+        while (prefix < maxPrefix && originalSource.charAt(prefix) == refactoredSource.charAt(prefix)) {
+            prefix++;
+        }
+        int originalEnd = originalSource.length();
+        int refactoredEnd = refactoredSource.length();
+        while (originalEnd > prefix && refactoredEnd > prefix
+                && originalSource.charAt(originalEnd - 1) == refactoredSource.charAt(refactoredEnd - 1)) {
+            originalEnd--;
+            refactoredEnd--;
+        }
+        return new ReplaceEdit(prefix, originalEnd - prefix, refactoredSource.substring(prefix, refactoredEnd));
+    }
+
     /**
      * Applies the refactorings provided inside the {@link AggregateASTVisitor} to the provided
      * {@link ICompilationUnit}.
+     * <p>
+     * The edits are directly applied to the provided document from the current thread,
+     * so it must not be a document shown in an open editor.
      *
      * @param document the document where the compilation unit comes from
      * @param compilationUnit the compilation unit to refactor
@@ -192,11 +371,135 @@ public class ApplyRefactoringsJob extends Job {
      */
     public void applyRefactoring(IDocument document, ICompilationUnit compilationUnit, AggregateASTVisitor refactoring,
             JavaProjectOptions options, IProgressMonitor monitor) throws Exception {
+        applyRefactoring(document, compilationUnit, refactoring, options, null, monitor);
+    }
+
+    /**
+     * Applies the refactorings provided inside the {@link AggregateASTVisitor} to the provided lines
+     * of the {@link ICompilationUnit}.
+     * <p>
+     * Subtrees which do not have any line in the provided line ranges are not visited,
+     * and the edits which only modify lines outside the provided line ranges are discarded.
+     * The line ranges follow the code they cover while the refactoring passes modify the document.
+     *
+     * @param document the document where the compilation unit comes from
+     * @param compilationUnit the compilation unit to refactor
+     * @param refactoring the {@link AggregateASTVisitor} to apply to the compilation unit
+     * @param options the Java project options used to compile the project
+     * @param lineRanges the lines to refactor, or null to refactor the whole file
+     * @param monitor the progress monitor of the current job
+     * @throws Exception if any problem occurs
+     * @see #applyRefactoring(IDocument, ICompilationUnit, AggregateASTVisitor, JavaProjectOptions, IProgressMonitor)
+     */
+    public void applyRefactoring(IDocument document, ICompilationUnit compilationUnit, AggregateASTVisitor refactoring,
+            JavaProjectOptions options, LineRanges lineRanges, IProgressMonitor monitor) throws Exception {
+        final boolean hadUnsavedChanges = compilationUnit.hasUnsavedChanges();
+        if (refactor(document, compilationUnit, refactoring, options, lineRanges, monitor)) {
+            save(compilationUnit, hadUnsavedChanges);
+        }
+    }
+
+    /**
+     * Refactors the provided document and the buffer of the provided compilation unit, without saving them.
+     *
+     * @return true if the document has been refactored, false if it is left unchanged
+     */
+    private boolean refactor(IDocument document, ICompilationUnit compilationUnit, AggregateASTVisitor refactoring,
+            JavaProjectOptions options, LineRanges lineRanges, IProgressMonitor monitor) throws Exception {
+        final String path = compilationUnit.getPath().toString();
+        final String journalConfiguration = journal != null ? getJournalConfiguration(options, lineRanges) : null;
+        if (journal != null) {
+            final String source = document.get();
+            if (journal.canReplay(path, journalConfiguration, source)) {
+                // this exact file has already been refactored with the same configuration:
+                // skip all the analysis
+                final String refactoredSource = journal.replay(path, source);
+                if (refactoredSource.equals(source)) {
+                    return false;
+                }
+                document.set(refactoredSource);
+                setContents(compilationUnit, refactoredSource);
+                return true;
+            }
+            journal.startFile(path, journalConfiguration, source);
+        }
+
+        // Binding resolution is by far the most expensive part of parsing:
+        // first converge the rules which do not need bindings on cheap syntax-only ASTs,
+        // then run all the rules on ASTs with bindings
+        final String sourceBeforeRefactoring = document.get();
+        final List<Position> scope = lineRanges != null ? lineRanges.toPositions(document) : null;
+        boolean converged;
+        try {
+            if (scope != null) {
+                for (Position position : scope) {
+                    document.addPosition(position);
+                }
+            }
+            if (refactoring.isSyntactic()) {
+                converged = applyRefactoringPasses(document, compilationUnit, refactoring, options, scope, monitor,
+                        false);
+            } else {
+                final List<RefactoringRule> syntacticRules = refactoring.getSyntacticRules();
+                converged = syntacticRules.isEmpty()
+                        || applyRefactoringPasses(document, compilationUnit, new AggregateASTVisitor(syntacticRules),
+                                options, scope, monitor, false);
+                converged = converged
+                        && applyRefactoringPasses(document, compilationUnit, refactoring, options, scope, monitor,
+                                true);
+            }
+        } finally {
+            if (scope != null) {
+                for (Position position : scope) {
+                    document.removePosition(position);
+                }
+            }
+        }
+        if (journal != null) {
+            if (converged) {
+                journal.endFile(path, document.get());
+            } else {
+                journal.discardFile(path);
+            }
+        }
+        return !document.get().equals(sourceBeforeRefactoring);
+    }
+
+    /**
+     * Reports what the refactorings would change in the provided compilation unit, without changing it.
+     * <p>
+     * Only one pass is run on a single AST: the code is neither rewritten nor reparsed.
+     * The findings are only what the first refactoring pass would change.
+     */
+    private void reportFindings(ICompilationUnit compilationUnit, AggregateASTVisitor refactoring,
+            JavaProjectOptions options, LineRanges lineRanges, IProgressMonitor monitor) {
+        final ASTParser parser = ASTParser.newParser(AST.JLS4);
+        resetParser(compilationUnit, parser, options, !refactoring.isSyntactic());
+        final CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
+
+        final List<Finding> findings = new ArrayList<Finding>();
+        refactoring.setRefactoringContext(new RefactoringContext(compilationUnit, astRoot, options, monitor, findings));
+        refactoring.setLineRanges(lineRanges);
+        refactoring.getRefactorings(astRoot);
+        findingsReport.add(compilationUnit, findings);
+    }
+
+    /**
+     * Applies the refactoring passes until they do not find anything to refactor anymore.
+     *
+     * @return true if the refactoring passes converged, false if an infinite loop has been detected
+     */
+    private boolean applyRefactoringPasses(IDocument document, ICompilationUnit compilationUnit,
+            AggregateASTVisitor refactoring, JavaProjectOptions options, List<Position> scope,
+            IProgressMonitor monitor, boolean resolveBindings) throws Exception {
+        final String path = compilationUnit.getPath().toString();
         // creation of DOM/AST from a ICompilationUnit
         final ASTParser parser = ASTParser.newParser(AST.JLS4);
-        resetParser(compilationUnit, parser, options);
+        resetParser(compilationUnit, parser, options, resolveBindings);
 
         CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
+        // methods left unchanged by a pass keep their CFG for the next pass
+        final CFGCache cfgCache = new CFGCache(options);
 
         int totalNbLoops = 0;
         Set<ASTVisitor> lastLoopVisitors = Collections.emptySet();
@@ -211,40 +514,43 @@ public class ApplyRefactoringsJob extends Job {
                         + " Fix the code before pursuing."
                         + getPossibleCulprits(nbLoopsWithSameVisitors, lastLoopVisitors);
                 AutoRefactorPlugin.logError(errorMsg, new IllegalStateException(astRoot, errorMsg));
-                break;
+                return false;
             }
 
-            final RefactoringContext ctx = new RefactoringContext(compilationUnit, astRoot, options, monitor);
+            final RefactoringContext ctx = new RefactoringContext(compilationUnit, astRoot, options, monitor, null,
+                    cfgCache);
             refactoring.setRefactoringContext(ctx);
+            final LineRanges lineRanges = scope != null ? LineRanges.fromPositions(document, scope) : null;
+            refactoring.setLineRanges(lineRanges);
 
             final Refactorings refactorings = refactoring.getRefactorings(astRoot);
             if (!refactorings.hasRefactorings()) {
                 // no new refactorings have been applied,
                 // we are done with applying the refactorings.
-                return;
+                return true;
             }
 
-            // apply the refactorings and save the compilation unit
-            refactorings.applyTo(document);
-            final boolean hadUnsavedChanges = compilationUnit.hasUnsavedChanges();
-            compilationUnit.getBuffer().setContents(document.get());
-            // http://wiki.eclipse.org/FAQ_What_is_a_working_copy%3F
-            // compilationUnit.reconcile(AST.JLS4,
-            // ICompilationUnit.ENABLE_BINDINGS_RECOVERY |
-            // ICompilationUnit.ENABLE_STATEMENTS_RECOVERY |
-            // ICompilationUnit.FORCE_PROBLEM_DETECTION
-            // /** can be useful to back out a change that does not compile */
-            // , null, null);
-            if (!hadUnsavedChanges) {
-                compilationUnit.save(null, true);
+            // apply the refactorings and update the compilation unit in memory:
+            // it is only saved once all the passes have converged
+            final String sourceBeforePass = document.get();
+            final UndoEdit undo = refactorings.applyTo(document, lineRanges);
+            final String refactoredSource = document.get();
+            if (refactoredSource.equals(sourceBeforePass)) {
+                // all the refactorings were outside the line ranges
+                return true;
+            }
+            if (journal != null) {
+                journal.recordPass(path, getNames(refactoring.getVisitorsContributingRefactoring()),
+                        undo, refactoredSource);
             }
+            setContents(compilationUnit, refactoredSource);
             // I did not find any other way to directly modify the AST
             // while still keeping the resolved type bindings working.
             // Using astRoot.recordModifications() did not work:
             // type bindings were lost. Is there a way to recover them?
             // FIXME we should find a way to apply all the changes at
             // the AST level and refresh the bindings
-            resetParser(compilationUnit, parser, options);
+            resetParser(compilationUnit, parser, options, resolveBindings);
             astRoot = (CompilationUnit) parser.createAST(null);
             ++totalNbLoops;
 
@@ -258,9 +564,64 @@ public class ApplyRefactoringsJob extends Job {
         }
     }
 
+    private void setContents(ICompilationUnit compilationUnit, String source) throws JavaModelException {
+        compilationUnit.getBuffer().setContents(source);
+        // http://wiki.eclipse.org/FAQ_What_is_a_working_copy%3F
+        // compilationUnit.reconcile(AST.JLS4,
+        // ICompilationUnit.ENABLE_BINDINGS_RECOVERY |
+        // ICompilationUnit.ENABLE_STATEMENTS_RECOVERY |
+        // ICompilationUnit.FORCE_PROBLEM_DETECTION
+        // /** can be useful to back out a change that does not compile */
+        // , null, null);
+    }
+
+    private void save(ICompilationUnit compilationUnit, boolean hadUnsavedChanges) throws JavaModelException {
+        if (hadUnsavedChanges) {
+            // leave it to the user to save the changes mixed with their own
+            return;
+        }
+        if (deferredCommit != null) {
+            deferredCommit.add(compilationUnit);
+        } else {
+            compilationUnit.save(null, true);
+        }
+    }
+
+    /**
+     * Describes everything else than the file content which affects the result of refactoring a file,
+     * so the journal does not replay edits recorded with different rules or project options.
+     */
+    private String getJournalConfiguration(JavaProjectOptions options, LineRanges lineRanges) {
+        final StringBuilder sb = new StringBuilder();
+        for (String ruleName : getNames(refactoringRulesToApply)) {
+            sb.append(ruleName).append(",");
+        }
+        sb.append(" javaSE=").append(options.getJavaSERelease())
+                .append(" tabSize=").append(options.getTabSize())
+                .append(" commentLineLength=").append(options.getCommentLineLength());
+        if (lineRanges != null) {
+            sb.append(" lines=").append(lineRanges);
+        }
+        return sb.toString();
+    }
+
+    private List<String> getNames(Collection<?> rules) {
+        final List<String> results = new ArrayList<String>(rules.size());
+        for (Object rule : rules) {
+            results.add(rule.getClass().getName());
+        }
+        Collections.sort(results);
+        return results;
+    }
+
     private static void resetParser(ICompilationUnit cu, ASTParser parser, JavaProjectOptions options) {
+        resetParser(cu, parser, options, true);
+    }
+
+    private static void resetParser(ICompilationUnit cu, ASTParser parser, JavaProjectOptions options,
+            boolean resolveBindings) {
         parser.setSource(cu);
-        parser.setResolveBindings(true);
+        parser.setResolveBindings(resolveBindings);
         parser.setCompilerOptions(options.getCompilerOptions());
     }
 
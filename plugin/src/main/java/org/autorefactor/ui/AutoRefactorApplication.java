@@ -0,0 +1,273 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.cfg.CFGExporter;
+import org.autorefactor.refactoring.EditJournal;
+import org.autorefactor.refactoring.RefactoringRule;
+import org.autorefactor.refactoring.rules.AllRefactoringRules;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Eclipse application applying the automatic refactorings without the workbench, for example on a CI server.
+ * <p>
+ * One shot runs refactor (or with {@code -report}, only report) the provided workspace paths, then exit:
+ * <pre>
+ * eclipse -nosplash -data &lt;workspace&gt; -application org.autorefactor.plugin.headless [-report] /project/src ...
+ * </pre>
+ * Sharded runs split the Java files into the provided number of shards,
+ * and process each shard in its own Eclipse process (see {@link ShardedRun}):
+ * <pre>
+ * eclipse -nosplash -data &lt;workspace&gt; -application org.autorefactor.plugin.headless -shards 4 /project/src ...
+ * </pre>
+ * CFG exports write the control flow graphs of all the methods of the provided workspace paths
+ * to files in the provided directory, in the dot, JSON lines ({@code jsonl}, the default) or binary ({@code cfg})
+ * format (see {@link CFGExporter}), without refactoring anything:
+ * <pre>
+ * eclipse -nosplash -data &lt;workspace&gt; -application org.autorefactor.plugin.headless
+ *     -exportCFG /tmp/cfgs -format jsonl /project/src ...
+ * </pre>
+ * Daemon runs start Eclipse only once, then keep serving requests sent by {@link AutoRefactorClient}
+ * until they are asked to shut down (see {@link AutoRefactorDaemon}):
+ * <pre>
+ * eclipse -nosplash -data &lt;workspace&gt; -application org.autorefactor.plugin.headless -daemon &lt;port file&gt;
+ * </pre>
+ * The paths are the workspace paths of Java projects, source folders, packages or Java files
+ * of projects which already exist in the workspace.
+ */
+public class AutoRefactorApplication implements IApplication {
+    private volatile AutoRefactorDaemon daemon;
+
+    @Override
+    public Object start(IApplicationContext context) throws Exception {
+        final String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+        final List<String> arguments = new ArrayList<String>(Arrays.asList(args != null ? args : new String[0]));
+        if (arguments.size() == 2 && "-daemon".equals(arguments.get(0))) {
+            daemon = new AutoRefactorDaemon(new File(arguments.get(1)));
+            daemon.run();
+            return EXIT_OK;
+        }
+
+        if (arguments.size() == 2 && "-shard".equals(arguments.get(0))) {
+            return toExitCode(ShardedRun.runShard(new File(arguments.get(1))));
+        }
+
+        final String cfgExportDirectory = removeStringOption(arguments, "-exportCFG");
+        final String cfgExportFormat = removeStringOption(arguments, "-format");
+        final CFGExporter.Format format = cfgExportFormat != null
+                ? CFGExporter.Format.fromString(cfgExportFormat)
+                : CFGExporter.Format.JSON_LINES;
+        final boolean reportOnly = arguments.remove("-report");
+        final boolean resume = arguments.remove("-resume");
+        final int nbShards = removeIntOption(arguments, "-shards");
+        if (arguments.isEmpty() || nbShards == 0 || "".equals(cfgExportDirectory) || format == null) {
+            System.err.println("Usage: [-report] [-shards <number of processes> [-resume]] <workspace path>..."
+                    + " | -exportCFG <directory> [-format dot|jsonl|cfg] <workspace path>..."
+                    + " | -shard <shard file> | -daemon <port file>");
+            return Integer.valueOf(1);
+        }
+        try {
+            if (cfgExportDirectory != null) {
+                return toExitCode(exportCFGs(getJavaElements(arguments), new File(cfgExportDirectory), format));
+            }
+            if (nbShards > 1) {
+                return toExitCode(new ShardedRun(nbShards, reportOnly, resume).run(getJavaElements(arguments)));
+            }
+            return toExitCode(run(arguments, reportOnly, null));
+        } catch (CoreException e) {
+            return toExitCode(e.getStatus());
+        }
+    }
+
+    /** Returns the value of the provided option, 1 when it is absent, or 0 when it is invalid. */
+    private int removeIntOption(List<String> arguments, String option) {
+        final int index = arguments.indexOf(option);
+        if (index == -1) {
+            return 1;
+        }
+        arguments.remove(index);
+        if (index == arguments.size()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(arguments.remove(index)));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** Returns the value of the provided option, null when it is absent, or the empty string when it is invalid. */
+    private String removeStringOption(List<String> arguments, String option) {
+        final int index = arguments.indexOf(option);
+        if (index == -1) {
+            return null;
+        }
+        arguments.remove(index);
+        if (index == arguments.size()) {
+            return "";
+        }
+        return arguments.remove(index);
+    }
+
+    private Object toExitCode(IStatus status) {
+        if (!status.isOK()) {
+            System.err.println(status.getMessage());
+            for (IStatus child : status.getChildren()) {
+                System.err.println("  " + child.getMessage());
+            }
+            return Integer.valueOf(1);
+        }
+        return EXIT_OK;
+    }
+
+    @Override
+    public void stop() {
+        final AutoRefactorDaemon d = daemon;
+        if (d != null) {
+            d.stop();
+        }
+    }
+
+    /**
+     * Refactors the provided workspace paths with the configured refactoring rules,
+     * and waits until all the refactored files are saved.
+     * <p>
+     * The provided paths are first refreshed when they are out of sync with the file system,
+     * so the files modified outside of Eclipse since the last run are taken into account.
+     *
+     * @param paths the workspace paths of Java projects, source folders, packages or Java files
+     * @param reportOnly whether to only report what would be refactored, without changing any file
+     * @param journal the edit journal kept in memory across runs, or null to use the preferences
+     * @return the status of the run
+     * @throws CoreException if a path is not a Java element or could not be refreshed
+     * @throws InterruptedException if the current thread is interrupted while waiting for the run to end
+     */
+    static IStatus run(List<String> paths, boolean reportOnly, EditJournal journal)
+            throws CoreException, InterruptedException {
+        return run(getJavaElements(paths), AllRefactoringRules.getConfiguredRefactoringRules(), reportOnly,
+                journal, null);
+    }
+
+    /**
+     * Refactors the provided java elements with the provided refactoring rules,
+     * and waits until all the refactored files are saved.
+     *
+     * @param javaElements the java elements to refactor
+     * @param refactoringRules the refactoring rules to apply
+     * @param reportOnly whether to only report what would be refactored, without changing any file
+     * @param journal the edit journal kept in memory across runs, or null to use the preferences
+     * @param reportJsonFile where to write the findings as JSON, or null to use the preferences
+     * @return the status of the run
+     * @throws InterruptedException if the current thread is interrupted while waiting for the run to end
+     */
+    static IStatus run(List<IJavaElement> javaElements, List<RefactoringRule> refactoringRules, boolean reportOnly,
+            EditJournal journal, File reportJsonFile) throws InterruptedException {
+        final PrepareApplyRefactoringsJob job =
+                new PrepareApplyRefactoringsJob(javaElements, refactoringRules, false, reportOnly);
+        job.setEditJournal(journal);
+        job.setReportJsonFile(reportJsonFile);
+        job.schedule();
+        job.join();
+        // the workers are joined by the prepare job before it ends
+        return job.getResult();
+    }
+
+    /**
+     * Exports the CFGs of all the methods of the provided java elements, and waits until they are all written.
+     *
+     * @param javaElements the java elements which CFGs must be exported
+     * @param directory the directory where to write the CFGs, one file per worker
+     * @param format the format of the written files
+     * @return the status of the run
+     * @throws InterruptedException if the current thread is interrupted while waiting for the run to end
+     */
+    static IStatus exportCFGs(List<IJavaElement> javaElements, File directory, CFGExporter.Format format)
+            throws InterruptedException {
+        final PrepareApplyRefactoringsJob job =
+                new PrepareApplyRefactoringsJob(javaElements, Collections.<RefactoringRule> emptyList());
+        job.setCFGExport(directory, format);
+        job.schedule();
+        job.join();
+        return job.getResult();
+    }
+
+    /**
+     * Returns the java elements at the provided workspace paths,
+     * after refreshing those which are out of sync with the file system.
+     * Checking whether they are in sync is much cheaper than refreshing them,
+     * which computes and broadcasts resource deltas.
+     *
+     * @param paths the workspace paths of Java projects, source folders, packages or Java files
+     * @return the java elements at the provided workspace paths
+     * @throws CoreException if a path is not a Java element or could not be refreshed
+     */
+    static List<IJavaElement> getJavaElements(List<String> paths) throws CoreException {
+        final IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        final List<IJavaElement> javaElements = new ArrayList<IJavaElement>(paths.size());
+        for (String path : paths) {
+            final IResource resource = root.findMember(new Path(path));
+            if (resource == null) {
+                throw new CoreException(new Status(IStatus.ERROR, AutoRefactorPlugin.PLUGIN_ID,
+                        "Path not found: " + path));
+            }
+            if (!resource.isSynchronized(IResource.DEPTH_INFINITE)) {
+                resource.refreshLocal(IResource.DEPTH_INFINITE, new NullProgressMonitor());
+            }
+            final IJavaElement javaElement = JavaCore.create(resource);
+            if (!(javaElement instanceof ICompilationUnit
+                    || javaElement instanceof IPackageFragment
+                    || javaElement instanceof IPackageFragmentRoot
+                    || javaElement instanceof IJavaProject)) {
+                throw new CoreException(new Status(IStatus.ERROR, AutoRefactorPlugin.PLUGIN_ID,
+                        "Not a Java element: " + path));
+            }
+            javaElements.add(javaElement);
+        }
+        return javaElements;
+    }
+}
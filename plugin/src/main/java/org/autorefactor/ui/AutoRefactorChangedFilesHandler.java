@@ -0,0 +1,50 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import org.autorefactor.refactoring.rules.AllRefactoringRules;
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+
+/**
+ * This is the Eclipse handler for launching the automated refactorings
+ * only on the files of the selection which have local changes in their git repository.
+ * This is invoked from the Eclipse UI.
+ *
+ * @see AutoRefactorHandler
+ * @see GitChangedFiles
+ */
+public class AutoRefactorChangedFilesHandler extends AbstractHandler {
+    @Override
+    public Object execute(final ExecutionEvent event) throws ExecutionException {
+        new PrepareApplyRefactoringsJob(
+                AutoRefactorHandler.getSelectedJavaElements(event),
+                AllRefactoringRules.getConfiguredRefactoringRules(),
+                true).schedule();
+        return null;
+    }
+}
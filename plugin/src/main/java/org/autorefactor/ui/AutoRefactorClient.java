@@ -0,0 +1,94 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Thin client sending one request to a running {@link AutoRefactorDaemon}.
+ * <p>
+ * It only depends on the JDK, so it starts in milliseconds without Eclipse:
+ * <pre>
+ * java -cp org.autorefactor.plugin.jar org.autorefactor.ui.AutoRefactorClient &lt;port file&gt; refactor /project/src
+ * </pre>
+ * It prints the answer of the daemon and exits with status 0 if the request succeeded, 1 otherwise.
+ */
+public final class AutoRefactorClient {
+    private AutoRefactorClient() {
+    }
+
+    /**
+     * Sends one request to a running daemon.
+     *
+     * @param args the port file written by the daemon, then the command and its workspace paths
+     * @throws IOException if the daemon could not be reached
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: <port file> refactor|report <workspace path>... | <port file> shutdown");
+            System.exit(2);
+        }
+        final String[] portAndToken = readFirstLine(new File(args[0])).trim().split(" ");
+        final StringBuilder request = new StringBuilder(args[1]);
+        for (int i = 2; i < args.length; i++) {
+            request.append('\t').append(args[i]);
+        }
+
+        final Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), Integer.parseInt(portAndToken[0]));
+        final String answer;
+        try {
+            final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+            writer.write(portAndToken[1] + "\n" + request + "\n");
+            writer.flush();
+            answer = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8")).readLine();
+        } finally {
+            socket.close();
+        }
+        System.out.println(answer);
+        System.exit(answer != null && answer.startsWith("OK") ? 0 : 1);
+    }
+
+    private static String readFirstLine(File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            final String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Empty port file " + file);
+            }
+            return line;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.refactoring.EditJournal;
+import org.autorefactor.refactoring.RefactoringRule;
+import org.autorefactor.refactoring.rules.AllRefactoringRules;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+
+/**
+ * Keeps Eclipse running between headless runs,
+ * so each run does not pay again for starting the JVM, OSGi and JDT,
+ * nor for resolving the classpath of the Java projects.
+ * The Java model caches, the search indexes, the refactoring rules and the edit journal
+ * stay warm in memory between runs, and the requested paths are only refreshed when they are out of sync
+ * with the file system.
+ * The refactoring rules are configured once, when the daemon starts.
+ * <p>
+ * The daemon only listens on the loopback interface.
+ * It writes its port and a random token to the port file, only readable by its owner,
+ * and deletes this file when it stops.
+ * Each connection sends the token on the first line, then one request on the second line,
+ * made of tab separated words:
+ * <ul>
+ * <li>{@code refactor <workspace path>...} refactors the provided paths,</li>
+ * <li>{@code report <workspace path>...} only reports what would be refactored in the provided paths,</li>
+ * <li>{@code shutdown} stops the daemon.</li>
+ * </ul>
+ * The daemon answers with a single line starting with {@code OK} or {@code ERROR}, then closes the connection.
+ * Requests are served one at a time.
+ *
+ * @see AutoRefactorClient
+ */
+class AutoRefactorDaemon {
+    private static final int REQUEST_READ_TIMEOUT_MILLIS = 10000;
+
+    private final File portFile;
+    private volatile boolean stopped;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param portFile the file where to write the port and the token clients must use
+     */
+    AutoRefactorDaemon(File portFile) {
+        this.portFile = portFile;
+    }
+
+    /**
+     * Serves the requests until a shutdown request is received or {@link #stop()} is called.
+     *
+     * @throws IOException if the daemon could not listen for requests
+     */
+    void run() throws IOException {
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        serverSocket = server;
+        try {
+            final String token = newToken();
+            writePortFile(server.getLocalPort(), token);
+            final EditJournal journal = AutoRefactorPlugin.getPreferenceHelper().editJournalOn()
+                    ? PrepareApplyRefactoringsJob.loadEditJournal()
+                    : null;
+            final List<RefactoringRule> refactoringRules = AllRefactoringRules.getConfiguredRefactoringRules();
+            while (!stopped) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw e;
+                }
+                try {
+                    serve(socket, token, refactoringRules, journal);
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            server.close();
+            portFile.delete();
+        }
+    }
+
+    /** Stops the daemon, waiting for the request being served, if any, to complete. */
+    void stop() {
+        stopped = true;
+        final ServerSocket server = serverSocket;
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                AutoRefactorPlugin.logError("Could not stop the AutoRefactor daemon", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket, String token, List<RefactoringRule> refactoringRules, EditJournal journal)
+            throws IOException {
+        socket.setSoTimeout(REQUEST_READ_TIMEOUT_MILLIS);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+        final Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+        writer.write(handle(token.equals(reader.readLine()), reader.readLine(), refactoringRules, journal));
+        writer.write("\n");
+        writer.flush();
+    }
+
+    private String handle(boolean authenticated, String request, List<RefactoringRule> refactoringRules,
+            EditJournal journal) {
+        if (!authenticated) {
+            return "ERROR Invalid token";
+        } else if (request == null || request.length() == 0) {
+            return "ERROR Empty request";
+        }
+        final List<String> words = new ArrayList<String>(Arrays.asList(request.split("\t")));
+        final String command = words.remove(0);
+        if ("shutdown".equals(command)) {
+            stopped = true;
+            return "OK";
+        } else if (!"refactor".equals(command) && !"report".equals(command)) {
+            return "ERROR Unknown command: " + command;
+        } else if (words.isEmpty()) {
+            return "ERROR No workspace path to " + command;
+        }
+        try {
+            final IStatus status = AutoRefactorApplication.run(AutoRefactorApplication.getJavaElements(words),
+                    refactoringRules, "report".equals(command), journal, null);
+            return status.isOK() ? "OK" : "ERROR " + status.getMessage();
+        } catch (CoreException e) {
+            return "ERROR " + e.getMessage();
+        } catch (Exception e) {
+            AutoRefactorPlugin.logError("Could not serve the request: " + request, e);
+            return "ERROR " + e;
+        }
+    }
+
+    private String newToken() {
+        final byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        final StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xFF));
+        }
+        return sb.toString();
+    }
+
+    private void writePortFile(int port, String token) throws IOException {
+        // clients must not read a partially written port file
+        final File tmpFile = new File(portFile.getPath() + ".tmp");
+        // other users must not read the token: restrict the file before writing it
+        if ((tmpFile.exists() && !tmpFile.delete()) || !tmpFile.createNewFile()) {
+            throw new IOException("Could not create the port file " + tmpFile);
+        }
+        if (!tmpFile.setReadable(false, false) || !tmpFile.setReadable(true, true)
+                || !tmpFile.setWritable(false, false) || !tmpFile.setWritable(true, true)) {
+            // some file systems, like on Windows, cannot make a file unreadable by others
+            AutoRefactorPlugin.logWarning("Could not restrict the port file " + tmpFile + " to its owner");
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8");
+        try {
+            writer.write(port + " " + token + "\n");
+        } finally {
+            writer.close();
+        }
+        if (!tmpFile.renameTo(portFile)) {
+            portFile.delete();
+            if (!tmpFile.renameTo(portFile)) {
+                throw new IOException("Could not write the port file " + portFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Collects the compilation units refactored in memory by the {@link ApplyRefactoringsJob} workers,
+ * then saves all of them at once when all the workers are done.
+ * <p>
+ * All the files are written inside a single workspace operation,
+ * so resource change listeners are notified and the auto-build is triggered only once for the whole run,
+ * instead of once per file and per refactoring pass.
+ * <p>
+ * This class is thread-safe.
+ */
+class DeferredCommit {
+    private final Set<ICompilationUnit> compilationUnits = new LinkedHashSet<ICompilationUnit>();
+
+    /**
+     * Registers a compilation unit whose buffer has been modified and must be saved on commit.
+     *
+     * @param compilationUnit the modified compilation unit
+     */
+    synchronized void add(ICompilationUnit compilationUnit) {
+        compilationUnits.add(compilationUnit);
+    }
+
+    private synchronized List<ICompilationUnit> removeAll() {
+        final List<ICompilationUnit> results = new ArrayList<ICompilationUnit>(compilationUnits);
+        compilationUnits.clear();
+        return results;
+    }
+
+    /**
+     * Saves all the registered compilation units in a single workspace operation.
+     *
+     * @param monitor the progress monitor
+     * @throws CoreException if the workspace operation could not be run
+     */
+    void commit(IProgressMonitor monitor) throws CoreException {
+        final List<ICompilationUnit> toSave = removeAll();
+        if (toSave.isEmpty()) {
+            return;
+        }
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        workspace.run(new IWorkspaceRunnable() {
+            @Override
+            public void run(IProgressMonitor monitor) throws CoreException {
+                final SubMonitor progress = SubMonitor.convert(monitor, "Saving refactored files", toSave.size());
+                for (ICompilationUnit compilationUnit : toSave) {
+                    save(compilationUnit, progress.newChild(1));
+                }
+            }
+        }, getSchedulingRule(toSave), IWorkspace.AVOID_UPDATE, monitor);
+    }
+
+    private void save(ICompilationUnit compilationUnit, IProgressMonitor monitor) {
+        try {
+            if (compilationUnit.hasUnsavedChanges()) {
+                compilationUnit.save(monitor, true);
+            }
+        } catch (JavaModelException e) {
+            // do not prevent saving the other files
+            AutoRefactorPlugin.logError("Could not save the refactored file " + compilationUnit.getPath(), e);
+        }
+    }
+
+    /** Locks all the projects containing the files to save, and only them. */
+    private ISchedulingRule getSchedulingRule(List<ICompilationUnit> toSave) {
+        final Set<IProject> projects = new LinkedHashSet<IProject>();
+        for (ICompilationUnit compilationUnit : toSave) {
+            projects.add(compilationUnit.getJavaProject().getProject());
+        }
+        return new MultiRule(projects.toArray(new ISchedulingRule[projects.size()]));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.cfg.CFGBuilder;
+import org.autorefactor.cfg.CFGExporter;
+import org.autorefactor.cfg.CFGExporter.Format;
+import org.autorefactor.util.NotImplementedException;
+import org.autorefactor.util.UnhandledException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+
+/**
+ * Eclipse job exporting the CFGs of the methods of the units taken from the same queue
+ * as the {@link ApplyRefactoringsJob} workers.
+ * <p>
+ * Each worker writes to its own file, one method at a time:
+ * memory usage is bounded by the AST of the unit being exported, whatever the number of units.
+ */
+class ExportCFGsJob extends Job {
+    private final BlockingQueue<RefactoringUnit> units;
+    private final File outputFile;
+    private final Format format;
+    private int nbExportedMethods;
+    private int nbSkippedMethods;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param units the units which methods must be exported
+     * @param outputFile the file where to write the CFGs
+     * @param format the format of the output file
+     */
+    ExportCFGsJob(BlockingQueue<RefactoringUnit> units, File outputFile, Format format) {
+        super("Auto Refactor CFG export");
+        setPriority(Job.LONG);
+        this.units = units;
+        this.outputFile = outputFile;
+        this.format = format;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        AutoRefactorPlugin.register(this);
+        try {
+            return run0(monitor);
+        } catch (Exception e) {
+            return new Status(IStatus.ERROR, AutoRefactorPlugin.PLUGIN_ID,
+                    "Error while exporting CFGs to " + outputFile, e);
+        } finally {
+            AutoRefactorPlugin.unregister(this);
+        }
+    }
+
+    private IStatus run0(IProgressMonitor monitor) throws Exception {
+        final SubMonitor loopMonitor = SubMonitor.convert(monitor, units.size() + 1);
+        final CFGExporter exporter = new CFGExporter(format, new FileOutputStream(outputFile));
+        try {
+            RefactoringUnit unit;
+            while ((unit = nextUnit(loopMonitor)) != null) {
+                loopMonitor.setWorkRemaining(units.size() + 1);
+                final ICompilationUnit compilationUnit = unit.getCompilationUnit();
+                loopMonitor.subTask("Exporting CFGs of " + compilationUnit.getElementName());
+                try {
+                    export(compilationUnit, unit, exporter);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    final String msg = "Exception when exporting the CFGs of file \""
+                            + compilationUnit.getPath() + "\": " + e.getMessage();
+                    throw new UnhandledException(null, msg, e);
+                }
+                loopMonitor.worked(1);
+            }
+        } finally {
+            exporter.close();
+            loopMonitor.done();
+        }
+        if (nbSkippedMethods > 0) {
+            AutoRefactorPlugin.logWarning("Exported the CFGs of " + nbExportedMethods + " methods to " + outputFile
+                    + ", but skipped " + nbSkippedMethods + " methods using constructs not handled by CFGBuilder");
+        }
+        return loopMonitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+
+    private void export(ICompilationUnit compilationUnit, RefactoringUnit unit, final CFGExporter exporter)
+            throws Exception {
+        final ASTParser parser = ASTParser.newParser(AST.JLS4);
+        parser.setSource(compilationUnit);
+        parser.setResolveBindings(true);
+        parser.setCompilerOptions(unit.getOptions().getCompilerOptions());
+        final CompilationUnit astRoot = (CompilationUnit) parser.createAST(null);
+
+        final String fileName = compilationUnit.getPath().toString();
+        final CFGBuilder builder = new CFGBuilder(compilationUnit.getSource(), unit.getOptions());
+        final IOException[] ioException = new IOException[1];
+        astRoot.accept(new ASTVisitor() {
+            @Override
+            public boolean visit(MethodDeclaration node) {
+                if (node.getBody() != null && ioException[0] == null) {
+                    try {
+                        exporter.export(fileName, node, builder.buildCFG(node));
+                        nbExportedMethods++;
+                    } catch (IOException e) {
+                        ioException[0] = e;
+                    } catch (NotImplementedException e) {
+                        nbSkippedMethods++;
+                    }
+                }
+                // methods of local and anonymous classes are visited too
+                return true;
+            }
+        });
+        if (ioException[0] != null) {
+            throw ioException[0];
+        }
+        exporter.flush();
+    }
+
+    /**
+     * Waits for the next unit to export.
+     *
+     * @return the next unit to export, or null if there is no more work or the job has been canceled
+     */
+    private RefactoringUnit nextUnit(IProgressMonitor monitor) throws InterruptedException {
+        while (!monitor.isCanceled()) {
+            final RefactoringUnit unit = units.poll(100, TimeUnit.MILLISECONDS);
+            if (unit == RefactoringUnit.NO_MORE_UNITS) {
+                // put it back so the other workers also stop
+                units.add(unit);
+                return null;
+            } else if (unit != null) {
+                return unit;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.refactoring.Finding;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+
+/**
+ * Collects the findings of the {@link ApplyRefactoringsJob} workers running in report only mode,
+ * then publishes all of them at once when all the workers are done,
+ * as problem markers and optionally as a JSON file.
+ * <p>
+ * This class is thread-safe.
+ */
+class FindingsReport {
+    /** The type of the problem markers created for the findings. */
+    static final String MARKER_TYPE = AutoRefactorPlugin.PLUGIN_ID + ".finding";
+    /** The marker attribute holding the name of the rule which reported a finding. */
+    static final String RULE_NAME = "ruleName";
+
+    private final Map<ICompilationUnit, List<Finding>> findings = new LinkedHashMap<ICompilationUnit, List<Finding>>();
+
+    /**
+     * Records the findings for a compilation unit, replacing any previous findings for it.
+     *
+     * @param compilationUnit the analyzed compilation unit
+     * @param unitFindings the findings for this compilation unit, possibly empty
+     */
+    synchronized void add(ICompilationUnit compilationUnit, List<Finding> unitFindings) {
+        findings.put(compilationUnit, unitFindings);
+    }
+
+    private synchronized Map<ICompilationUnit, List<Finding>> getAll() {
+        return new LinkedHashMap<ICompilationUnit, List<Finding>>(findings);
+    }
+
+    /**
+     * Replaces the problem markers of each analyzed compilation unit with markers for its current findings.
+     * This modifies resources, so the caller must own a scheduling rule covering all the analyzed files.
+     *
+     * @param monitor the progress monitor
+     */
+    void createMarkers(IProgressMonitor monitor) {
+        final Map<ICompilationUnit, List<Finding>> all = getAll();
+        final SubMonitor progress = SubMonitor.convert(monitor, "Reporting findings", all.size());
+        for (Entry<ICompilationUnit, List<Finding>> entry : all.entrySet()) {
+            try {
+                updateMarkers(entry.getKey().getResource(), entry.getValue());
+            } catch (CoreException e) {
+                // do not prevent reporting the findings of the other files
+                AutoRefactorPlugin.logError("Could not report the findings for file " + entry.getKey().getPath(), e);
+            }
+            progress.worked(1);
+        }
+    }
+
+    /**
+     * Replaces the AutoRefactor problem markers of a resource with markers for the provided findings.
+     *
+     * @param resource the resource where to create the markers
+     * @param unitFindings the findings to report on this resource
+     * @throws CoreException if the markers could not be deleted or created
+     */
+    static void updateMarkers(IResource resource, List<Finding> unitFindings) throws CoreException {
+        if (resource == null || !resource.exists()) {
+            return;
+        }
+        resource.deleteMarkers(MARKER_TYPE, false, IResource.DEPTH_ZERO);
+        for (Finding finding : unitFindings) {
+            final IMarker marker = resource.createMarker(MARKER_TYPE);
+            marker.setAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO);
+            marker.setAttribute(IMarker.MESSAGE, finding.getMessage());
+            marker.setAttribute(IMarker.CHAR_START, finding.getStartPosition());
+            marker.setAttribute(IMarker.CHAR_END, finding.getStartPosition() + finding.getLength());
+            if (finding.getLineNumber() > 0) {
+                marker.setAttribute(IMarker.LINE_NUMBER, finding.getLineNumber());
+            }
+            marker.setAttribute(RULE_NAME, finding.getRuleName());
+        }
+    }
+
+    /**
+     * Writes all the findings as JSON to the provided file.
+     *
+     * @param file the file where to write the findings
+     * @throws IOException if the file could not be written
+     */
+    void writeJson(File file) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writeJson(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeJson(Writer writer) throws IOException {
+        final List<String> objects = new ArrayList<String>();
+        for (Entry<ICompilationUnit, List<Finding>> entry : getAll().entrySet()) {
+            final String path = entry.getKey().getPath().toString();
+            for (Finding finding : entry.getValue()) {
+                objects.add("{\"file\": " + toJsonString(path)
+                        + ", \"line\": " + finding.getLineNumber()
+                        + ", \"offset\": " + finding.getStartPosition()
+                        + ", \"length\": " + finding.getLength()
+                        + ", \"rule\": " + toJsonString(finding.getRuleName())
+                        + ", \"message\": " + toJsonString(finding.getMessage()) + "}");
+            }
+        }
+        writeJsonArray(writer, objects);
+    }
+
+    /** Writes one JSON object per line, which {@link #mergeJson(List, File)} relies on. */
+    private static void writeJsonArray(Writer writer, List<String> objects) throws IOException {
+        writer.write("[");
+        for (int i = 0; i < objects.size(); i++) {
+            writer.write(i == 0 ? "\n  " : ",\n  ");
+            writer.write(objects.get(i));
+        }
+        writer.write("\n]\n");
+    }
+
+    /**
+     * Merges JSON files written by {@link #writeJson(File)} into a single one.
+     *
+     * @param inputs the JSON files to merge, missing files are ignored
+     * @param output the file where to write the merged findings
+     * @throws IOException if a file could not be read or written
+     */
+    static void mergeJson(List<File> inputs, File output) throws IOException {
+        final List<String> objects = new ArrayList<String>();
+        for (File input : inputs) {
+            if (!input.exists()) {
+                continue;
+            }
+            final BufferedReader reader =
+                    new BufferedReader(new InputStreamReader(new FileInputStream(input), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.startsWith("{")) {
+                        objects.add(line.endsWith(",") ? line.substring(0, line.length() - 1) : line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), "UTF-8"));
+        try {
+            writeJsonArray(writer, objects);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static String toJsonString(String s) {
+        final StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.autorefactor.refactoring.LineRanges;
+
+/**
+ * Finds the Java files changed in a local git repository, along with their changed lines.
+ * <p>
+ * It runs the {@code git} command line found on the path, which only reads the local repository.
+ */
+public class GitChangedFiles {
+    /** Matches the header of a hunk in a unified diff, capturing the lines of the new file. */
+    private static final Pattern HUNK_HEADER = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private final File repositoryRoot;
+
+    private GitChangedFiles(File repositoryRoot) {
+        this.repositoryRoot = repositoryRoot;
+    }
+
+    /**
+     * Returns whether the {@code git} command line can be run.
+     *
+     * @return true if the {@code git} command line can be run, false if it is not installed or not on the path
+     */
+    public static boolean isGitAvailable() {
+        try {
+            return runGit(new File("."), "--version") != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns an instance for the git repository containing the provided directory.
+     *
+     * @param directory a directory inside a git repository
+     * @return an instance for the git repository containing the provided directory,
+     *         or null if the provided directory is not inside a git repository
+     * @throws IOException if the git command could not be run
+     */
+    public static GitChangedFiles forDirectory(File directory) throws IOException {
+        final String output = runGit(directory, "rev-parse", "--show-toplevel");
+        if (output == null) {
+            return null;
+        }
+        final File repositoryRoot = new File(output.trim());
+        if (!repositoryRoot.isDirectory()) {
+            return null;
+        }
+        return new GitChangedFiles(repositoryRoot);
+    }
+
+    /**
+     * Returns the root directory of the git repository.
+     *
+     * @return the root directory of the git repository
+     */
+    public File getRepositoryRoot() {
+        return repositoryRoot;
+    }
+
+    /**
+     * Returns the Java files changed in the working tree, along with their changed lines.
+     * Deleted files are ignored, untracked files are considered entirely changed.
+     *
+     * @param baseRef the git reference to compare the working tree with,
+     *            or an empty string to compare the working tree with the index
+     * @return a map from changed files to their changed lines.
+     *         The changed lines are null for untracked files.
+     * @throws IOException if the git commands could not be run or failed
+     */
+    public Map<File, LineRanges> getChangedJavaFiles(String baseRef) throws IOException {
+        final List<String> diffArgs = new ArrayList<String>(Arrays.asList(
+                "diff", "--no-color", "--no-ext-diff", "--no-renames", "--unified=0",
+                // the configuration of the user can change or drop the prefixes expected by the parser
+                "--src-prefix=a/", "--dst-prefix=b/"));
+        if (baseRef != null && baseRef.length() > 0) {
+            diffArgs.add(baseRef);
+        }
+        diffArgs.add("--");
+        diffArgs.add("*.java");
+        final String diff = runGit(repositoryRoot, diffArgs.toArray(new String[diffArgs.size()]));
+        if (diff == null) {
+            throw new IOException("Could not compute the git diff with '" + baseRef + "' in " + repositoryRoot);
+        }
+
+        final Map<File, LineRanges> results = new LinkedHashMap<File, LineRanges>();
+        final Map<String, LineRanges> changes = parseUnifiedDiff(new BufferedReader(new StringReader(diff)));
+        for (Entry<String, LineRanges> entry : changes.entrySet()) {
+            results.put(new File(repositoryRoot, entry.getKey()), entry.getValue());
+        }
+
+        final String untracked = runGit(repositoryRoot, "ls-files", "--others", "--exclude-standard", "--", "*.java");
+        if (untracked != null) {
+            for (String path : untracked.split("\n")) {
+                final File file = new File(repositoryRoot, path);
+                if (path.endsWith(".java") && file.isFile()) {
+                    results.put(file, null);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Parses the changed lines of the new files from a unified diff.
+     *
+     * @param reader the reader of the unified diff
+     * @return a map from the paths of the new files to their changed lines
+     * @throws IOException if the unified diff could not be read
+     */
+    public static Map<String, LineRanges> parseUnifiedDiff(BufferedReader reader) throws IOException {
+        final Map<String, LineRanges> results = new LinkedHashMap<String, LineRanges>();
+        LineRanges currentRanges = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("+++ ")) {
+                final String path = getNewPath(line.substring("+++ ".length()));
+                if (path != null) {
+                    currentRanges = results.get(path);
+                    if (currentRanges == null) {
+                        currentRanges = new LineRanges();
+                        results.put(path, currentRanges);
+                    }
+                } else {
+                    // deleted file
+                    currentRanges = null;
+                }
+            } else if (line.startsWith("@@ ") && currentRanges != null) {
+                final Matcher matcher = HUNK_HEADER.matcher(line);
+                if (matcher.find()) {
+                    final int start = Integer.parseInt(matcher.group(1));
+                    final int count = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 1;
+                    if (count > 0) {
+                        currentRanges.add(start, start + count - 1);
+                    } else {
+                        // lines have been deleted after the start line
+                        final int lineNumber = Math.max(1, start);
+                        currentRanges.add(lineNumber, lineNumber);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static String getNewPath(String path) {
+        final int tabIndex = path.indexOf('\t');
+        final String result = tabIndex != -1 ? path.substring(0, tabIndex) : path;
+        if (result.startsWith("b/")) {
+            return result.substring("b/".length());
+        }
+        return null;
+    }
+
+    /**
+     * Runs a git command in the provided directory.
+     *
+     * @return the standard output of the git command, or null if the command failed
+     */
+    private static String runGit(File directory, String... args) throws IOException {
+        final List<String> command = new ArrayList<String>(args.length + 3);
+        command.add("git");
+        // do not escape non ASCII characters in paths
+        command.add("-c");
+        command.add("core.quotepath=off");
+        command.addAll(Arrays.asList(args));
+        final Process process = new ProcessBuilder(command).directory(directory).start();
+        // keep the error output out of the parsed output,
+        // but drain it concurrently so it cannot fill up and block the process
+        final Thread errorDrainer = new Thread("Draining the error output of " + command) {
+            @Override
+            public void run() {
+                try {
+                    readLines(process.getErrorStream());
+                } catch (IOException e) {
+                    // the process is gone: its exit value tells what happened
+                }
+            }
+        };
+        errorDrainer.setDaemon(true);
+        errorDrainer.start();
+        final String output = readLines(process.getInputStream());
+        try {
+            final int exitValue = process.waitFor();
+            errorDrainer.join();
+            return exitValue == 0 ? output : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running " + command);
+        }
+    }
+
+    private static String readLines(InputStream inputStream) throws IOException {
+        final StringBuilder output = new StringBuilder();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append("\n");
+            }
+        } finally {
+            reader.close();
+        }
+        return output.toString();
+    }
+}
@@ -25,21 +25,49 @@
  */
 package org.autorefactor.ui;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.cfg.CFGExporter;
+import org.autorefactor.refactoring.EditJournal;
 import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.LineRanges;
 import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.util.NotImplementedException;
 import org.autorefactor.util.UnhandledException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.ICompilationUnit;
@@ -47,12 +75,34 @@ import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
 import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.JavaModelException;
 
 /** Eclipse job that prepares and partitions work for {@link ApplyRefactoringsJob}. */
 public class PrepareApplyRefactoringsJob extends Job {
+    /** Number of runs currently executing, guarded by the class lock. */
+    private static int nbRunsSuspendingAutoBuild;
+    /** Whether auto-build was on before the first of the currently executing runs started. */
+    private static boolean autoBuildingBeforeRuns;
+
     private final List<IJavaElement> javaElements;
     private final List<RefactoringRule> refactoringRulesToApply;
+    private final boolean changedFilesOnly;
+    private final boolean reportOnly;
+    /** The edit journal kept in memory across runs, or null to load it from disk when it is turned on. */
+    private EditJournal editJournal;
+    /** The file where to write the findings as JSON, or null to use the preferences. */
+    private File reportJsonFile;
+    /** The directory where to export the CFGs instead of refactoring, or null to refactor. */
+    private File cfgExportDirectory;
+    private CFGExporter.Format cfgExportFormat;
+    /** The types each compilation unit may use, or null when no type specific rule is applied. */
+    private ReferencedTypes referencedTypes;
+    /**
+     * Whether {@link RefactoringUnit#NO_MORE_UNITS} has been queued,
+     * guarded by the queue of the refactoring units.
+     */
+    private boolean noMoreUnits;
     private final Map<IJavaElement, JavaProjectOptions> javaProjects = new HashMap<IJavaElement, JavaProjectOptions>();
 
     /**
@@ -62,10 +112,70 @@ public class PrepareApplyRefactoringsJob extends Job {
      * @param refactoringRulesToApply the refactorings to apply
      */
     public PrepareApplyRefactoringsJob(List<IJavaElement> javaElements, List<RefactoringRule> refactoringRulesToApply) {
-        super("Prepare Auto Refactor");
+        this(javaElements, refactoringRulesToApply, false);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param javaElements the java elements selected for automatic refactoring
+     * @param refactoringRulesToApply the refactorings to apply
+     * @param changedFilesOnly whether to only refactor the files of the selection
+     *        which have local changes in their git repository
+     */
+    public PrepareApplyRefactoringsJob(List<IJavaElement> javaElements, List<RefactoringRule> refactoringRulesToApply,
+            boolean changedFilesOnly) {
+        this(javaElements, refactoringRulesToApply, changedFilesOnly, false);
+    }
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param javaElements the java elements selected for automatic refactoring
+     * @param refactoringRulesToApply the refactorings to apply
+     * @param changedFilesOnly whether to only refactor the files of the selection
+     *        which have local changes in their git repository
+     * @param reportOnly whether to only report what would be refactored as problem markers,
+     *        without changing any file
+     */
+    public PrepareApplyRefactoringsJob(List<IJavaElement> javaElements, List<RefactoringRule> refactoringRulesToApply,
+            boolean changedFilesOnly, boolean reportOnly) {
+        super(reportOnly ? "Prepare Auto Refactor report" : "Prepare Auto Refactor");
         setPriority(Job.SHORT);
         this.javaElements = javaElements;
         this.refactoringRulesToApply = refactoringRulesToApply;
+        this.changedFilesOnly = changedFilesOnly;
+        this.reportOnly = reportOnly;
+    }
+
+    /**
+     * Uses the provided edit journal, kept in memory across runs, instead of loading the edit journal from disk.
+     *
+     * @param editJournal the edit journal to use
+     */
+    void setEditJournal(EditJournal editJournal) {
+        this.editJournal = editJournal;
+    }
+
+    /**
+     * Writes the findings of the report only mode as JSON to the provided file, instead of using the preferences.
+     *
+     * @param reportJsonFile the file where to write the findings as JSON
+     */
+    void setReportJsonFile(File reportJsonFile) {
+        this.reportJsonFile = reportJsonFile;
+    }
+
+    /**
+     * Exports the CFGs of all the methods of the selection to the provided directory, instead of refactoring.
+     * Each worker writes its own file in the provided format.
+     *
+     * @param directory the directory where to export the CFGs
+     * @param format the format of the exported files
+     */
+    void setCFGExport(File directory, CFGExporter.Format format) {
+        this.cfgExportDirectory = directory;
+        this.cfgExportFormat = format;
     }
 
     @Override
@@ -85,19 +195,268 @@ public class PrepareApplyRefactoringsJob extends Job {
     }
 
     private IStatus run0(IProgressMonitor monitor) throws Exception {
+        if (changedFilesOnly && !GitChangedFiles.isGitAvailable()) {
+            // refactoring the whole selection instead would be the opposite of what was asked for
+            return new Status(IStatus.ERROR, AutoRefactorPlugin.PLUGIN_ID,
+                    "The git command line could not be run, so the changed files could not be found."
+                    + " No file was refactored.");
+        }
         if (!javaElements.isEmpty()) {
-            final Queue<RefactoringUnit> toRefactor = collectRefactoringUnits(javaElements);
-            final int nbCores = Runtime.getRuntime().availableProcessors();
-            final int nbWorkers = computeNbWorkers(toRefactor.size(), nbCores);
-            for (int i = 0; i < nbWorkers; i++) {
-                new ApplyRefactoringsJob(
-                        toRefactor,
-                        clone(refactoringRulesToApply)).schedule();
+            final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+            suspendAutoBuild(workspace);
+            final IStatus[] workersStatus = { Status.OK_STATUS };
+            try {
+                // resource change notifications are only broadcast once the whole run is over.
+                // No scheduling rule is held while joining the workers: they may wait for the UI thread
+                // to update open editors, and the deferred commit locks the projects it saves by itself
+                workspace.run(new IWorkspaceRunnable() {
+                    @Override
+                    public void run(IProgressMonitor monitor) throws CoreException {
+                        try {
+                            if (cfgExportDirectory != null) {
+                                workersStatus[0] = exportCFGs(monitor);
+                            } else {
+                                workersStatus[0] = refactor(monitor);
+                            }
+                        } catch (CoreException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new UnhandledException(null, e);
+                        }
+                    }
+                }, null, IWorkspace.AVOID_UPDATE, monitor);
+            } finally {
+                resumeAutoBuild(workspace);
             }
+            return workersStatus[0];
         }
         return Status.OK_STATUS;
     }
 
+    /**
+     * Turns off the auto-build for the duration of the run,
+     * so the background build does not compete with the workers for the same cores.
+     * <p>
+     * The auto-build setting is persisted with the workspace description,
+     * so a marker file records that it must be turned back on in case Eclipse exits in the middle of a run.
+     */
+    private static void suspendAutoBuild(IWorkspace workspace) throws CoreException {
+        synchronized (PrepareApplyRefactoringsJob.class) {
+            if (nbRunsSuspendingAutoBuild == 0) {
+                final File marker = getAutoBuildSuspendedFile();
+                // the marker is left over by a run which could not turn the auto-build back on
+                autoBuildingBeforeRuns = setAutoBuilding(workspace, false) || marker.exists();
+                if (autoBuildingBeforeRuns) {
+                    createAutoBuildSuspendedFile(marker);
+                }
+            }
+            nbRunsSuspendingAutoBuild++;
+        }
+    }
+
+    /**
+     * Restores the auto-build once the last concurrent run is over,
+     * unless the user changed it in the meantime.
+     * Turning the auto-build back on triggers a single incremental build of everything refactored.
+     */
+    private static void resumeAutoBuild(IWorkspace workspace) throws CoreException {
+        synchronized (PrepareApplyRefactoringsJob.class) {
+            if (--nbRunsSuspendingAutoBuild == 0 && autoBuildingBeforeRuns) {
+                final File marker = getAutoBuildSuspendedFile();
+                if (!workspace.getDescription().isAutoBuilding()) {
+                    setAutoBuilding(workspace, true);
+                }
+                if (marker.exists() && !marker.delete()) {
+                    AutoRefactorPlugin.logWarning("Could not delete the file " + marker);
+                }
+            }
+        }
+    }
+
+    private static File getAutoBuildSuspendedFile() {
+        return AutoRefactorPlugin.getDefault().getStateLocation().append("auto-build-suspended").toFile();
+    }
+
+    private static void createAutoBuildSuspendedFile(File marker) {
+        try {
+            marker.createNewFile();
+        } catch (IOException e) {
+            AutoRefactorPlugin.logWarning("Could not create the file " + marker
+                    + ": the auto-build will stay off if Eclipse exits before the end of the run");
+        }
+    }
+
+    private static boolean setAutoBuilding(IWorkspace workspace, boolean autoBuilding) throws CoreException {
+        final IWorkspaceDescription description = workspace.getDescription();
+        final boolean wasAutoBuilding = description.isAutoBuilding();
+        if (wasAutoBuilding != autoBuilding) {
+            description.setAutoBuilding(autoBuilding);
+            workspace.setDescription(description);
+        }
+        return wasAutoBuilding;
+    }
+
+    private IStatus refactor(IProgressMonitor monitor) throws Exception {
+        final Set<String> requiredTypes = ReferencedTypes.getRequiredTypes(refactoringRulesToApply);
+        referencedTypes = !requiredTypes.isEmpty() ? new ReferencedTypes(requiredTypes) : null;
+        final BlockingQueue<RefactoringUnit> toRefactor = new LinkedBlockingQueue<RefactoringUnit>();
+        final int nbCores = Runtime.getRuntime().availableProcessors();
+        final int nbWorkers = computeNbWorkers(javaElements, nbCores);
+        final EditJournal journal = getEditJournal();
+        final DeferredCommit deferredCommit = new DeferredCommit();
+        final FindingsReport findingsReport = reportOnly ? new FindingsReport() : null;
+        final List<Job> workers = new ArrayList<Job>(nbWorkers);
+        IStatus workersStatus = null;
+        for (int i = 0; i < nbWorkers; i++) {
+            final Job worker = new ApplyRefactoringsJob(
+                    toRefactor,
+                    clone(refactoringRulesToApply),
+                    journal,
+                    deferredCommit,
+                    findingsReport);
+            worker.schedule();
+            workers.add(worker);
+        }
+        try {
+            // workers start refactoring the first units while the others are still being discovered
+            collectRefactoringUnits(javaElements, toRefactor, nbCores, monitor);
+            workersStatus = joinAll(workers);
+        } finally {
+            if (workersStatus == null) {
+                // the run failed: stop the workers first, so none registers a file after the commit
+                cancelAndJoin(workers);
+            }
+            // all the files have converged in memory: write them all at once,
+            // even when the run failed, so no buffer is left with unsaved changes
+            deferredCommit.commit(monitor);
+        }
+        if (findingsReport != null) {
+            reportFindings(findingsReport, monitor);
+        }
+        if (journal != null) {
+            saveEditJournal(journal);
+        }
+        return workersStatus;
+    }
+
+    /**
+     * Exports the CFGs of the units streamed through the same queue as for refactoring.
+     * The exported files are written while the units are discovered,
+     * so memory usage does not grow with the number of units.
+     */
+    private IStatus exportCFGs(IProgressMonitor monitor) throws Exception {
+        if (!cfgExportDirectory.isDirectory() && !cfgExportDirectory.mkdirs()) {
+            throw new IOException("Could not create the directory " + cfgExportDirectory);
+        }
+        final BlockingQueue<RefactoringUnit> toExport = new LinkedBlockingQueue<RefactoringUnit>();
+        final int nbCores = Runtime.getRuntime().availableProcessors();
+        final int nbWorkers = computeNbWorkers(javaElements, nbCores);
+        final List<Job> workers = new ArrayList<Job>(nbWorkers);
+        for (int i = 0; i < nbWorkers; i++) {
+            final File outputFile = new File(cfgExportDirectory,
+                    "cfgs-" + i + "." + cfgExportFormat.getFileExtension());
+            final Job worker = new ExportCFGsJob(toExport, outputFile, cfgExportFormat);
+            worker.schedule();
+            workers.add(worker);
+        }
+        collectRefactoringUnits(javaElements, toExport, nbCores, monitor);
+        return joinAll(workers);
+    }
+
+    /**
+     * Waits for all the provided workers to finish.
+     *
+     * @return the result of the workers which did not succeed, or an OK status if they all succeeded
+     */
+    private static IStatus joinAll(List<Job> workers) throws InterruptedException {
+        final MultiStatus results = new MultiStatus(AutoRefactorPlugin.PLUGIN_ID, IStatus.OK,
+                "Some workers did not complete their work", null);
+        for (Job worker : workers) {
+            worker.join();
+            final IStatus result = worker.getResult();
+            if (result != null && !result.isOK()) {
+                results.add(result);
+            }
+        }
+        return results.isOK() ? Status.OK_STATUS : results;
+    }
+
+    /** Cancels all the provided workers, then waits for them to stop, without throwing anything. */
+    private static void cancelAndJoin(List<Job> workers) {
+        for (Job worker : workers) {
+            worker.cancel();
+        }
+        try {
+            for (Job worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reportFindings(FindingsReport findingsReport, IProgressMonitor monitor) {
+        findingsReport.createMarkers(monitor);
+        final String jsonFile = reportJsonFile != null
+                ? reportJsonFile.getPath()
+                : AutoRefactorPlugin.getPreferenceHelper().reportJsonFile();
+        if (jsonFile.length() > 0) {
+            try {
+                findingsReport.writeJson(new File(jsonFile));
+            } catch (IOException e) {
+                AutoRefactorPlugin.logError("Could not write the findings to " + jsonFile, e);
+            }
+        }
+    }
+
+    private EditJournal getEditJournal() {
+        if (reportOnly) {
+            return null;
+        } else if (editJournal != null) {
+            return editJournal;
+        }
+        return AutoRefactorPlugin.getPreferenceHelper().editJournalOn() ? loadEditJournal() : null;
+    }
+
+    private static File getEditJournalFile() {
+        return AutoRefactorPlugin.getDefault().getStateLocation().append("edit-journal.txt").toFile();
+    }
+
+    /**
+     * Loads the edit journal from disk.
+     *
+     * @return the edit journal, empty if it could not be read
+     */
+    static EditJournal loadEditJournal() {
+        final EditJournal journal = new EditJournal();
+        final File journalFile = getEditJournalFile();
+        if (journalFile.exists()) {
+            try {
+                final Reader reader = new InputStreamReader(new FileInputStream(journalFile), "UTF-8");
+                try {
+                    journal.read(reader);
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                AutoRefactorPlugin.logError("Could not read the edit journal " + journalFile
+                        + ", starting a new one.", e);
+                return new EditJournal();
+            }
+        }
+        return journal;
+    }
+
+    private void saveEditJournal(EditJournal journal) throws IOException {
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(getEditJournalFile()), "UTF-8"));
+        try {
+            journal.write(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
     /**
      * Clones all the refactorings to apply.
      * In fairness, this method is only useful for stateful refactorings.
@@ -110,8 +469,14 @@ public class PrepareApplyRefactoringsJob extends Job {
         return res;
     }
 
-    private int computeNbWorkers(int nbWorkItems, int nbCores) {
-        final int nbPartitions = nbWorkItems / 10;
+    private int computeNbWorkers(List<IJavaElement> javaElements, int nbCores) {
+        for (IJavaElement javaElement : javaElements) {
+            if (!(javaElement instanceof ICompilationUnit)) {
+                // the number of work items is not known in advance
+                return nbCores;
+            }
+        }
+        final int nbPartitions = javaElements.size() / 10;
         if (nbPartitions >= nbCores) {
             return nbCores;
         } else if (nbPartitions > 0) {
@@ -121,51 +486,156 @@ public class PrepareApplyRefactoringsJob extends Job {
         }
     }
 
-    private Queue<RefactoringUnit> collectRefactoringUnits(List<IJavaElement> javaElements) {
+    /**
+     * Streams the units to refactor into the provided queue,
+     * then marks the end of the stream with {@link RefactoringUnit#NO_MORE_UNITS}.
+     * <p>
+     * Java elements are enumerated in the current thread,
+     * while checking each compilation unit is done by a pool of threads.
+     */
+    private void collectRefactoringUnits(List<IJavaElement> javaElements, BlockingQueue<RefactoringUnit> results,
+            int nbThreads, IProgressMonitor monitor) {
+        synchronized (results) {
+            noMoreUnits = false;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
         try {
-            final Queue<RefactoringUnit> results = new ConcurrentLinkedQueue<RefactoringUnit>();
-            addAll(results, javaElements);
-            return results;
+            if (changedFilesOnly) {
+                addChanged(results, javaElements, executor, monitor);
+            } else {
+                addAll(results, javaElements, executor, monitor);
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+                if (monitor.isCanceled()) {
+                    break;
+                }
+            }
         } catch (Exception e) {
             throw new UnhandledException(null, e);
+        } finally {
+            executor.shutdownNow();
+            synchronized (results) {
+                // tasks still running after a cancellation must not queue units behind this one
+                noMoreUnits = true;
+                results.add(RefactoringUnit.NO_MORE_UNITS);
+            }
         }
     }
 
-    private void addAll(Queue<RefactoringUnit> results, List<IJavaElement> javaElements) throws JavaModelException {
+    /**
+     * Only adds the compilation units of the selection which git reports as changed
+     * compared to the configured base reference, without enumerating the whole selection.
+     */
+    private void addChanged(BlockingQueue<RefactoringUnit> results, List<IJavaElement> javaElements,
+            ExecutorService executor, IProgressMonitor monitor) throws IOException {
+        final String baseRef = AutoRefactorPlugin.getPreferenceHelper().gitBaseRef();
+        final boolean changedLinesOnly = AutoRefactorPlugin.getPreferenceHelper().gitChangedLinesOnly();
+        final IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+        final Map<File, Map<File, LineRanges>> changedFilesByRepository = new HashMap<File, Map<File, LineRanges>>();
+        final Set<ICompilationUnit> added = new HashSet<ICompilationUnit>();
         for (IJavaElement javaElement : javaElements) {
+            final IJavaProject javaProject = getIJavaProject(javaElement);
+            final IPath projectLocation = javaProject.getProject().getLocation();
+            if (projectLocation == null) {
+                continue;
+            }
+            final GitChangedFiles git = GitChangedFiles.forDirectory(projectLocation.toFile());
+            if (git == null) {
+                AutoRefactorPlugin.logWarning("Project " + javaProject.getElementName()
+                        + " is not in a git repository: none of its files will be refactored");
+                continue;
+            }
+            Map<File, LineRanges> changedFiles = changedFilesByRepository.get(git.getRepositoryRoot());
+            if (changedFiles == null) {
+                changedFiles = git.getChangedJavaFiles(baseRef);
+                changedFilesByRepository.put(git.getRepositoryRoot(), changedFiles);
+            }
+
+            final JavaProjectOptions options = getJavaProjectOptions(javaElement);
+            for (Entry<File, LineRanges> entry : changedFiles.entrySet()) {
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                final IFile file = workspaceRoot.getFileForLocation(new Path(entry.getKey().getAbsolutePath()));
+                final IJavaElement changed = file != null ? JavaCore.create(file) : null;
+                if (changed instanceof ICompilationUnit
+                        && isAncestorOrSelf(javaElement, changed)
+                        && added.add((ICompilationUnit) changed)) {
+                    final LineRanges lineRanges = changedLinesOnly ? entry.getValue() : null;
+                    add(results, (ICompilationUnit) changed, options, lineRanges, executor);
+                }
+            }
+        }
+    }
+
+    private boolean isAncestorOrSelf(IJavaElement ancestor, IJavaElement javaElement) {
+        for (IJavaElement elem = javaElement; elem != null; elem = elem.getParent()) {
+            if (ancestor.equals(elem)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addAll(BlockingQueue<RefactoringUnit> results, List<IJavaElement> javaElements,
+            ExecutorService executor, IProgressMonitor monitor) throws JavaModelException {
+        for (IJavaElement javaElement : javaElements) {
+            if (monitor.isCanceled()) {
+                return;
+            }
             final JavaProjectOptions options = getJavaProjectOptions(javaElement);
             if (javaElement instanceof ICompilationUnit) {
-                add(results, (ICompilationUnit) javaElement, options);
+                add(results, (ICompilationUnit) javaElement, options, null, executor);
             } else if (javaElement instanceof IPackageFragment) {
                 final IPackageFragment pf = (IPackageFragment) javaElement;
-                addAll(results, pf.getCompilationUnits(), options);
+                addAll(results, pf.getCompilationUnits(), options, executor);
             } else if (javaElement instanceof IPackageFragmentRoot) {
                 final IPackageFragmentRoot pfr = (IPackageFragmentRoot) javaElement;
-                addAll(results, Arrays.asList(pfr.getChildren()));
+                addAll(results, Arrays.asList(pfr.getChildren()), executor, monitor);
             } else if (javaElement instanceof IJavaProject) {
                 IJavaProject javaProject = (IJavaProject) javaElement;
                 for (IPackageFragment pf : javaProject.getPackageFragments()) {
-                    addAll(results, pf.getCompilationUnits(), options);
+                    if (monitor.isCanceled()) {
+                        return;
+                    }
+                    addAll(results, pf.getCompilationUnits(), options, executor);
                 }
             }
         }
     }
 
-    private void addAll(final Queue<RefactoringUnit> results, ICompilationUnit[] cus, JavaProjectOptions options)
-            throws JavaModelException {
+    private void addAll(final BlockingQueue<RefactoringUnit> results, ICompilationUnit[] cus,
+            JavaProjectOptions options, ExecutorService executor) {
         for (ICompilationUnit cu : cus) {
-            add(results, cu, options);
+            add(results, cu, options, null, executor);
         }
     }
 
-    private void add(final Queue<RefactoringUnit> results, ICompilationUnit cu, JavaProjectOptions options)
-            throws JavaModelException {
-        if (!cu.isConsistent()) {
-            cu.makeConsistent(null);
-        }
-        if (!cu.isReadOnly()) {
-            results.add(new RefactoringUnit(cu, options));
-        }
+    private void add(final BlockingQueue<RefactoringUnit> results, final ICompilationUnit cu,
+            final JavaProjectOptions options, final LineRanges lineRanges, ExecutorService executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!cu.isConsistent()) {
+                        cu.makeConsistent(null);
+                    }
+                    if (!cu.isReadOnly()) {
+                        // tells which units the type specific rules can skip, without parsing them
+                        final Set<String> types = referencedTypes != null ? referencedTypes.get(cu) : null;
+                        final RefactoringUnit unit = new RefactoringUnit(cu, options, lineRanges, types);
+                        synchronized (results) {
+                            if (!noMoreUnits) {
+                                results.add(unit);
+                            }
+                        }
+                    }
+                } catch (JavaModelException e) {
+                    AutoRefactorPlugin.logError("Could not prepare file " + cu.getPath() + " for refactoring", e);
+                }
+            }
+        });
     }
 
     @SuppressWarnings("unchecked")
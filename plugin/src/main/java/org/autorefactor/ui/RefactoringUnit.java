@@ -25,17 +25,36 @@
  */
 package org.autorefactor.ui;
 
+import java.util.Set;
+
 import org.autorefactor.refactoring.JavaProjectOptions;
+import org.autorefactor.refactoring.LineRanges;
 import org.eclipse.jdt.core.ICompilationUnit;
 
 /** Work item for the {@link ApplyRefactoringsJob}. */
 class RefactoringUnit {
+    /** Marks the end of the stream of work items: no more units will be added to the queue after this one. */
+    static final RefactoringUnit NO_MORE_UNITS = new RefactoringUnit(null, null);
+
     private final ICompilationUnit compilationUnit;
     private final JavaProjectOptions options;
+    private final LineRanges lineRanges;
+    private final Set<String> referencedTypes;
 
     RefactoringUnit(ICompilationUnit compilationUnit, JavaProjectOptions options) {
+        this(compilationUnit, options, null);
+    }
+
+    RefactoringUnit(ICompilationUnit compilationUnit, JavaProjectOptions options, LineRanges lineRanges) {
+        this(compilationUnit, options, lineRanges, null);
+    }
+
+    RefactoringUnit(ICompilationUnit compilationUnit, JavaProjectOptions options, LineRanges lineRanges,
+            Set<String> referencedTypes) {
         this.compilationUnit = compilationUnit;
         this.options = options;
+        this.lineRanges = lineRanges;
+        this.referencedTypes = referencedTypes;
     }
 
     ICompilationUnit getCompilationUnit() {
@@ -46,6 +65,24 @@ class RefactoringUnit {
         return options;
     }
 
+    /**
+     * Returns the lines to refactor.
+     *
+     * @return the lines to refactor, or null to refactor the whole file
+     */
+    LineRanges getLineRanges() {
+        return lineRanges;
+    }
+
+    /**
+     * Returns the types required by the type specific refactoring rules which are referenced by this unit.
+     *
+     * @return the referenced types, or null if they are unknown and all the refactoring rules must be applied
+     */
+    Set<String> getReferencedTypes() {
+        return referencedTypes;
+    }
+
     @Override
     public String toString() {
         return getCompilationUnit().toString();
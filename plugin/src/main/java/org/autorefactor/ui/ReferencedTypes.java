@@ -0,0 +1,178 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.autorefactor.refactoring.RefactoringRule;
+import org.autorefactor.refactoring.TypeSpecificRefactoringRule;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Finds which of the types required by the {@link TypeSpecificRefactoringRule}s
+ * each compilation unit may use.
+ * <p>
+ * A compilation unit may use a required type when it names this type or one of its subtypes:
+ * for example a unit only naming {@code java.util.Stack} still calls the methods of {@code java.util.Vector},
+ * and a JUnit 3 test extending a base class of the project inherits the assertions of {@code TestCase}.
+ * The subtypes of the required types are computed once per project from their type hierarchies,
+ * then each compilation unit is only scanned for the simple names of these types.
+ * <p>
+ * This avoids parsing and resolving bindings in the compilation units
+ * where type specific rules cannot apply.
+ * <p>
+ * This class is thread safe.
+ */
+class ReferencedTypes {
+    private final Collection<String> requiredTypes;
+    /** For each project, the simple names of each required type and of its subtypes. */
+    private final Map<IJavaProject, Map<String, Set<String>>> simpleNamesByProject =
+            new HashMap<IJavaProject, Map<String, Set<String>>>();
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param requiredTypes the fully qualified names of the types required by the type specific rules
+     */
+    ReferencedTypes(Collection<String> requiredTypes) {
+        this.requiredTypes = requiredTypes;
+    }
+
+    /**
+     * Returns the types required by the provided refactoring rules.
+     *
+     * @param refactoringRules the refactoring rules
+     * @return the types required by the provided refactoring rules,
+     *         empty if none of them is a {@link TypeSpecificRefactoringRule}
+     */
+    static Set<String> getRequiredTypes(List<RefactoringRule> refactoringRules) {
+        final Set<String> results = new HashSet<String>();
+        for (RefactoringRule refactoringRule : refactoringRules) {
+            if (refactoringRule instanceof TypeSpecificRefactoringRule) {
+                for (String requiredType : ((TypeSpecificRefactoringRule) refactoringRule).getRequiredTypes()) {
+                    results.add(requiredType);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns whether the provided refactoring rule may apply to a compilation unit referencing the provided types.
+     *
+     * @param refactoringRule the refactoring rule
+     * @param referencedTypes the types referenced by a compilation unit, or null if unknown
+     * @return true if the provided refactoring rule may apply, false otherwise
+     */
+    static boolean canApply(RefactoringRule refactoringRule, Set<String> referencedTypes) {
+        if (referencedTypes == null || !(refactoringRule instanceof TypeSpecificRefactoringRule)) {
+            return true;
+        }
+        for (String requiredType : ((TypeSpecificRefactoringRule) refactoringRule).getRequiredTypes()) {
+            if (referencedTypes.contains(requiredType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the required types which the provided compilation unit may use.
+     *
+     * @param compilationUnit the compilation unit
+     * @return the required types which the provided compilation unit may use, or null if unknown
+     * @throws JavaModelException if the source of the compilation unit or the type hierarchies cannot be read
+     */
+    Set<String> get(ICompilationUnit compilationUnit) throws JavaModelException {
+        final String source = compilationUnit.getSource();
+        if (source == null) {
+            return null;
+        }
+        final Set<String> identifiers = getIdentifiers(source);
+        final Set<String> results = new HashSet<String>();
+        for (Entry<String, Set<String>> entry : getSimpleNames(compilationUnit.getJavaProject()).entrySet()) {
+            if (!Collections.disjoint(entry.getValue(), identifiers)) {
+                results.add(entry.getKey());
+            }
+        }
+        return results;
+    }
+
+    private synchronized Map<String, Set<String>> getSimpleNames(IJavaProject javaProject)
+            throws JavaModelException {
+        Map<String, Set<String>> results = simpleNamesByProject.get(javaProject);
+        if (results == null) {
+            results = new HashMap<String, Set<String>>();
+            for (String requiredType : requiredTypes) {
+                final Set<String> simpleNames = new HashSet<String>();
+                simpleNames.add(requiredType.substring(requiredType.lastIndexOf('.') + 1));
+                final IType type = javaProject.findType(requiredType);
+                if (type != null) {
+                    for (IType subtype : type.newTypeHierarchy(javaProject, null).getAllSubtypes(type)) {
+                        if (subtype.getElementName().length() > 0) {
+                            // anonymous classes can only be used through a named supertype
+                            simpleNames.add(subtype.getElementName());
+                        }
+                    }
+                }
+                results.put(requiredType, simpleNames);
+            }
+            simpleNamesByProject.put(javaProject, results);
+        }
+        return results;
+    }
+
+    /**
+     * Returns all the java identifiers found in the provided source, including in comments and string literals.
+     * This is cheaper than parsing and only yields false positives, which do not prevent any refactoring.
+     */
+    private static Set<String> getIdentifiers(String source) {
+        final Set<String> results = new HashSet<String>();
+        int i = 0;
+        while (i < source.length()) {
+            if (Character.isJavaIdentifierStart(source.charAt(i))) {
+                final int start = i;
+                do {
+                    i++;
+                } while (i < source.length() && Character.isJavaIdentifierPart(source.charAt(i)));
+                results.add(source.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return results;
+    }
+}
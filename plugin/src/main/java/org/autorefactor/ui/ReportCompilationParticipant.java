@@ -0,0 +1,270 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.refactoring.Finding;
+import org.autorefactor.refactoring.rules.AggregateASTVisitor;
+import org.autorefactor.refactoring.rules.AllRefactoringRules;
+import org.autorefactor.refactoring.rules.RefactoringContext;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.compiler.BuildContext;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.CompilationParticipant;
+import org.eclipse.jdt.core.compiler.ReconcileContext;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Reports what the automated refactorings would change in the compilation units being edited or built,
+ * as problems of the {@link #MARKER_TYPE} type.
+ * <p>
+ * This marker type differs from the one of the {@link FindingsReport}:
+ * the markers of the compilation participants are deleted by each build,
+ * which must not wipe the findings of the last explicit report.
+ * <p>
+ * Only the compilation units reconciled by an editor or recompiled by a build are analyzed,
+ * so the cost of the analysis follows the size of each edit rather than the size of the workspace.
+ * The rules run in report only mode, in one pass, without rewriting anything.
+ * <p>
+ * While reconciling, the AST of the editor is reused, but only when it is a {@link AST#JLS4} AST:
+ * the rules are only written for this level, and they would fail on the nodes of the later levels.
+ * The Java editor of Eclipse 3.x and 4.2-4.3 reconciles at this level,
+ * but from Eclipse 4.4 on, including the Mars target of this project, it reconciles at {@code AST.JLS8}:
+ * there, nothing is reported while editing, and the findings only appear after each build.
+ * <p>
+ * While building, the compiler does not share its ASTs with the participants,
+ * so contrary to reconciling, this participant has to use its own {@link ASTParser}:
+ * every recompiled compilation unit is parsed once more, with bindings unless all the rules are syntactic.
+ * This roughly doubles the cost of parsing during a build,
+ * and it is paid for each compilation unit of a full build.
+ */
+public class ReportCompilationParticipant extends CompilationParticipant {
+    /** The type of the markers of the findings reported while editing or building. */
+    static final String MARKER_TYPE = AutoRefactorPlugin.PLUGIN_ID + ".buildFinding";
+
+    @Override
+    public boolean isActive(IJavaProject project) {
+        return AutoRefactorPlugin.getPreferenceHelper().reportWhileBuilding();
+    }
+
+    @Override
+    public void reconcile(ReconcileContext context) {
+        if (context.getASTLevel() != AST.JLS4) {
+            // nobody asked for an AST, or it has a level the rules do not support, like the JLS8 ASTs
+            // of the Java editor since Eclipse 4.4. getAST4() would parse the compilation unit again:
+            // do not pay for parsing on every keystroke, and only report the findings of the builds
+            return;
+        }
+        final ICompilationUnit compilationUnit = context.getWorkingCopy();
+        try {
+            // reuse the AST computed by the reconcile operation
+            final CompilationUnit astRoot = context.getAST4();
+            if (astRoot != null) {
+                final List<Finding> findings = findFindings(compilationUnit, astRoot);
+                context.putProblems(MARKER_TYPE,
+                        toProblems(findings, compilationUnit.getPath().toString()));
+            }
+        } catch (JavaModelException e) {
+            AutoRefactorPlugin.logError("Could not report the automatic refactorings of file "
+                    + compilationUnit.getPath(), e);
+        }
+    }
+
+    @Override
+    public void buildStarting(BuildContext[] files, boolean isBatch) {
+        final Map<ICompilationUnit, BuildContext> contexts = new HashMap<ICompilationUnit, BuildContext>();
+        for (BuildContext context : files) {
+            final ICompilationUnit compilationUnit = JavaCore.createCompilationUnitFrom(context.getFile());
+            if (compilationUnit != null) {
+                contexts.put(compilationUnit, context);
+            }
+        }
+        if (contexts.isEmpty()) {
+            return;
+        }
+
+        // the compiler does not share its ASTs with participants:
+        // parse all the recompiled units in one batch sharing the same binding environment
+        final ICompilationUnit[] compilationUnits = contexts.keySet().toArray(new ICompilationUnit[contexts.size()]);
+        final AggregateASTVisitor refactoring =
+                new AggregateASTVisitor(AllRefactoringRules.getConfiguredRefactoringRules());
+        final ASTParser parser = ASTParser.newParser(AST.JLS4);
+        parser.setProject(compilationUnits[0].getJavaProject());
+        // resolving bindings is the most costly part of parsing
+        parser.setResolveBindings(!refactoring.isSyntactic());
+        parser.createASTs(compilationUnits, new String[0], new ASTRequestor() {
+            @Override
+            public void acceptAST(ICompilationUnit source, CompilationUnit astRoot) {
+                final BuildContext context = contexts.get(source);
+                final IFile file = context.getFile();
+                context.recordNewProblems(
+                        toProblems(findFindings(source, astRoot, refactoring), file.getFullPath().toString()));
+            }
+        }, null);
+    }
+
+    private List<Finding> findFindings(ICompilationUnit compilationUnit, CompilationUnit astRoot) {
+        return findFindings(compilationUnit, astRoot,
+                new AggregateASTVisitor(AllRefactoringRules.getConfiguredRefactoringRules()));
+    }
+
+    private List<Finding> findFindings(ICompilationUnit compilationUnit, CompilationUnit astRoot,
+            AggregateASTVisitor refactoring) {
+        if (!astRoot.getAST().hasResolvedBindings() && !refactoring.isSyntactic()) {
+            // the rules needing bindings would fail on this AST
+            return visit(compilationUnit, astRoot, new AggregateASTVisitor(refactoring.getSyntacticRules()));
+        }
+        return visit(compilationUnit, astRoot, refactoring);
+    }
+
+    private List<Finding> visit(ICompilationUnit compilationUnit, CompilationUnit astRoot,
+            AggregateASTVisitor refactoring) {
+        final List<Finding> findings = new ArrayList<Finding>();
+        refactoring.setRefactoringContext(new RefactoringContext(compilationUnit, astRoot,
+                new JavaProjectOptionsImpl(compilationUnit.getJavaProject().getOptions(true)),
+                new NullProgressMonitor(), findings));
+        refactoring.getRefactorings(astRoot);
+        return findings;
+    }
+
+    private CategorizedProblem[] toProblems(List<Finding> findings, String fileName) {
+        final CategorizedProblem[] results = new CategorizedProblem[findings.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new FindingProblem(findings.get(i), fileName);
+        }
+        return results;
+    }
+
+    /** Adapts a {@link Finding} to the JDT compiler problems. */
+    private static final class FindingProblem extends CategorizedProblem {
+        private final Finding finding;
+        private final char[] fileName;
+        private int sourceStart;
+        private int sourceEnd;
+        private int lineNumber;
+
+        private FindingProblem(Finding finding, String fileName) {
+            this.finding = finding;
+            this.fileName = fileName.toCharArray();
+            this.sourceStart = finding.getStartPosition();
+            this.sourceEnd = finding.getStartPosition() + finding.getLength() - 1;
+            this.lineNumber = finding.getLineNumber();
+        }
+
+        @Override
+        public String[] getArguments() {
+            return new String[] { finding.getRuleName() };
+        }
+
+        @Override
+        public int getID() {
+            return 0;
+        }
+
+        @Override
+        public String getMessage() {
+            return finding.getMessage();
+        }
+
+        @Override
+        public char[] getOriginatingFileName() {
+            return fileName;
+        }
+
+        @Override
+        public int getSourceStart() {
+            return sourceStart;
+        }
+
+        @Override
+        public int getSourceEnd() {
+            return sourceEnd;
+        }
+
+        @Override
+        public int getSourceLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public boolean isError() {
+            return false;
+        }
+
+        @Override
+        public boolean isWarning() {
+            return true;
+        }
+
+        @Override
+        public void setSourceStart(int sourceStart) {
+            this.sourceStart = sourceStart;
+        }
+
+        @Override
+        public void setSourceEnd(int sourceEnd) {
+            this.sourceEnd = sourceEnd;
+        }
+
+        @Override
+        public void setSourceLineNumber(int lineNumber) {
+            this.lineNumber = lineNumber;
+        }
+
+        @Override
+        public int getCategoryID() {
+            return CAT_CODE_STYLE;
+        }
+
+        @Override
+        public String getMarkerType() {
+            return MARKER_TYPE;
+        }
+
+        @Override
+        public String[] getExtraMarkerAttributeNames() {
+            return new String[] { FindingsReport.RULE_NAME };
+        }
+
+        @Override
+        public Object[] getExtraMarkerAttributeValues() {
+            return new Object[] { finding.getRuleName() };
+        }
+    }
+}
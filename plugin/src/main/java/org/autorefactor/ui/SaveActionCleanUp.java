@@ -0,0 +1,209 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.refactoring.LineRanges;
+import org.autorefactor.refactoring.Refactorings;
+import org.autorefactor.refactoring.rules.AggregateASTVisitor;
+import org.autorefactor.refactoring.rules.AllRefactoringRules;
+import org.autorefactor.refactoring.rules.RefactoringContext;
+import org.autorefactor.util.UnhandledException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.refactoring.CompilationUnitChange;
+import org.eclipse.jdt.ui.cleanup.CleanUpContext;
+import org.eclipse.jdt.ui.cleanup.CleanUpOptions;
+import org.eclipse.jdt.ui.cleanup.CleanUpRequirements;
+import org.eclipse.jdt.ui.cleanup.ICleanUp;
+import org.eclipse.jdt.ui.cleanup.ICleanUpFix;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.ltk.core.refactoring.RefactoringStatus;
+import org.eclipse.text.edits.TextEdit;
+
+/**
+ * Java editor save action applying the refactoring rules enabled in the preferences.
+ * <p>
+ * To keep saving fast, it reuses the AST already computed by the Java editor,
+ * only refactors the lines edited since the file was last saved,
+ * and gives up once its time budget is exceeded.
+ * The time budget covers reading the saved file, looking for refactorings and computing their edits:
+ * the search for refactorings only gets half of what remains after reading the saved file,
+ * and the edits are not computed at all when the time budget is already exceeded.
+ * Unlike {@link ApplyRefactoringsJob}, it only runs one refactoring pass.
+ */
+public class SaveActionCleanUp implements ICleanUp {
+    /** Clean up option which turns this save action on or off. */
+    public static final String SAVE_ACTION_ON = "org.autorefactor.save_action_on";
+
+    private CleanUpOptions options;
+
+    @Override
+    public void setOptions(CleanUpOptions options) {
+        this.options = options;
+    }
+
+    private boolean isEnabled() {
+        return options != null && options.isEnabled(SAVE_ACTION_ON);
+    }
+
+    @Override
+    public String[] getStepDescriptions() {
+        if (isEnabled()) {
+            return new String[] { "Apply AutoRefactor rules to the edited lines" };
+        }
+        return null;
+    }
+
+    @Override
+    public CleanUpRequirements getRequirements() {
+        // reuse the shared AST from the Java editor, do not ask for a fresh one
+        return new CleanUpRequirements(isEnabled(), false, false, null);
+    }
+
+    @Override
+    public RefactoringStatus checkPreConditions(IJavaProject project, ICompilationUnit[] compilationUnits,
+            IProgressMonitor monitor) throws CoreException {
+        return new RefactoringStatus();
+    }
+
+    @Override
+    public ICleanUpFix createFix(CleanUpContext context) throws CoreException {
+        final ICompilationUnit compilationUnit = context.getCompilationUnit();
+        final CompilationUnit astRoot = context.getAST();
+        if (!isEnabled() || astRoot == null) {
+            return null;
+        }
+
+        final long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(AutoRefactorPlugin.getPreferenceHelper().saveActionTimeBudget());
+        final String source = compilationUnit.getSource();
+        final String savedSource = getSavedSource(compilationUnit, deadline);
+        if (savedSource == null) {
+            logTimeBudgetExceeded(compilationUnit, "reading the saved file");
+            return null;
+        }
+        final LineRanges editedLines = LineRanges.ofChangedLines(savedSource, source);
+        if (editedLines.isEmpty()) {
+            return null;
+        }
+
+        final AggregateASTVisitor refactoring =
+                new AggregateASTVisitor(AllRefactoringRules.getConfiguredRefactoringRules());
+        refactoring.setLineRanges(editedLines);
+        // keep the other half of the time budget for computing the edits
+        refactoring.setTimeBudget(Math.max(0, (deadline - System.nanoTime()) / 2), TimeUnit.NANOSECONDS);
+        refactoring.setRefactoringContext(new RefactoringContext(compilationUnit, astRoot,
+                new JavaProjectOptionsImpl(compilationUnit.getJavaProject().getOptions(true)),
+                new NullProgressMonitor()));
+        final Refactorings refactorings = refactoring.getRefactorings(astRoot);
+        if (refactoring.isTimeBudgetExceeded() && AutoRefactorPlugin.getPreferenceHelper().debugModeOn()) {
+            AutoRefactorPlugin.logWarning("Time budget exceeded while refactoring " + compilationUnit.getPath()
+                    + " on save: only the refactorings found so far have been applied.");
+        }
+        if (!refactorings.hasRefactorings()) {
+            return null;
+        }
+        if (System.nanoTime() > deadline) {
+            logTimeBudgetExceeded(compilationUnit, "looking for refactorings");
+            return null;
+        }
+
+        final TextEdit edits;
+        try {
+            edits = refactorings.toTextEdit(new Document(source), editedLines);
+        } catch (BadLocationException e) {
+            throw new UnhandledException(null, e);
+        }
+        if (!edits.hasChildren()) {
+            return null;
+        }
+        return new ICleanUpFix() {
+            @Override
+            public CompilationUnitChange createChange(IProgressMonitor monitor) throws CoreException {
+                final CompilationUnitChange change = new CompilationUnitChange("AutoRefactor", compilationUnit);
+                change.setEdit(edits);
+                return change;
+            }
+        };
+    }
+
+    private void logTimeBudgetExceeded(ICompilationUnit compilationUnit, String step) {
+        if (AutoRefactorPlugin.getPreferenceHelper().debugModeOn()) {
+            AutoRefactorPlugin.logWarning("Time budget exceeded while " + step + " of " + compilationUnit.getPath()
+                    + " on save: no refactoring has been applied.");
+        }
+    }
+
+    /**
+     * Returns the source of the file as last saved, i.e. the content of the file on disk,
+     * or null if the provided deadline passed while reading it.
+     */
+    private String getSavedSource(ICompilationUnit compilationUnit, long deadline) throws CoreException {
+        final IFile file = (IFile) compilationUnit.getResource();
+        if (file == null || !file.exists()) {
+            return "";
+        }
+        try {
+            final Reader reader = new InputStreamReader(file.getContents(), file.getCharset());
+            try {
+                final StringBuilder sb = new StringBuilder();
+                final char[] buffer = new char[8192];
+                int nbRead;
+                while ((nbRead = reader.read(buffer)) != -1) {
+                    if (System.nanoTime() > deadline) {
+                        return null;
+                    }
+                    sb.append(buffer, 0, nbRead);
+                }
+                return sb.toString();
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // consider the whole file has been edited
+            AutoRefactorPlugin.logWarning("Could not read the saved content of " + file.getFullPath()
+                    + ": " + e.getMessage());
+            return "";
+        }
+    }
+
+    @Override
+    public RefactoringStatus checkPostConditions(IProgressMonitor monitor) throws CoreException {
+        return new RefactoringStatus();
+    }
+}
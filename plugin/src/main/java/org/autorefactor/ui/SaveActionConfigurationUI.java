@@ -0,0 +1,79 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import org.eclipse.jdt.ui.cleanup.CleanUpOptions;
+import org.eclipse.jdt.ui.cleanup.ICleanUpConfigurationUI;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Composite;
+
+/** Tab shown in the Java editor save actions preferences to turn the {@link SaveActionCleanUp} on or off. */
+public class SaveActionConfigurationUI implements ICleanUpConfigurationUI {
+    private CleanUpOptions options;
+
+    @Override
+    public void setOptions(CleanUpOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public Composite createContents(Composite parent) {
+        final Composite composite = new Composite(parent, SWT.NONE);
+        composite.setLayout(new GridLayout(1, false));
+        final Button saveActionOn = new Button(composite, SWT.CHECK);
+        saveActionOn.setText("Apply the AutoRefactor rules enabled in the preferences to the edited lines");
+        saveActionOn.setSelection(options.isEnabled(SaveActionCleanUp.SAVE_ACTION_ON));
+        saveActionOn.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                options.setOption(SaveActionCleanUp.SAVE_ACTION_ON,
+                        saveActionOn.getSelection() ? CleanUpOptions.TRUE : CleanUpOptions.FALSE);
+            }
+        });
+        return composite;
+    }
+
+    @Override
+    public int getCleanUpCount() {
+        return 1;
+    }
+
+    @Override
+    public int getSelectedCleanUpCount() {
+        return options.isEnabled(SaveActionCleanUp.SAVE_ACTION_ON) ? 1 : 0;
+    }
+
+    @Override
+    public String getPreview() {
+        return ""
+            + "// AutoRefactor only refactors the lines edited since the last save,\n"
+            + "// using the rules enabled in the AutoRefactor preferences\n";
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2016 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.ui;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.autorefactor.AutoRefactorPlugin;
+import org.autorefactor.refactoring.RefactoringRule;
+import org.autorefactor.refactoring.rules.AllRefactoringRules;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Splits a headless run into shards, each processed by its own Eclipse process,
+ * so a single JVM heap and garbage collector do not limit the size of the code bases which can be refactored.
+ * <p>
+ * The Java files are sorted by path, then split into contiguous shards of the same size,
+ * so the same files always end up in the same shard.
+ * Each shard process has its own workspace, kept under the state location of the plugin:
+ * the projects are imported there from their location on disk,
+ * so the shard processes never contend on workspace locks.
+ * The shards then modify the files on disk, or write their findings as JSON in report only mode.
+ * Once all the shards are done, the modified files are refreshed in the workspace,
+ * the findings are merged into a single JSON file and the statistics of all the shards are printed.
+ * <p>
+ * A shard which crashed can be run again on its own, or with the {@code -resume} option,
+ * only the shards which did not complete are run again.
+ */
+class ShardedRun {
+    private static final String APPLICATION_ID = AutoRefactorPlugin.PLUGIN_ID + ".headless";
+    private static final String SHARD_FILE = "shard.txt";
+    private static final String DONE_FILE = "done.txt";
+    private static final String FINDINGS_FILE = "findings.json";
+    private static final String LOG_FILE = "shard.log";
+
+    private final int nbShards;
+    private final boolean reportOnly;
+    private final boolean resume;
+
+    /**
+     * Builds an instance of this class.
+     *
+     * @param nbShards the number of shards, i.e. the number of Eclipse processes to run
+     * @param reportOnly whether to only report what would be refactored, without changing any file
+     * @param resume whether to only run the shards which did not complete during the previous identical run
+     */
+    ShardedRun(int nbShards, boolean reportOnly, boolean resume) {
+        this.nbShards = nbShards;
+        this.reportOnly = reportOnly;
+        this.resume = resume;
+    }
+
+    /**
+     * Refactors the provided java elements with the configured refactoring rules,
+     * one shard per Eclipse process, and waits until all the shards are done.
+     *
+     * @param javaElements the java elements to refactor
+     * @return the status of the run
+     * @throws CoreException if the java elements could not be enumerated or refreshed
+     * @throws InterruptedException if the current thread is interrupted while waiting for the shards
+     */
+    IStatus run(List<IJavaElement> javaElements) throws CoreException, InterruptedException {
+        final String launcher = System.getProperty("eclipse.launcher");
+        if (launcher == null) {
+            return error("Cannot find the Eclipse launcher to start the shard processes");
+        }
+        final List<String> unitPaths = getCompilationUnitPaths(javaElements);
+        final List<String> header = getShardHeader();
+        final File shardsDir = AutoRefactorPlugin.getDefault().getStateLocation().append("shards").toFile();
+
+        final List<File> shardDirs = new ArrayList<File>(nbShards);
+        final List<Process> processes = new ArrayList<Process>(nbShards);
+        try {
+            for (int i = 0; i < nbShards; i++) {
+                final File shardDir = new File(shardsDir, Integer.toString(i));
+                shardDirs.add(shardDir);
+                final List<String> lines = new ArrayList<String>(header);
+                for (String unitPath : unitPaths.subList(i * unitPaths.size() / nbShards,
+                        (i + 1) * unitPaths.size() / nbShards)) {
+                    lines.add("unit=" + unitPath);
+                }
+                processes.add(startShard(launcher, shardDir, lines));
+            }
+        } catch (IOException e) {
+            destroyAll(processes);
+            return error("Could not start the shard processes: " + e.getMessage());
+        }
+
+        final List<String> failedShards = new ArrayList<String>();
+        int nbUnits = 0;
+        for (int i = 0; i < nbShards; i++) {
+            final Process process = processes.get(i);
+            final File shardDir = shardDirs.get(i);
+            final int exitValue = process != null ? process.waitFor() : 0;
+            final File doneFile = new File(shardDir, DONE_FILE);
+            if (exitValue == 0 && doneFile.exists()) {
+                final String stats = readLines(doneFile).get(0);
+                System.out.println("Shard " + i + (process != null ? ": " : " (already done): ") + stats);
+                nbUnits += getNbUnits(stats);
+            } else {
+                failedShards.add("Shard " + i + " failed with exit value " + exitValue
+                        + ", see " + new File(shardDir, LOG_FILE)
+                        + ". Run it again with: " + launcher + " -nosplash -data " + new File(shardDir, "workspace")
+                        + " -application " + APPLICATION_ID + " -shard " + new File(shardDir, SHARD_FILE));
+            }
+        }
+
+        for (IJavaElement javaElement : javaElements) {
+            // the shard processes modified the files behind the back of this workspace
+            javaElement.getResource().refreshLocal(IResource.DEPTH_INFINITE, new NullProgressMonitor());
+        }
+        if (reportOnly) {
+            mergeFindings(shardDirs);
+        }
+        System.out.println(nbUnits + " Java files processed by " + (nbShards - failedShards.size())
+                + " shards out of " + nbShards);
+        if (!failedShards.isEmpty()) {
+            final StringBuilder sb = new StringBuilder();
+            for (String failedShard : failedShards) {
+                sb.append(failedShard).append("\n");
+            }
+            return error(sb.toString());
+        }
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Returns the paths of all the compilation units of the provided java elements, sorted.
+     * The paths are unique, even when some java elements contain others.
+     */
+    private List<String> getCompilationUnitPaths(List<IJavaElement> javaElements) throws JavaModelException {
+        final Set<String> results = new LinkedHashSet<String>();
+        for (IJavaElement javaElement : javaElements) {
+            addCompilationUnitPaths(javaElement, results);
+        }
+        final List<String> sorted = new ArrayList<String>(results);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private void addCompilationUnitPaths(IJavaElement javaElement, Set<String> results) throws JavaModelException {
+        if (javaElement instanceof ICompilationUnit) {
+            final ICompilationUnit cu = (ICompilationUnit) javaElement;
+            if (!cu.isReadOnly()) {
+                results.add(cu.getPath().toString());
+            }
+        } else if (javaElement instanceof IPackageFragment) {
+            for (ICompilationUnit cu : ((IPackageFragment) javaElement).getCompilationUnits()) {
+                addCompilationUnitPaths(cu, results);
+            }
+        } else if (javaElement instanceof IPackageFragmentRoot) {
+            for (IJavaElement child : ((IPackageFragmentRoot) javaElement).getChildren()) {
+                addCompilationUnitPaths(child, results);
+            }
+        } else if (javaElement instanceof IJavaProject) {
+            for (IPackageFragment pf : ((IJavaProject) javaElement).getPackageFragments()) {
+                if (pf.getKind() == IPackageFragmentRoot.K_SOURCE) {
+                    addCompilationUnitPaths(pf, results);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns what all the shards need besides their units:
+     * the mode, the rules configured in this workspace,
+     * and all the open projects, which the projects to refactor might depend on.
+     */
+    private List<String> getShardHeader() {
+        final List<String> results = new ArrayList<String>();
+        results.add("report=" + reportOnly);
+        for (RefactoringRule refactoringRule : AllRefactoringRules.getConfiguredRefactoringRules()) {
+            results.add("rule=" + refactoringRule.getClass().getName());
+        }
+        final IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+        Arrays.sort(projects, new Comparator<IProject>() {
+            @Override
+            public int compare(IProject p1, IProject p2) {
+                return p1.getName().compareTo(p2.getName());
+            }
+        });
+        for (IProject project : projects) {
+            if (project.isOpen() && project.getLocation() != null) {
+                results.add("project=" + project.getName() + "\t" + project.getLocation().toOSString());
+            }
+        }
+        return results;
+    }
+
+    /** Starts the process for one shard, or returns null if this shard is already done and can be skipped. */
+    private Process startShard(String launcher, File shardDir, List<String> lines) throws IOException {
+        final File shardFile = new File(shardDir, SHARD_FILE);
+        final File doneFile = new File(shardDir, DONE_FILE);
+        if (resume && doneFile.exists() && shardFile.exists() && lines.equals(readLines(shardFile))) {
+            return null;
+        }
+        if (!shardDir.isDirectory() && !shardDir.mkdirs()) {
+            throw new IOException("Could not create directory " + shardDir);
+        }
+        doneFile.delete();
+        new File(shardDir, FINDINGS_FILE).delete();
+        writeLines(shardFile, lines);
+
+        final ProcessBuilder builder = new ProcessBuilder(launcher, "-nosplash", "--launcher.suppressErrors",
+                "-data", new File(shardDir, "workspace").getPath(),
+                "-application", APPLICATION_ID,
+                "-shard", shardFile.getPath());
+        builder.redirectErrorStream(true);
+        final Process process = builder.start();
+        process.getOutputStream().close();
+        copyInBackground(process.getInputStream(), new FileOutputStream(new File(shardDir, LOG_FILE)));
+        return process;
+    }
+
+    private void mergeFindings(List<File> shardDirs) {
+        final List<File> inputs = new ArrayList<File>(shardDirs.size());
+        for (File shardDir : shardDirs) {
+            inputs.add(new File(shardDir, FINDINGS_FILE));
+        }
+        final String jsonFile = AutoRefactorPlugin.getPreferenceHelper().reportJsonFile();
+        final File output = jsonFile.length() > 0
+                ? new File(jsonFile)
+                : new File(shardDirs.get(0).getParentFile(), FINDINGS_FILE);
+        try {
+            FindingsReport.mergeJson(inputs, output);
+            System.out.println("Findings written to " + output);
+        } catch (IOException e) {
+            AutoRefactorPlugin.logError("Could not merge the findings of the shards into " + output, e);
+        }
+    }
+
+    /**
+     * Runs one shard, in the current Eclipse process, as described by the provided shard file.
+     *
+     * @param shardFile the file describing the shard
+     * @return the status of the run
+     * @throws Exception if any problem occurs
+     */
+    static IStatus runShard(File shardFile) throws Exception {
+        final long startTime = System.currentTimeMillis();
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        turnOffAutoBuild(workspace);
+        boolean reportOnly = false;
+        final Set<String> ruleClassNames = new LinkedHashSet<String>();
+        final List<String> unitPaths = new ArrayList<String>();
+        for (String line : readLines(shardFile)) {
+            final int equalsIndex = line.indexOf('=');
+            final String key = line.substring(0, equalsIndex);
+            final String value = line.substring(equalsIndex + 1);
+            if ("report".equals(key)) {
+                reportOnly = Boolean.parseBoolean(value);
+            } else if ("rule".equals(key)) {
+                ruleClassNames.add(value);
+            } else if ("project".equals(key)) {
+                final String[] nameAndLocation = value.split("\t");
+                importProject(workspace, nameAndLocation[0], new Path(nameAndLocation[1]));
+            } else if ("unit".equals(key)) {
+                unitPaths.add(value);
+            }
+        }
+
+        final List<RefactoringRule> refactoringRules = new ArrayList<RefactoringRule>();
+        for (RefactoringRule refactoringRule : AllRefactoringRules.getAllRefactoringRules()) {
+            if (ruleClassNames.contains(refactoringRule.getClass().getName())) {
+                refactoringRules.add(refactoringRule);
+            }
+        }
+        final IStatus status = unitPaths.isEmpty()
+                ? Status.OK_STATUS
+                : AutoRefactorApplication.run(AutoRefactorApplication.getJavaElements(unitPaths), refactoringRules,
+                        reportOnly, null, new File(shardFile.getParentFile(), FINDINGS_FILE));
+        if (status.isOK()) {
+            writeLines(new File(shardFile.getParentFile(), DONE_FILE), Collections.singletonList(
+                    "units=" + unitPaths.size() + " millis=" + (System.currentTimeMillis() - startTime)));
+        }
+        return status;
+    }
+
+    /**
+     * Turns off the auto-build of the shard workspace before any project is imported, and for good:
+     * all the shards share the projects with the original workspace,
+     * so building them from the shards would write to the same output folders concurrently.
+     */
+    private static void turnOffAutoBuild(IWorkspace workspace) throws CoreException {
+        final IWorkspaceDescription description = workspace.getDescription();
+        if (description.isAutoBuilding()) {
+            description.setAutoBuilding(false);
+            workspace.setDescription(description);
+        }
+    }
+
+    /** Makes the provided project, located outside of this workspace, available and open in this workspace. */
+    private static void importProject(IWorkspace workspace, String name, IPath location) throws CoreException {
+        final IProject project = workspace.getRoot().getProject(name);
+        if (!project.exists()) {
+            final IProjectDescription description =
+                    workspace.loadProjectDescription(location.append(IProjectDescription.DESCRIPTION_FILE_NAME));
+            project.create(description, new NullProgressMonitor());
+        }
+        if (!project.isOpen()) {
+            project.open(new NullProgressMonitor());
+        }
+    }
+
+    private static int getNbUnits(String stats) {
+        final String prefix = "units=";
+        final int start = stats.indexOf(prefix) + prefix.length();
+        final int end = stats.indexOf(' ', start);
+        return Integer.parseInt(stats.substring(start, end != -1 ? end : stats.length()));
+    }
+
+    private static void destroyAll(List<Process> processes) {
+        for (Process process : processes) {
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+
+    private static void copyInBackground(final InputStream in, final OutputStream out) {
+        final Thread thread = new Thread("AutoRefactor shard output") {
+            @Override
+            public void run() {
+                try {
+                    try {
+                        final byte[] buffer = new byte[8192];
+                        int nbRead;
+                        while ((nbRead = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, nbRead);
+                        }
+                    } finally {
+                        out.close();
+                    }
+                } catch (IOException e) {
+                    AutoRefactorPlugin.logError("Could not copy the output of a shard process", e);
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            final List<String> results = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                results.add(line);
+            }
+            return results;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeLines(File file, List<String> lines) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write("\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static IStatus error(String message) {
+        return new Status(IStatus.ERROR, AutoRefactorPlugin.PLUGIN_ID, message);
+    }
+}
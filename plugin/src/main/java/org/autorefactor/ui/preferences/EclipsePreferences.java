@@ -54,6 +54,36 @@ public class EclipsePreferences implements Preferences {
         return getBoolean(DEBUG_MODE_ON);
     }
 
+    @Override
+    public boolean editJournalOn() {
+        return getBoolean(EDIT_JOURNAL_ON);
+    }
+
+    @Override
+    public int saveActionTimeBudget() {
+        return preferenceStore.getInt(SAVE_ACTION_TIME_BUDGET.getName());
+    }
+
+    @Override
+    public String gitBaseRef() {
+        return preferenceStore.getString(GIT_BASE_REF.getName()).trim();
+    }
+
+    @Override
+    public boolean gitChangedLinesOnly() {
+        return getBoolean(GIT_CHANGED_LINES_ONLY);
+    }
+
+    @Override
+    public String reportJsonFile() {
+        return preferenceStore.getString(REPORT_JSON_FILE.getName()).trim();
+    }
+
+    @Override
+    public boolean reportWhileBuilding() {
+        return getBoolean(REPORT_WHILE_BUILDING);
+    }
+
     @Override
     public boolean isEnabled(Class<? extends AbstractRefactoringRule> clazz) {
         return preferenceStore.getBoolean(clazz.getCanonicalName());
@@ -31,7 +31,9 @@ import org.autorefactor.refactoring.RefactoringRule;
 import org.autorefactor.refactoring.rules.AllRefactoringRules;
 import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditor;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.PreferencePage;
+import org.eclipse.jface.preference.StringFieldEditor;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
@@ -95,10 +97,22 @@ public class WorkspacePreferencePage extends PreferencePage implements IWorkbenc
     private Group createControls(final Composite parent, final List<RefactoringRule> allRefactoringRules) {
         fieldEditorParent = new Composite(parent, SWT.FILL);
 
-        fields = new ArrayList<FieldEditor>(1 + allRefactoringRules.size());
+        fields = new ArrayList<FieldEditor>(7 + allRefactoringRules.size());
 
         fields.add(new BooleanFieldEditor(DEBUG_MODE_ON.getName(), DEBUG_MODE_ON.getDescription(),
                 fieldEditorParent));
+        fields.add(new BooleanFieldEditor(EDIT_JOURNAL_ON.getName(), EDIT_JOURNAL_ON.getDescription(),
+                fieldEditorParent));
+        fields.add(new IntegerFieldEditor(SAVE_ACTION_TIME_BUDGET.getName(),
+                SAVE_ACTION_TIME_BUDGET.getDescription(), fieldEditorParent));
+        fields.add(new StringFieldEditor(GIT_BASE_REF.getName(), GIT_BASE_REF.getDescription(),
+                fieldEditorParent));
+        fields.add(new BooleanFieldEditor(GIT_CHANGED_LINES_ONLY.getName(), GIT_CHANGED_LINES_ONLY.getDescription(),
+                fieldEditorParent));
+        fields.add(new StringFieldEditor(REPORT_JSON_FILE.getName(), REPORT_JSON_FILE.getDescription(),
+                fieldEditorParent));
+        fields.add(new BooleanFieldEditor(REPORT_WHILE_BUILDING.getName(), REPORT_WHILE_BUILDING.getDescription(),
+                fieldEditorParent));
 
         final Group ruleGroup = new Group(fieldEditorParent, SWT.FILL);
         ruleGroup.setText("Rules by default");
@@ -0,0 +1,111 @@
+/*
+ * AutoRefactor - Eclipse plugin to automatically refactor Java code bases.
+ *
+ * Copyright (C) 2014 Jean-Noël Rouvignac - initial API and implementation
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program under LICENSE-GNUGPL.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution under LICENSE-ECLIPSE, and is
+ * available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.autorefactor.refactoring.rules.samples_in;
+
+public class RemoveDeadStoresSample {
+    private int field;
+
+    public int removeOverwrittenInitializer(int j) {
+        int i = 0;
+        i = j + 1;
+        return i;
+    }
+
+    public int removeOverwrittenAssignment(int j) {
+        int i;
+        i = 0;
+        i = j;
+        return i;
+    }
+
+    public int removeAssignmentNeverReadAfterwards(int j) {
+        int i = j;
+        j = i * 2;
+        i = 42;
+        return j;
+    }
+
+    public int removeDeadStoreInBranch(boolean b, int j) {
+        int i = j;
+        if (b) {
+            i = 0;
+            return j;
+        }
+        return i;
+    }
+
+    public void removeVariableWrittenButNeverRead(int j) {
+        int unused = j;
+        unused = 42;
+        System.out.println(j);
+    }
+
+    public int removeUnusedFragment(int j) {
+        int unused = 0, i = j;
+        return i;
+    }
+
+    public int doNotRemoveStoreWithSideEffects(int j) {
+        int i = field++;
+        i = j;
+        return i;
+    }
+
+    public int doNotRemoveStoreReadInLoop(int[] array) {
+        int sum = 0;
+        for (int k = 0; k < array.length; k++) {
+            sum = sum + array[k];
+        }
+        return sum;
+    }
+
+    public void doNotRemoveStoreReadBeforeForUpdater(int n) {
+        int prev = -1;
+        for (int i = 0; i < n; prev = i, i++) {
+            System.out.println(prev);
+        }
+    }
+
+    public Runnable doNotRemoveVariableReadByAnonymousClass(int j) {
+        final int i = j;
+        return new Runnable() {
+            @Override
+            public void run() {
+                System.out.println(i);
+            }
+        };
+    }
+
+    public int doNotRemoveStoreReadInCatchClause(String s) {
+        int i = 0;
+        try {
+            i = Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return i;
+        }
+        return i;
+    }
+}
@@ -163,6 +163,74 @@ public class DeadCodeEliminationSample {
         return 2;
     }
 
+    private static final String MODE = "release";
+
+    public int removeIfWithConstantLocalCondition(int i) {
+        boolean trace = false;
+        return i;
+    }
+
+    public int replaceIfWithConstantLocalConditionByThenClause(int i) {
+        int level = 2;
+        {
+            i++;
+        }
+        return i;
+    }
+
+    public int replaceIfWithConstantFieldConditionByElseClause(int i) {
+        {
+            i--;
+        }
+        return i;
+    }
+
+    public int doNotRemoveIfWithReassignedLocal(boolean b, int i) {
+        boolean trace = false;
+        if (b) {
+            trace = true;
+        }
+        if (trace) {
+            System.out.println(i);
+        }
+        return i;
+    }
+
+    public int doNotRemoveIfWithLocalModifiedInLoop(int[] array) {
+        int count = 0;
+        for (int value : array) {
+            if (count > 0) {
+                System.out.println(value);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    public int doNotRemoveIfWithLocalAssignedInExtendedOperand(String s, char c) {
+        int idx = -1;
+        if (s != null && s.length() > 0 && (idx = s.indexOf(c)) >= 0) {
+            System.out.println(s);
+        }
+        if (idx == -1) {
+            return 0;
+        } else {
+            return idx;
+        }
+    }
+
+    public int doNotRemoveIfWithLocalAssignedInForInitializer(int[] array) {
+        int i = -1;
+        for (i = 0; i < array.length; i++) {
+            System.out.println(array[i]);
+        }
+        if (i == -1) {
+            return 0;
+        } else {
+            return i;
+        }
+    }
+
 // FIXME compilation error.
 // Following code:
 //    private int removeWhileWithoutIterations() {